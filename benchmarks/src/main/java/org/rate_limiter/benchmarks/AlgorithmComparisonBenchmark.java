@@ -0,0 +1,76 @@
+package org.rate_limiter.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.Algorithm;
+import org.rate_limiter.algo.BucketRateLimiter;
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.simulation.ZipfDistribution;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each {@link Algorithm} on a skewed population next to how much it lets through: the {@code admitted}
+ * counter divided by the configured rates shows how close each algorithm stays to the limit it enforces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlgorithmComparisonBenchmark {
+    @Param({"TOKEN_BUCKET", "SLIDING_WINDOW_COUNTER", "SLIDING_WINDOW_LOG", "GCRA"})
+    private Algorithm algorithm;
+
+    @Param({"100000"})
+    private int users;
+
+    private RateLimiter rateLimiter;
+    private User[] population;
+    private User hotUser;
+    private ZipfDistribution zipfDistribution;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = new BucketRateLimiter(algorithm.forEverySubscription());
+        population = Users.create(users);
+        hotUser = new User(users, SubscriptionType.BUSINESS_USER);
+        zipfDistribution = new ZipfDistribution(users, 1.1);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Admissions {
+        private final SplittableRandom random = new SplittableRandom();
+        public long admitted;
+        public long denied;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            admitted = 0;
+            denied = 0;
+        }
+
+        private boolean count(boolean allowed) {
+            if (allowed) {
+                admitted++;
+            } else {
+                denied++;
+            }
+            return allowed;
+        }
+    }
+
+    @Benchmark
+    public boolean zipfUsers(Admissions admissions) {
+        return admissions.count(rateLimiter.allowRequest(population[zipfDistribution.sample(admissions.random)]));
+    }
+
+    @Benchmark
+    public boolean singleUser(Admissions admissions) {
+        return admissions.count(rateLimiter.allowRequest(hotUser));
+    }
+}
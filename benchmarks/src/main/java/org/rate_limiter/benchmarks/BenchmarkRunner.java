@@ -0,0 +1,53 @@
+package org.rate_limiter.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the benchmarks selected by the usual JMH command line (all of them by default) at 1, 4 and one thread per
+ * available processor with {@code -prof gc}, writing one JSON result file per thread count into
+ * {@code jmh-results/<timestamp>/} so runs can be compared over time.
+ */
+public class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        Path resultDirectory = Path.of("jmh-results", LocalDateTime.now()
+                                                                   .format(DateTimeFormatter.ofPattern(
+                                                                           "yyyyMMdd-HHmmss")));
+        Files.createDirectories(resultDirectory);
+        int processors = Runtime.getRuntime()
+                                .availableProcessors();
+        for (int threads : IntStream.of(1, 4, processors)
+                                    .distinct()
+                                    .toArray()) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(commandLineOptions)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(resultDirectory.resolve("threads-" + threads + ".json")
+                                           .toString());
+            if (commandLineOptions.getIncludes()
+                                  .isEmpty()) {
+                options.include(BenchmarkRunner.class.getPackageName() + ".*Benchmark");
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.rate_limiter.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Every invocation sends the first request of a new user id, so each call creates a bucket through the store's
+ * {@code computeIfAbsent}. The limiter is replaced per iteration to keep the table sizes comparable across runs;
+ * the reported allocation includes the {@link User} itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BucketCreationBenchmark {
+    private static final long IDS_PER_THREAD = 1L << 32;
+
+    private final AtomicLong nextIdBlock = new AtomicLong();
+    private RateLimiter rateLimiter;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        rateLimiter = new TokenBucketRateLimiter();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private long nextId;
+
+        @Setup(Level.Iteration)
+        public void setUp(BucketCreationBenchmark benchmark) {
+            nextId = benchmark.nextIdBlock.getAndIncrement() * IDS_PER_THREAD;
+        }
+    }
+
+    @Benchmark
+    public boolean allowRequest(ThreadState threadState) {
+        return rateLimiter.allowRequest(new User(threadState.nextId++, SubscriptionType.PREMIUM_USER));
+    }
+}
@@ -0,0 +1,47 @@
+package org.rate_limiter.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a user whose tokens are exhausted, so every request goes through the paid credit fallback of
+ * {@code TokenBucket}. With {@code credits = 0} this measures the denial path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreditFallbackBenchmark {
+    @Param({"0", "1000000000000"})
+    private long credits;
+
+    @Param({"1", "100"})
+    private int purchases;
+
+    private RateLimiter rateLimiter;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = new TokenBucketRateLimiter();
+        user = new User(1, SubscriptionType.FREE_USER);
+        while (rateLimiter.allowRequest(user)) {
+            // drain the initial tokens
+        }
+        for (int purchase = 0; purchase < purchases; purchase++) {
+            user.addCredits(credits / purchases);
+        }
+    }
+
+    @Benchmark
+    public boolean allowRequest() {
+        return rateLimiter.allowRequest(user);
+    }
+}
@@ -0,0 +1,53 @@
+package org.rate_limiter.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.RateRequest;
+import org.rate_limiter.algo.AdmissionBucket;
+import org.rate_limiter.algo.StripedTokenBucket;
+import org.rate_limiter.algo.StripingPolicy;
+import org.rate_limiter.algo.TokenBucket;
+import org.rate_limiter.clock.SystemTickSource;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One hot key behind every benchmark thread: the single-atomic {@link TokenBucket} against a per-core
+ * {@link StripedTokenBucket}. At 100/s nearly every request is denied and only reads the state; at 1M/s most are
+ * admitted and the CAS traffic on a single {@code AtomicLong} is what stops scaling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotKeyStripingBenchmark {
+    @Param({"SINGLE_ATOMIC", "STRIPED"})
+    private String mode;
+
+    @Param({"100", "1000000"})
+    private long ratePerSecond;
+
+    private AdmissionBucket bucket;
+
+    @Setup
+    public void setUp() {
+        RateParams rateParams = new RateParams(Math.min(ratePerSecond, 1 << 20),
+                                               new RateRequest(TimeUnit.SECONDS, ratePerSecond));
+        CreditLedger creditLedger = new CreditLedger();
+        bucket = switch (mode) {
+            case "SINGLE_ATOMIC" -> new TokenBucket(rateParams, creditLedger);
+            case "STRIPED" -> new StripedTokenBucket(rateParams, creditLedger, SystemTickSource.INSTANCE,
+                                                     StripingPolicy.perCore(1)
+                                                                   .stripes(), rateParams.capacity());
+            default -> throw new IllegalArgumentException("Unknown mode " + mode);
+        };
+    }
+
+    @Benchmark
+    public boolean allowRequest() {
+        return bucket.allowRequests(1, System.nanoTime());
+    }
+}
@@ -0,0 +1,42 @@
+package org.rate_limiter.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManyUserUniformBenchmark {
+    @Param({"1000000"})
+    private int users;
+
+    private RateLimiter rateLimiter;
+    private User[] population;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = new TokenBucketRateLimiter();
+        population = Users.create(users);
+        for (User user : population) {
+            rateLimiter.allowRequest(user);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public boolean allowRequest(ThreadState threadState) {
+        return rateLimiter.allowRequest(population[threadState.random.nextInt(population.length)]);
+    }
+}
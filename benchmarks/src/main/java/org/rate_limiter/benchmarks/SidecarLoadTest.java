@@ -0,0 +1,111 @@
+package org.rate_limiter.benchmarks;
+
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.algo.AdmissionBitmap;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+import org.rate_limiter.metrics.LatencyHistogram;
+import org.rate_limiter.sidecar.AdmissionClient;
+import org.rate_limiter.sidecar.AdmissionServer;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end loopback load test for the sidecar: an {@link AdmissionServer} and a pooled {@link AdmissionClient} in
+ * one JVM, driven open loop at a fixed decision rate with pipelined calls.
+ * <p>
+ * Latency is measured from the time a frame was due to be sent rather than when it was, so a stalled server shows
+ * up in the tail instead of slowing the generator down. Arguments, all optional:
+ * {@code [decisions per second=100000] [seconds=10] [connections=4] [decisions per frame=1]}.
+ */
+public class SidecarLoadTest {
+    private static final int USERS = 100_000;
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final String[] QUANTILE_NAMES = {"p50", "p99", "p999"};
+    private static final SubscriptionType[] TYPES = SubscriptionType.values();
+
+    private SidecarLoadTest() {
+    }
+
+    public static void main(String[] args) {
+        long decisionsPerSecond = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int batch = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        try (AdmissionServer server = new AdmissionServer(new TokenBucketRateLimiter(),
+                                                          new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                                                                0));
+             AdmissionClient client = new AdmissionClient(server.address(), connections)) {
+            // A second of warm-up so the measured run sees compiled code and open connections
+            run(client, decisionsPerSecond, 1, batch, new LatencyHistogram(), new LongAdder(), new LongAdder());
+
+            LatencyHistogram latencies = new LatencyHistogram();
+            LongAdder decided = new LongAdder();
+            LongAdder allowed = new LongAdder();
+            long elapsed = run(client, decisionsPerSecond, seconds, batch, latencies, decided, allowed);
+
+            System.out.printf("target %,d decisions/s over %d connections, %d per frame%n", decisionsPerSecond,
+                              connections, batch);
+            System.out.printf("decided %,d (%.1f%% allowed) at %,.0f decisions/s%n", decided.sum(),
+                              100.0 * allowed.sum() / Math.max(1, decided.sum()),
+                              decided.sum() * 1e9 / elapsed);
+            for (int index = 0; index < QUANTILES.length; index++) {
+                System.out.printf("%-5s %,10.1f us%n", QUANTILE_NAMES[index],
+                                  latencies.percentile(QUANTILES[index]) / 1_000.0);
+            }
+        }
+    }
+
+    /**
+     * Sends frames on schedule for {@code seconds} and waits for the last response; returns the elapsed nanoseconds.
+     */
+    private static long run(AdmissionClient client, long decisionsPerSecond, int seconds, int batch,
+                            LatencyHistogram latencies, LongAdder decided, LongAdder allowed) {
+        long frames = decisionsPerSecond * seconds / batch;
+        double frameIntervalNanos = 1e9 * batch / decisionsPerSecond;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] inFlight = new CompletableFuture<?>[(int) Math.min(frames, 1 << 16)];
+        long start = System.nanoTime();
+        for (long frame = 0; frame < frames; frame++) {
+            long due = start + (long) (frame * frameIntervalNanos);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long[] userIds = new long[batch];
+            SubscriptionType[] subscriptionTypes = new SubscriptionType[batch];
+            long[] permits = new long[batch];
+            for (int request = 0; request < batch; request++) {
+                userIds[request] = random.nextInt(USERS);
+                subscriptionTypes[request] = TYPES[(int) (userIds[request] % TYPES.length)];
+                permits[request] = 1;
+            }
+            int slot = (int) (frame % inFlight.length);
+            if (inFlight[slot] != null) {
+                inFlight[slot].join();
+            }
+            inFlight[slot] = client.allowRequestsAsync(userIds, subscriptionTypes, permits)
+                                   .thenAccept(allowedBitmap -> {
+                                       latencies.record(System.nanoTime() - due);
+                                       decided.add(batch);
+                                       for (int request = 0; request < batch; request++) {
+                                           if (AdmissionBitmap.isAllowed(allowedBitmap, request)) {
+                                               allowed.increment();
+                                           }
+                                       }
+                                   });
+        }
+        CompletableFuture.allOf(Arrays.stream(inFlight)
+                                      .filter(Objects::nonNull)
+                                      .toArray(CompletableFuture[]::new))
+                         .join();
+        return System.nanoTime() - start;
+    }
+}
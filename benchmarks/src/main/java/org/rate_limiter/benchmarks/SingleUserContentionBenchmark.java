@@ -0,0 +1,31 @@
+package org.rate_limiter.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SingleUserContentionBenchmark {
+    private RateLimiter rateLimiter;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = new TokenBucketRateLimiter();
+        user = new User(1, SubscriptionType.BUSINESS_USER);
+    }
+
+    @Benchmark
+    public boolean allowRequest() {
+        return rateLimiter.allowRequest(user);
+    }
+}
@@ -0,0 +1,19 @@
+package org.rate_limiter.benchmarks;
+
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+
+final class Users {
+    private static final SubscriptionType[] TYPES = SubscriptionType.values();
+
+    private Users() {
+    }
+
+    static User[] create(int count) {
+        User[] users = new User[count];
+        for (int id = 0; id < count; id++) {
+            users[id] = new User(id, TYPES[id % TYPES.length]);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,45 @@
+package org.rate_limiter.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+import org.rate_limiter.simulation.ZipfDistribution;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZipfSkewedBenchmark {
+    @Param({"1000000"})
+    private int users;
+
+    @Param({"1.1"})
+    private double exponent;
+
+    private RateLimiter rateLimiter;
+    private User[] population;
+    private ZipfDistribution zipfDistribution;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = new TokenBucketRateLimiter();
+        population = Users.create(users);
+        zipfDistribution = new ZipfDistribution(users, exponent);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public boolean allowRequest(ThreadState threadState) {
+        return rateLimiter.allowRequest(population[zipfDistribution.sample(threadState.random)]);
+    }
+}
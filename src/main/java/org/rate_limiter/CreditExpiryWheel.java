@@ -0,0 +1,153 @@
+package org.rate_limiter;
+
+import org.rate_limiter.clock.TickSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_CREDIT_EXPIRY_TICK;
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_TICK_SOURCE;
+
+/**
+ * Hierarchical timing wheel shared by the {@link CreditLedger}s of many users, so purchases expire as time passes
+ * rather than when their owner next sends a request.
+ * <p>
+ * Each ledger keeps at most one live entry, for the purchase at the head of its queue; when it fires the ledger
+ * drops everything expired, debits its balance and schedules its next head. Four levels of 64 slots cover 64^4 ticks,
+ * about 194 days at the default one-second tick, and entries further out wait on the top level until they come
+ * into range. Expiry is rounded up to the next tick, so credits may outlive their validity by up to one tick until
+ * the ledger itself looks at them.
+ */
+public class CreditExpiryWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long SPAN_TICKS = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickNanos;
+    private final TickSource tickSource;
+    private final Expiry[] slots;
+    private long currentTick;
+    private int pendingExpiries;
+
+    public CreditExpiryWheel() {
+        this(DEFAULT_CREDIT_EXPIRY_TICK, DEFAULT_TICK_SOURCE);
+    }
+
+    public CreditExpiryWheel(Duration tick, TickSource tickSource) {
+        if (tick.toNanos() <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickNanos = tick.toNanos();
+        this.tickSource = tickSource;
+        this.slots = new Expiry[LEVELS * SLOTS];
+        this.currentTick = Math.floorDiv(tickSource.epochNanos(), tickNanos);
+    }
+
+    /**
+     * Arranges for {@link CreditLedger#expireDueCredits()} to be called once {@code expiryEpochNanos} has passed.
+     */
+    public synchronized void scheduleExpiry(CreditLedger creditLedger, long expiryEpochNanos) {
+        place(new Expiry(creditLedger, Math.ceilDiv(expiryEpochNanos, tickNanos)), currentTick + 1);
+        pendingExpiries++;
+    }
+
+    /**
+     * Moves the wheel up to the current time and expires the credits of every ledger that came due.
+     *
+     * @return the number of ledgers whose expiry fired
+     */
+    public int advance() {
+        List<CreditLedger> due = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = Math.floorDiv(tickSource.epochNanos(), tickNanos);
+            if (pendingExpiries == 0) {
+                currentTick = Math.max(currentTick, targetTick);
+            }
+            while (currentTick < targetTick) {
+                currentTick++;
+                cascade();
+                Expiry expiry = detach(0, currentTick);
+                while (expiry != null) {
+                    Expiry next = expiry.next;
+                    due.add(expiry.creditLedger);
+                    pendingExpiries--;
+                    expiry = next;
+                }
+            }
+        }
+        for (CreditLedger creditLedger : due) {
+            creditLedger.expireDueCredits();
+        }
+        return due.size();
+    }
+
+    public synchronized int pendingExpiries() {
+        return pendingExpiries;
+    }
+
+    /**
+     * Advances the wheel every {@code period} on {@code executor}.
+     */
+    public ScheduledFuture<?> schedule(ScheduledExecutorService executor, Duration period) {
+        return executor.scheduleWithFixedDelay(this::advance, period.toNanos(), period.toNanos(),
+                                               TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Re-places the entries of every higher level whose slot the wheel just entered, from the top down so an entry
+     * can fall through several levels within one tick.
+     */
+    private void cascade() {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                continue;
+            }
+            Expiry expiry = detach(level, currentTick);
+            while (expiry != null) {
+                Expiry next = expiry.next;
+                place(expiry, currentTick);
+                expiry = next;
+            }
+        }
+    }
+
+    private void place(Expiry expiry, long earliestTick) {
+        long tick = Math.clamp(expiry.expiryTick, earliestTick, currentTick + SPAN_TICKS - 1);
+        long delta = tick - currentTick;
+        int level = 0;
+        while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int index = slot(level, tick);
+        expiry.next = slots[index];
+        slots[index] = expiry;
+    }
+
+    private Expiry detach(int level, long tick) {
+        int index = slot(level, tick);
+        Expiry head = slots[index];
+        slots[index] = null;
+        return head;
+    }
+
+    private static int slot(int level, long tick) {
+        return level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    private static final class Expiry {
+        private final CreditLedger creditLedger;
+        private final long expiryTick;
+        private Expiry next;
+
+        private Expiry(CreditLedger creditLedger, long expiryTick) {
+            this.creditLedger = creditLedger;
+            this.expiryTick = expiryTick;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.rate_limiter;
+
+import org.rate_limiter.clock.TickSource;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.rate_limiter.configurations.CommonConfiguration.*;
+
+/**
+ * Running balance of a user's paid credit tokens. Purchases are queued in expiry order and consumed oldest first;
+ * a purchase that expires is only subtracted from the balance once it reaches the head of the queue. Every purchase
+ * shares {@code EXTRA_CREDITS_VALIDITY_DURATION}, so appending keeps the queue ordered without a heap.
+ * <p>
+ * With a {@link CreditExpiryWheel} the head purchase is also expired when its time comes, so an idle user's balance
+ * and queue shrink without waiting for the next request.
+ * <p>
+ * The balance is read without locking, which lets a user without credits be denied with a single volatile read.
+ */
+public class CreditLedger {
+    private final ArrayDeque<PaidCredit> paidCredits;
+    private final AtomicLong balance;
+    private final TickSource tickSource;
+    private final CreditExpiryWheel expiryWheel;
+    private long scheduledExpiryNanos;
+
+    public CreditLedger() {
+        this(DEFAULT_TICK_SOURCE);
+    }
+
+    public CreditLedger(TickSource tickSource) {
+        this(tickSource, null);
+    }
+
+    public CreditLedger(TickSource tickSource, CreditExpiryWheel expiryWheel) {
+        this.paidCredits = new ArrayDeque<>();
+        this.balance = new AtomicLong();
+        this.tickSource = tickSource;
+        this.expiryWheel = expiryWheel;
+        this.scheduledExpiryNanos = Long.MAX_VALUE;
+    }
+
+    public synchronized void addCredits(long extraCredits) {
+        long tokens = (long) (extraCredits * DEFAULT_TOKENS_PER_CREDIT);
+        if (tokens <= 0) {
+            return;
+        }
+        long expiry = tickSource.epochNanos() + EXTRA_CREDITS_VALIDITY_DURATION.toNanos();
+        paidCredits.addLast(new PaidCredit(new AtomicLong(tokens), expiry));
+        balance.addAndGet(tokens);
+        scheduleHeadExpiry();
+    }
+
+    public boolean mayCover(long tokens) {
+        return balance.get() >= tokens;
+    }
+
+    public boolean tryConsume(long tokens) {
+        if (balance.get() < tokens) {
+            return false;
+        }
+        synchronized (this) {
+            expireCredits(tickSource.epochNanos());
+            if (balance.get() < tokens) {
+                return false;
+            }
+            long remaining = tokens;
+            while (remaining > 0) {
+                PaidCredit head = paidCredits.peekFirst();
+                long taken = Math.min(remaining, head.remainingTokens()
+                                                     .get());
+                head.remainingTokens()
+                    .addAndGet(-taken);
+                remaining -= taken;
+                if (head.remainingTokens()
+                        .get() == 0) {
+                    paidCredits.pollFirst();
+                }
+            }
+            balance.addAndGet(-tokens);
+            return true;
+        }
+    }
+
+    public long availableTokens() {
+        if (balance.get() == 0) {
+            return 0;
+        }
+        synchronized (this) {
+            expireCredits(tickSource.epochNanos());
+            return balance.get();
+        }
+    }
+
+    /**
+     * Puts back purchases persisted by an earlier process with their original expiry. They expire before anything
+     * bought since, so they go ahead of the queue; the ones already expired are dropped.
+     */
+    public synchronized void restorePaidCredits(List<PaidCredit> restored) {
+        long now = tickSource.epochNanos();
+        for (int index = restored.size() - 1; index >= 0; index--) {
+            PaidCredit paidCredit = restored.get(index);
+            long tokens = paidCredit.remainingTokens()
+                                    .get();
+            if (tokens > 0 && paidCredit.expiryEpochNanos() > now) {
+                paidCredits.addFirst(new PaidCredit(new AtomicLong(tokens), paidCredit.expiryEpochNanos()));
+                balance.addAndGet(tokens);
+            }
+        }
+        scheduleHeadExpiry();
+    }
+
+    /**
+     * Called by the {@link CreditExpiryWheel} when the purchase it was scheduled for may have expired.
+     */
+    public synchronized void expireDueCredits() {
+        long now = tickSource.epochNanos();
+        expireCredits(now);
+        if (scheduledExpiryNanos <= now) {
+            scheduledExpiryNanos = Long.MAX_VALUE;
+        }
+        scheduleHeadExpiry();
+    }
+
+    public synchronized List<PaidCredit> getPaidCredits() {
+        return new ArrayList<>(paidCredits);
+    }
+
+    /**
+     * Keeps one wheel entry for the earliest expiry; an entry left behind by a consumed head fires without effect
+     * and schedules the new head.
+     */
+    private void scheduleHeadExpiry() {
+        PaidCredit head = paidCredits.peekFirst();
+        if (expiryWheel != null && head != null && head.expiryEpochNanos() < scheduledExpiryNanos) {
+            scheduledExpiryNanos = head.expiryEpochNanos();
+            expiryWheel.scheduleExpiry(this, scheduledExpiryNanos);
+        }
+    }
+
+    private void expireCredits(long now) {
+        PaidCredit head = paidCredits.peekFirst();
+        while (head != null && head.expiryEpochNanos() <= now) {
+            paidCredits.pollFirst();
+            balance.addAndGet(-head.remainingTokens()
+                                   .get());
+            head = paidCredits.peekFirst();
+        }
+    }
+}
@@ -1,33 +1,49 @@
 package org.rate_limiter;
 
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collections;
+import org.rate_limiter.clock.TickSource;
+
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_TICK_SOURCE;
 
 public class User {
 
     private final long id;
     private final SubscriptionType type;
 
-    private final List<PaidCredit> paidCredits;
+    private final CreditLedger creditLedger;
 
     public User(long id, SubscriptionType type) {
+        this(id, type, DEFAULT_TICK_SOURCE);
+    }
+
+    public User(long id, SubscriptionType type, TickSource tickSource) {
+        this(id, type, tickSource, null);
+    }
+
+    public User(long id, SubscriptionType type, TickSource tickSource, CreditExpiryWheel expiryWheel) {
         this.id = id;
         this.type = type;
-        this.paidCredits = Collections.synchronizedList(new ArrayList<>());
+        this.creditLedger = new CreditLedger(tickSource, expiryWheel);
     }
 
     public void addCredits(long extraCredits) {
-        this.paidCredits.add(new PaidCredit(new AtomicLong(extraCredits), LocalDateTime.now()));
+        this.creditLedger.addCredits(extraCredits);
+    }
+
+    public long getId() {
+        return id;
     }
 
     public SubscriptionType getType() {
         return type;
     }
 
+    public CreditLedger getCreditLedger() {
+        return creditLedger;
+    }
+
     public List<PaidCredit> getPaidCredits() {
-        return paidCredits;
+        return creditLedger.getPaidCredits();
     }
 }
@@ -0,0 +1,138 @@
+package org.rate_limiter.acquire;
+
+import org.rate_limiter.clock.TickSource;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_TICK_SOURCE;
+
+/**
+ * Single-threaded hashed timer wheel. Scheduling only appends to a lock-free queue; the worker thread moves new
+ * timeouts into their slot once per tick and runs the ones that are due, so any number of pending timeouts costs a
+ * single thread. Tasks run on the worker thread and must be short.
+ */
+public final class HashedTimerWheel implements AutoCloseable {
+    public static final String TIMER_WHEEL_CLOSED = "Timer wheel is closed";
+
+    private final TickSource tickSource;
+    private final long tickNanos;
+    private final List<ArrayDeque<Timeout>> wheel;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> scheduled;
+    private final long startNanos;
+    private final Thread worker;
+    private volatile boolean running;
+    private long tick;
+
+    public HashedTimerWheel(Duration tickDuration, int wheelSize) {
+        this(tickDuration, wheelSize, DEFAULT_TICK_SOURCE);
+    }
+
+    public HashedTimerWheel(Duration tickDuration, int wheelSize, TickSource tickSource) {
+        if (tickDuration.isNegative() || tickDuration.isZero() || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+        int slots = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.tickSource = tickSource;
+        this.tickNanos = tickDuration.toNanos();
+        this.wheel = new ArrayList<>(slots);
+        for (int slot = 0; slot < slots; slot++) {
+            wheel.add(new ArrayDeque<>());
+        }
+        this.mask = slots - 1;
+        this.scheduled = new ConcurrentLinkedQueue<>();
+        this.startNanos = tickSource.nanoTime();
+        this.running = true;
+        this.worker = Thread.ofPlatform()
+                            .daemon()
+                            .name("rate-limiter-timer-wheel")
+                            .start(this::run);
+    }
+
+    /**
+     * Returns false without scheduling anything once the wheel is closed, so the caller can fail whatever was
+     * waiting for the task instead of waiting forever.
+     */
+    public boolean schedule(long delayNanos, Runnable task) {
+        if (!running) {
+            return false;
+        }
+        Timeout timeout = new Timeout(tickSource.nanoTime() + Math.max(0, delayNanos), task);
+        scheduled.add(timeout);
+        return running || !scheduled.remove(timeout);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            waitUntil(deadline);
+            transferScheduled();
+            expire(wheel.get((int) (tick & mask)), deadline);
+            tick++;
+        }
+    }
+
+    private void waitUntil(long deadline) {
+        long remaining = deadline - tickSource.nanoTime();
+        while (running && remaining > 0) {
+            LockSupport.parkNanos(this, remaining);
+            remaining = deadline - tickSource.nanoTime();
+        }
+    }
+
+    private void transferScheduled() {
+        Timeout timeout = scheduled.poll();
+        while (timeout != null) {
+            long dueTick = Math.max(tick, (timeout.deadlineNanos - startNanos) / tickNanos);
+            timeout.remainingRounds = (dueTick - tick) / wheel.size();
+            wheel.get((int) (dueTick & mask))
+                 .add(timeout);
+            timeout = scheduled.poll();
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> slot, long deadline) {
+        Iterator<Timeout> timeouts = slot.iterator();
+        while (timeouts.hasNext()) {
+            Timeout timeout = timeouts.next();
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            } else if (timeout.deadlineNanos <= deadline) {
+                timeouts.remove();
+                runSafely(timeout.task);
+            }
+        }
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            worker.getUncaughtExceptionHandler()
+                  .uncaughtException(worker, e);
+        }
+    }
+
+    private static final class Timeout {
+        private final long deadlineNanos;
+        private final Runnable task;
+        private long remainingRounds;
+
+        private Timeout(long deadlineNanos, Runnable task) {
+            this.deadlineNanos = deadlineNanos;
+            this.task = task;
+        }
+    }
+}
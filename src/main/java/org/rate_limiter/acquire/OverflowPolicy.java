@@ -0,0 +1,15 @@
+package org.rate_limiter.acquire;
+
+/**
+ * What a {@link RateLimitedProcessor} does with a batch the rate limiter refuses.
+ */
+public enum OverflowPolicy {
+    /**
+     * Discards the batch and counts it in {@link RateLimitedProcessor#droppedItems()}.
+     */
+    DROP,
+    /**
+     * Keeps the batch and retries it once the limiter expects it to fit.
+     */
+    DELAY
+}
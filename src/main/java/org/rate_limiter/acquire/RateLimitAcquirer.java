@@ -0,0 +1,259 @@
+package org.rate_limiter.acquire;
+
+import org.rate_limiter.User;
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.store.ShardedBucketStore;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Waiting acquire modes on top of {@link RateLimiter#tryAcquire(User, long)}.
+ * <p>
+ * Waiters of the same user queue up in FIFO order and only the head of the queue asks the limiter for permits, so a
+ * late arrival can never take the tokens an earlier waiter is waiting for. A blocking head parks for exactly the wait
+ * the limiter reports; an asynchronous head is re-driven by a {@link HashedTimerWheel}, so pending futures do not
+ * hold threads. Blocking waits only use {@link LockSupport} and {@link ReentrantLock}, which keeps them cheap on
+ * virtual threads.
+ * <p>
+ * Waiting acquires ask the limiter through {@link RateLimiter#retryAcquire}, so each one is recorded as a single
+ * decision once it is admitted rather than as a denial per attempt.
+ */
+public class RateLimitAcquirer implements AutoCloseable {
+    public static final String PERMITS_EXCEED_CAPACITY = "Permits exceed the bucket capacity";
+    public static final String ACQUIRER_CLOSED = "Rate limit acquirer is closed";
+    private static final int WAIT_QUEUE_SHARDS = 16;
+
+    private final RateLimiter rateLimiter;
+    private final HashedTimerWheel timerWheel;
+    private final ShardedBucketStore<WaitQueue> waitQueues;
+    private volatile boolean closed;
+
+    public RateLimitAcquirer(RateLimiter rateLimiter) {
+        this(rateLimiter, new HashedTimerWheel(Duration.ofMillis(1), 512));
+    }
+
+    public RateLimitAcquirer(RateLimiter rateLimiter, HashedTimerWheel timerWheel) {
+        this.rateLimiter = rateLimiter;
+        this.timerWheel = timerWheel;
+        this.waitQueues = new ShardedBucketStore<>(WAIT_QUEUE_SHARDS, 0);
+    }
+
+    public long tryAcquire(User user, long permits) {
+        return rateLimiter.tryAcquire(user, permits);
+    }
+
+    public void acquire(User user, long permits) throws InterruptedException {
+        if (waitQueues.get(user.getId()) == null) {
+            long waitNanos = rateLimiter.retryAcquire(user, permits);
+            if (waitNanos == 0) {
+                return;
+            }
+            checkSatisfiable(waitNanos);
+        }
+        BlockingWaiter waiter = new BlockingWaiter(user, permits, Thread.currentThread());
+        enqueue(waiter);
+        try {
+            checkOpen();
+            while (!waiter.head) {
+                LockSupport.park(this);
+                checkInterrupted();
+                checkOpen();
+            }
+            long waitNanos = rateLimiter.retryAcquire(user, permits);
+            while (waitNanos != 0) {
+                checkSatisfiable(waitNanos);
+                LockSupport.parkNanos(this, waitNanos);
+                checkInterrupted();
+                checkOpen();
+                waitNanos = rateLimiter.retryAcquire(user, permits);
+            }
+        } finally {
+            drive(leave(waiter));
+        }
+    }
+
+    public CompletableFuture<Void> acquireAsync(User user, long permits) {
+        if (waitQueues.get(user.getId()) == null) {
+            long waitNanos = rateLimiter.retryAcquire(user, permits);
+            if (waitNanos == 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (waitNanos == Long.MAX_VALUE) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException(PERMITS_EXCEED_CAPACITY));
+            }
+        }
+        AsyncWaiter waiter = new AsyncWaiter(user, permits);
+        if (enqueue(waiter)) {
+            drive(waiter);
+        }
+        if (closed && waiter.future.completeExceptionally(new CancellationException(ACQUIRER_CLOSED))) {
+            drive(leave(waiter));
+        }
+        return waiter.future;
+    }
+
+    public int waitingUsers() {
+        return (int) waitQueues.size();
+    }
+
+    /**
+     * Closes the timer wheel and fails every pending waiter with a {@link CancellationException}: futures complete
+     * exceptionally and blocked threads throw it from {@link #acquire}. Later acquires that would have to wait fail
+     * the same way.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        timerWheel.close();
+        waitQueues.forEach(false, (id, waitQueue) -> {
+            List<Waiter> cancelled;
+            waitQueue.lock.lock();
+            try {
+                waitQueue.retired = true;
+                cancelled = List.copyOf(waitQueue.waiters);
+                waitQueue.waiters.clear();
+                waitQueues.remove(id, waitQueue);
+            } finally {
+                waitQueue.lock.unlock();
+            }
+            for (Waiter waiter : cancelled) {
+                if (waiter instanceof BlockingWaiter blockingWaiter) {
+                    LockSupport.unpark(blockingWaiter.thread);
+                } else {
+                    ((AsyncWaiter) waiter).future.completeExceptionally(new CancellationException(ACQUIRER_CLOSED));
+                }
+            }
+        });
+    }
+
+    /**
+     * Appends the waiter to its user's queue and returns true if it became the head, in which case the caller is
+     * responsible for driving it.
+     */
+    private boolean enqueue(Waiter waiter) {
+        long id = waiter.user.getId();
+        while (true) {
+            WaitQueue waitQueue = waitQueues.computeIfAbsent(id, key -> new WaitQueue());
+            waitQueue.lock.lock();
+            try {
+                if (!waitQueue.retired) {
+                    waitQueue.waiters.addLast(waiter);
+                    waiter.queue = waitQueue;
+                    waiter.head = waitQueue.waiters.size() == 1;
+                    return waiter.head;
+                }
+            } finally {
+                waitQueue.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes the waiter and returns the next waiter if the removed one was the head, so the caller can hand over.
+     */
+    private Waiter leave(Waiter waiter) {
+        WaitQueue waitQueue = waiter.queue;
+        waitQueue.lock.lock();
+        try {
+            boolean wasHead = waitQueue.waiters.peekFirst() == waiter;
+            waitQueue.waiters.remove(waiter);
+            Waiter next = waitQueue.waiters.peekFirst();
+            if (next == null) {
+                waitQueue.retired = true;
+                waitQueues.remove(waiter.user.getId(), waitQueue);
+                return null;
+            }
+            if (!wasHead) {
+                return null;
+            }
+            next.head = true;
+            return next;
+        } finally {
+            waitQueue.lock.unlock();
+        }
+    }
+
+    private void drive(Waiter waiter) {
+        Waiter current = waiter;
+        while (current != null) {
+            if (current instanceof BlockingWaiter blockingWaiter) {
+                LockSupport.unpark(blockingWaiter.thread);
+                return;
+            }
+            AsyncWaiter asyncWaiter = (AsyncWaiter) current;
+            if (!asyncWaiter.future.isDone()) {
+                long waitNanos = rateLimiter.retryAcquire(asyncWaiter.user, asyncWaiter.permits);
+                if (waitNanos == Long.MAX_VALUE) {
+                    asyncWaiter.future.completeExceptionally(new IllegalArgumentException(PERMITS_EXCEED_CAPACITY));
+                } else if (waitNanos != 0) {
+                    if (timerWheel.schedule(waitNanos, () -> drive(asyncWaiter))) {
+                        return;
+                    }
+                    asyncWaiter.future.completeExceptionally(
+                            new CancellationException(HashedTimerWheel.TIMER_WHEEL_CLOSED));
+                }
+            }
+            current = leave(asyncWaiter);
+            asyncWaiter.future.complete(null);
+        }
+    }
+
+    private static void checkSatisfiable(long waitNanos) {
+        if (waitNanos == Long.MAX_VALUE) {
+            throw new IllegalArgumentException(PERMITS_EXCEED_CAPACITY);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new CancellationException(ACQUIRER_CLOSED);
+        }
+    }
+
+    private static void checkInterrupted() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    private static final class WaitQueue {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private boolean retired;
+    }
+
+    private abstract static class Waiter {
+        final User user;
+        final long permits;
+        WaitQueue queue;
+        volatile boolean head;
+
+        private Waiter(User user, long permits) {
+            this.user = user;
+            this.permits = permits;
+        }
+    }
+
+    private static final class BlockingWaiter extends Waiter {
+        private final Thread thread;
+
+        private BlockingWaiter(User user, long permits, Thread thread) {
+            super(user, permits);
+            this.thread = thread;
+        }
+    }
+
+    private static final class AsyncWaiter extends Waiter {
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private AsyncWaiter(User user, long permits) {
+            super(user, permits);
+        }
+    }
+}
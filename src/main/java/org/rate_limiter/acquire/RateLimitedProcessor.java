@@ -0,0 +1,314 @@
+package org.rate_limiter.acquire;
+
+import org.rate_limiter.RateParams;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.clock.TickSource;
+
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_TICK_SOURCE;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.currentSnapshot;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.rateParamsFor;
+
+/**
+ * {@link Flow.Processor} passing items on at the rate a {@link RateLimiter} admits them for one {@link User}.
+ * <p>
+ * Upstream demand follows the user's {@code RateParams.rateRequest()}: one request for what a fresh bucket holds,
+ * then one batch per refill interval of a batch, and never more than the bounded buffer has room for, so a fast
+ * publisher is held back instead of buffered. Buffered items are admitted {@code batchSize} at a time with a single
+ * {@link RateLimiter#tryAcquire} and emitted back to back as downstream demand allows. A batch the limiter refuses,
+ * e.g. because other callers of the same user took the tokens, is handled by the {@link OverflowPolicy}. Under
+ * {@link OverflowPolicy#DELAY}, a batch the limiter can never admit, because its effective limit is below the
+ * capacity as with sliding windows or a smaller hierarchical parent, is halved until it fits, and only a single item
+ * that can never fit is dropped.
+ * <p>
+ * Signals are serialized with a work-in-progress counter, so downstream is called from whichever thread drives the
+ * processor: the publisher's, the one calling {@code request}, or the {@link HashedTimerWheel} worker, which must not
+ * be blocked. Completion and errors from upstream reach downstream after the buffered items.
+ */
+public class RateLimitedProcessor<T> implements Flow.Processor<T, T> {
+    private static final int DEFAULT_BUFFER_ITEMS = 256;
+
+    private final RateLimiter rateLimiter;
+    private final User user;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final int bufferCapacity;
+    private final HashedTimerWheel timerWheel;
+    private final TickSource tickSource;
+    private final ConcurrentLinkedQueue<T> buffer;
+    private final AtomicInteger buffered;
+    private final AtomicLong downstreamDemand;
+    private final AtomicLong upstreamOutstanding;
+    private final AtomicInteger workInProgress;
+    private final AtomicReference<Flow.Subscriber<? super T>> downstream;
+    private final LongAdder droppedItems;
+    private volatile Flow.Subscription upstream;
+    private volatile boolean upstreamDone;
+    private volatile Throwable error;
+    private volatile Throwable requestError;
+    private volatile boolean cancelled;
+    private volatile boolean emissionDelayed;
+    private volatile boolean upstreamRequestDelayed;
+    // Only touched while draining
+    private boolean burstRequested;
+    private RateParams admissibleBatchParams;
+    private int admissibleBatch;
+    private long nextUpstreamRequestNanos;
+    private boolean terminated;
+
+    public RateLimitedProcessor(RateLimiter rateLimiter, User user, int batchSize, OverflowPolicy overflowPolicy,
+                                HashedTimerWheel timerWheel) {
+        this(rateLimiter, user, batchSize, overflowPolicy, Math.max(batchSize, DEFAULT_BUFFER_ITEMS), timerWheel,
+             DEFAULT_TICK_SOURCE);
+    }
+
+    public RateLimitedProcessor(RateLimiter rateLimiter, User user, int batchSize, OverflowPolicy overflowPolicy,
+                                int bufferCapacity, HashedTimerWheel timerWheel, TickSource tickSource) {
+        if (batchSize <= 0 || bufferCapacity < batchSize) {
+            throw new IllegalArgumentException("Batch size must be positive and fit in the buffer");
+        }
+        this.rateLimiter = rateLimiter;
+        this.user = user;
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.bufferCapacity = bufferCapacity;
+        this.timerWheel = timerWheel;
+        this.tickSource = tickSource;
+        this.buffer = new ConcurrentLinkedQueue<>();
+        this.buffered = new AtomicInteger();
+        this.downstreamDemand = new AtomicLong();
+        this.upstreamOutstanding = new AtomicLong();
+        this.workInProgress = new AtomicInteger();
+        this.downstream = new AtomicReference<>();
+        this.droppedItems = new LongAdder();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        if (!downstream.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Rate limited processor supports a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    requestError = new IllegalArgumentException("Requested items must be positive");
+                    cancelUpstream();
+                } else {
+                    downstreamDemand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE
+                            : current + added);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                cancelUpstream();
+                drain();
+            }
+        });
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(T item) {
+        Objects.requireNonNull(item);
+        upstreamOutstanding.decrementAndGet();
+        buffer.add(item);
+        buffered.incrementAndGet();
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = Objects.requireNonNull(throwable);
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+    public long droppedItems() {
+        return droppedItems.sum();
+    }
+
+    private void drain() {
+        if (workInProgress.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            drainOnce();
+            missed = workInProgress.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void drainOnce() {
+        Flow.Subscriber<? super T> subscriber = downstream.get();
+        if (terminated || subscriber == null) {
+            return;
+        }
+        if (cancelled) {
+            terminate();
+            return;
+        }
+        if (requestError != null) {
+            terminate();
+            subscriber.onError(requestError);
+            return;
+        }
+        RateParams rateParams = rateParamsFor(user, currentSnapshot());
+        if (!rateParams.equals(admissibleBatchParams)) {
+            admissibleBatchParams = rateParams;
+            admissibleBatch = batchSize;
+        }
+        while (!emissionDelayed && buffered.get() > 0) {
+            long demand = downstreamDemand.get();
+            if (demand == 0) {
+                break;
+            }
+            int batch = (int) Math.min(Math.min(admissibleBatch, buffered.get()),
+                                       Math.min(demand, rateParams.capacity()));
+            long waitNanos = rateLimiter.tryAcquire(user, batch);
+            if (waitNanos == 0) {
+                for (int item = 0; item < batch; item++) {
+                    subscriber.onNext(poll());
+                }
+                if (demand != Long.MAX_VALUE) {
+                    downstreamDemand.addAndGet(-batch);
+                }
+            } else if (overflowPolicy == OverflowPolicy.DELAY && waitNanos == Long.MAX_VALUE && batch > 1) {
+                admissibleBatch = batch / 2;
+            } else if (overflowPolicy == OverflowPolicy.DROP || waitNanos == Long.MAX_VALUE) {
+                for (int item = 0; item < batch; item++) {
+                    poll();
+                }
+                droppedItems.add(batch);
+            } else {
+                emissionDelayed = true;
+                if (!timerWheel.schedule(waitNanos, () -> {
+                    emissionDelayed = false;
+                    drain();
+                })) {
+                    emissionDelayed = false;
+                    failOnClosedTimerWheel();
+                    return;
+                }
+            }
+            if (cancelled) {
+                terminate();
+                return;
+            }
+        }
+        if (upstreamDone && buffered.get() == 0) {
+            terminate();
+            if (error != null) {
+                subscriber.onError(error);
+            } else {
+                subscriber.onComplete();
+            }
+            return;
+        }
+        requestUpstream(rateParams);
+    }
+
+    /**
+     * Asks upstream for what a fresh bucket holds the first time, then for a batch whenever the limiter has had
+     * time to refill the previous request, within the room left in the buffer.
+     */
+    private void requestUpstream(RateParams rateParams) {
+        Flow.Subscription subscription = upstream;
+        long room = bufferCapacity - buffered.get() - upstreamOutstanding.get();
+        if (subscription == null || upstreamDone || upstreamRequestDelayed || room <= 0) {
+            return;
+        }
+        long fillRate = rateParams.rateRequest()
+                                  .count();
+        long now = tickSource.nanoTime();
+        long requested;
+        if (!burstRequested) {
+            burstRequested = true;
+            requested = Math.min(room, Math.min(rateParams.capacity(), fillRate));
+        } else if (now - nextUpstreamRequestNanos < 0) {
+            upstreamRequestDelayed = true;
+            if (!timerWheel.schedule(nextUpstreamRequestNanos - now, () -> {
+                upstreamRequestDelayed = false;
+                drain();
+            })) {
+                upstreamRequestDelayed = false;
+                failOnClosedTimerWheel();
+            }
+            return;
+        } else {
+            requested = Math.min(room, batchSize);
+        }
+        long periodNanos = rateParams.rateRequest()
+                                     .timeUnit()
+                                     .toNanos(1);
+        nextUpstreamRequestNanos = now + Math.ceilDiv(requested * periodNanos, fillRate);
+        upstreamOutstanding.addAndGet(requested);
+        subscription.request(requested);
+    }
+
+    private T poll() {
+        buffered.decrementAndGet();
+        return buffer.poll();
+    }
+
+    /**
+     * Fails downstream on the next drain pass, since nothing would wake the processor up to wait for tokens.
+     */
+    private void failOnClosedTimerWheel() {
+        requestError = new CancellationException(HashedTimerWheel.TIMER_WHEEL_CLOSED);
+        cancelUpstream();
+        drain();
+    }
+
+    private void terminate() {
+        terminated = true;
+        buffer.clear();
+        buffered.set(0);
+    }
+
+    private void cancelUpstream() {
+        Flow.Subscription subscription = upstream;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.rate_limiter.algo;
+
+/**
+ * Outcome of one admission decision of an {@link AdmissionBucket}.
+ */
+public enum Admission {
+    DENIED,
+    /**
+     * Admitted from the bucket's own tokens.
+     */
+    TOKENS,
+    /**
+     * Admitted with paid credits covering what the bucket could not.
+     */
+    CREDITS;
+
+    public boolean allowed() {
+        return this != DENIED;
+    }
+}
@@ -0,0 +1,32 @@
+package org.rate_limiter.algo;
+
+import java.util.Arrays;
+
+public final class AdmissionBitmap {
+    private AdmissionBitmap() {
+    }
+
+    public static long[] forRequests(int requests) {
+        return new long[words(requests)];
+    }
+
+    public static boolean isAllowed(long[] bitmap, int index) {
+        return (bitmap[index >>> 6] & (1L << index)) != 0;
+    }
+
+    static void reset(long[] bitmap, int requests) {
+        if (bitmap.length < words(requests)) {
+            throw new IllegalArgumentException("Bitmap of " + bitmap.length + " words cannot hold " + requests
+                                                       + " results");
+        }
+        Arrays.fill(bitmap, 0, words(requests), 0L);
+    }
+
+    static void allow(long[] bitmap, int index) {
+        bitmap[index >>> 6] |= 1L << index;
+    }
+
+    private static int words(int requests) {
+        return (requests + Long.SIZE - 1) >>> 6;
+    }
+}
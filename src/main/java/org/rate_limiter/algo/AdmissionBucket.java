@@ -0,0 +1,60 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.configurations.SubscriptionSnapshot;
+import org.rate_limiter.store.Evictable;
+
+/**
+ * Per-user admission state of one {@link Algorithm}, kept in the bucket store of a {@link BucketRateLimiter}. Paid
+ * credits cover whatever the bucket itself cannot admit.
+ */
+public interface AdmissionBucket extends Evictable {
+    /**
+     * Admits a request costing {@code permits} units, taking them from the bucket and paid credits together, or takes
+     * nothing and returns {@link Admission#DENIED}.
+     */
+    Admission admit(long permits, long nowNanos);
+
+    default boolean allowRequests(long permits, long nowNanos) {
+        return admit(permits, nowNanos).allowed();
+    }
+
+    /**
+     * Estimated nanoseconds until the bucket can admit {@code permits} ({@link Long#MAX_VALUE} if it never can).
+     */
+    long nanosUntilAvailable(long permits, long nowNanos);
+
+    /**
+     * Admits like {@link #allowRequests(long, long)} and returns 0, or returns the nanoseconds until the bucket can
+     * admit {@code permits} ({@link Long#MAX_VALUE} if it never can).
+     */
+    default long tryAcquire(long permits, long nowNanos) {
+        if (admit(permits, nowNanos).allowed()) {
+            return 0;
+        }
+        return Math.max(1, nanosUntilAvailable(permits, nowNanos));
+    }
+
+    long availableTokens();
+
+    CreditLedger creditLedger();
+
+    /**
+     * Overwrites the bucket's state so it holds {@code tokens}, capped at its capacity, as of {@code nowNanos}. Used
+     * to warm a new bucket from persisted state; racing requests may be decided against either state.
+     */
+    void restoreTokens(long tokens, long nowNanos);
+
+    /**
+     * Version of the {@link SubscriptionSnapshot} the bucket's limits come from; 0 until the bucket is stamped.
+     */
+    long configVersion();
+
+    /**
+     * Switches the bucket to {@code rateParams} from snapshot {@code configVersion}, rescaling what it holds so the
+     * user keeps the same share of the new limit. Versions that are not newer than the bucket's are ignored, and
+     * params the engines cannot run keep the current limits instead of failing the request that noticed them.
+     */
+    void reconfigure(RateParams rateParams, long configVersion);
+}
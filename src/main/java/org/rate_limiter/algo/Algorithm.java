@@ -0,0 +1,46 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.clock.TickSource;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public enum Algorithm {
+    TOKEN_BUCKET {
+        @Override
+        public AdmissionBucket newBucket(RateParams rateParams, CreditLedger creditLedger, TickSource tickSource) {
+            return new TokenBucket(rateParams, creditLedger, tickSource);
+        }
+    },
+    SLIDING_WINDOW_COUNTER {
+        @Override
+        public AdmissionBucket newBucket(RateParams rateParams, CreditLedger creditLedger, TickSource tickSource) {
+            return new SlidingWindowCounter(rateParams, creditLedger, tickSource);
+        }
+    },
+    SLIDING_WINDOW_LOG {
+        @Override
+        public AdmissionBucket newBucket(RateParams rateParams, CreditLedger creditLedger, TickSource tickSource) {
+            return new SlidingWindowLog(rateParams, creditLedger, tickSource);
+        }
+    },
+    GCRA {
+        @Override
+        public AdmissionBucket newBucket(RateParams rateParams, CreditLedger creditLedger, TickSource tickSource) {
+            return new GcraBucket(rateParams, creditLedger, tickSource);
+        }
+    };
+
+    public abstract AdmissionBucket newBucket(RateParams rateParams, CreditLedger creditLedger, TickSource tickSource);
+
+    public Map<SubscriptionType, Algorithm> forEverySubscription() {
+        Map<SubscriptionType, Algorithm> algorithms = new EnumMap<>(SubscriptionType.class);
+        for (SubscriptionType subscriptionType : SubscriptionType.values()) {
+            algorithms.put(subscriptionType, this);
+        }
+        return algorithms;
+    }
+}
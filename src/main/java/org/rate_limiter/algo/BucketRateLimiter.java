@@ -0,0 +1,314 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.RateParams;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.clock.TickSource;
+import org.rate_limiter.configurations.SubscriptionSnapshot;
+import org.rate_limiter.metrics.RateLimiterMetrics;
+import org.rate_limiter.persistence.LimiterStateSnapshotter;
+import org.rate_limiter.persistence.RestoredLimiterState;
+import org.rate_limiter.store.BucketEvictor;
+import org.rate_limiter.store.EvictionMetrics;
+import org.rate_limiter.store.EvictionPolicy;
+import org.rate_limiter.store.RemovalListener;
+import org.rate_limiter.store.ShardFootprint;
+import org.rate_limiter.store.ShardedBucketStore;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.rate_limiter.configurations.CommonConfiguration.*;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.configVersionFor;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.currentSnapshot;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.rateParamsFor;
+
+/**
+ * Rate limiter keeping one {@link AdmissionBucket} per user in a {@link ShardedBucketStore}, bounded as a whole by
+ * the {@link EvictionPolicy}. The {@link Algorithm} of a user's bucket is chosen by subscription type; types missing
+ * from the map use {@link Algorithm#TOKEN_BUCKET}. Resident buckets are counted per subscription type when they are
+ * created and dropped, so reading the count costs nothing on the request path.
+ * <p>
+ * When the store is full, a new bucket takes the place of one back at full capacity if there is one near the clock
+ * hand, else of the least recently used one. Dropping a bucket that still holds state forgets it, so that user may
+ * be admitted up to a fresh bucket's allowance beyond the limit; keep {@link EvictionPolicy#maxResidentBuckets()}
+ * above the active user count to avoid it. Requests racing with an eviction retry on the user's new bucket,
+ * unless paid credits already funded them.
+ * <p>
+ * Every request compares the bucket's config version with the user's version in the current
+ * {@link SubscriptionSnapshot}, so updated rate params and per-user overrides reach existing buckets on their next
+ * request without any lock on the read path.
+ * <p>
+ * Decisions are recorded in {@link RateLimiterMetrics} when the limiter is built with them; without metrics the
+ * request path does not read the clock for latency at all.
+ * <p>
+ * With a {@link StripingPolicy}, a {@link TokenBucket} whose admissions keep failing their CAS is promoted in place
+ * to a {@link StripedTokenBucket} holding the same tokens.
+ * <p>
+ * State persisted by a {@link LimiterStateSnapshotter} is restored lazily: after {@link #restoreFrom}, a user's
+ * bucket starts from its persisted state when it is first created.
+ */
+public class BucketRateLimiter implements RateLimiter {
+    private final Map<SubscriptionType, Algorithm> subscriptionTypeAlgorithmMap;
+    private final ShardedBucketStore<ResidentBucket> userBuckets;
+    private final BucketEvictor<ResidentBucket> bucketEvictor;
+    private final LongAdder[] residentBuckets;
+    private final TickSource tickSource;
+    private final RateLimiterMetrics metrics;
+    private final StripingPolicy stripingPolicy;
+    private final LongAdder stripedPromotions;
+    private volatile RestoredLimiterState restoredState;
+
+    public BucketRateLimiter(Map<SubscriptionType, Algorithm> algorithms) {
+        this(algorithms, DEFAULT_TICK_SOURCE);
+    }
+
+    public BucketRateLimiter(Map<SubscriptionType, Algorithm> algorithms, TickSource tickSource) {
+        this(algorithms, DEFAULT_BUCKET_STORE_SHARDS, DEFAULT_EVICTION_POLICY, tickSource);
+    }
+
+    public BucketRateLimiter(Map<SubscriptionType, Algorithm> algorithms, int shardCount,
+                             EvictionPolicy evictionPolicy, TickSource tickSource) {
+        this(algorithms, shardCount, evictionPolicy, tickSource, null);
+    }
+
+    public BucketRateLimiter(Map<SubscriptionType, Algorithm> algorithms, int shardCount,
+                             EvictionPolicy evictionPolicy, TickSource tickSource, RateLimiterMetrics metrics) {
+        this(algorithms, shardCount, evictionPolicy, tickSource, metrics, null);
+    }
+
+    /**
+     * Without a {@code stripingPolicy}, hot keys are never promoted to {@link StripedTokenBucket}s.
+     */
+    public BucketRateLimiter(Map<SubscriptionType, Algorithm> algorithms, int shardCount,
+                             EvictionPolicy evictionPolicy, TickSource tickSource, RateLimiterMetrics metrics,
+                             StripingPolicy stripingPolicy) {
+        this.subscriptionTypeAlgorithmMap = new EnumMap<>(Algorithm.TOKEN_BUCKET.forEverySubscription());
+        subscriptionTypeAlgorithmMap.putAll(algorithms);
+        LongAdder[] residents = new LongAdder[SubscriptionType.values().length];
+        for (int subscription = 0; subscription < residents.length; subscription++) {
+            residents[subscription] = new LongAdder();
+        }
+        this.residentBuckets = residents;
+        this.userBuckets = new ShardedBucketStore<>(shardCount, DEFAULT_EXPECTED_USERS,
+                                                    evictionPolicy.maxResidentBuckets(), new ResidentRemoval());
+        this.bucketEvictor = new BucketEvictor<>(userBuckets, evictionPolicy, tickSource);
+        this.tickSource = tickSource;
+        this.metrics = metrics;
+        this.stripingPolicy = stripingPolicy;
+        this.stripedPromotions = new LongAdder();
+        if (metrics != null) {
+            metrics.trackActiveBuckets(subscriptionType -> residents[subscriptionType.ordinal()].sum());
+        }
+    }
+
+    @Override
+    public boolean allowRequest(User user) {
+        return allowRequests(user, 1);
+    }
+
+    @Override
+    public boolean allowRequests(User user, long permits) {
+        long startNanos = metrics == null ? 0 : System.nanoTime();
+        Admission admission;
+        ResidentBucket resident;
+        do {
+            resident = residentFor(user);
+            admission = resident.bucket()
+                                .admit(permits, tickSource.nanoTime());
+        } while (lostToEviction(resident, admission));
+        if (metrics != null) {
+            metrics.recordDecision(user, admission, System.nanoTime() - startNanos);
+        }
+        bucketEvictor.onRequest();
+        return admission.allowed();
+    }
+
+    @Override
+    public long tryAcquire(User user, long permits) {
+        return tryAcquire(user, permits, true);
+    }
+
+    @Override
+    public long retryAcquire(User user, long permits) {
+        return tryAcquire(user, permits, false);
+    }
+
+    private long tryAcquire(User user, long permits, boolean recordDenial) {
+        long startNanos = metrics == null ? 0 : System.nanoTime();
+        long now = tickSource.nanoTime();
+        Admission admission;
+        ResidentBucket resident;
+        do {
+            resident = residentFor(user);
+            admission = resident.bucket()
+                                .admit(permits, now);
+        } while (lostToEviction(resident, admission));
+        if (metrics != null && (recordDenial || admission.allowed())) {
+            metrics.recordDecision(user, admission, System.nanoTime() - startNanos);
+        }
+        bucketEvictor.onRequest();
+        return admission.allowed() ? 0 : Math.max(1, resident.bucket()
+                                                             .nanosUntilAvailable(permits, now));
+    }
+
+    @Override
+    public void allowRequests(User[] users, long[] allowedBitmap) {
+        AdmissionBitmap.reset(allowedBitmap, users.length);
+        long now = tickSource.nanoTime();
+        for (int index = 0; index < users.length; index++) {
+            long startNanos = metrics == null ? 0 : System.nanoTime();
+            Admission admission;
+            ResidentBucket resident;
+            do {
+                resident = residentFor(users[index]);
+                admission = resident.bucket()
+                                    .admit(1, now);
+            } while (lostToEviction(resident, admission));
+            if (metrics != null) {
+                metrics.recordDecision(users[index], admission, System.nanoTime() - startNanos);
+            }
+            if (admission.allowed()) {
+                AdmissionBitmap.allow(allowedBitmap, index);
+            }
+        }
+        bucketEvictor.onRequest();
+    }
+
+    public Algorithm algorithmFor(SubscriptionType subscriptionType) {
+        return subscriptionTypeAlgorithmMap.get(subscriptionType);
+    }
+
+    public RateLimiterMetrics metrics() {
+        return metrics;
+    }
+
+    public long residentBuckets(SubscriptionType subscriptionType) {
+        return residentBuckets[subscriptionType.ordinal()].sum();
+    }
+
+    /**
+     * Looks the user's entry up, creating it if needed. An entry evicted after the lookup is retired, so callers
+     * admit against its bucket and look the user up again if it turns out retired.
+     */
+    private ResidentBucket residentFor(User user) {
+        SubscriptionSnapshot snapshot = currentSnapshot();
+        ResidentBucket resident = userBuckets.get(user.getId());
+        if (resident == null) {
+            resident = userBuckets.computeIfAbsent(user.getId(), id -> newBucket(user, snapshot));
+        }
+        AdmissionBucket bucket = resident.bucket();
+        long configVersion = configVersionFor(user, snapshot);
+        if (bucket.configVersion() < configVersion) {
+            bucket.reconfigure(rateParamsFor(user, snapshot), configVersion);
+        }
+        if (stripingPolicy != null && bucket instanceof TokenBucket tokenBucket
+                && tokenBucket.contention() >= stripingPolicy.contentionThreshold()) {
+            return promote(user, resident, tokenBucket, snapshot);
+        }
+        return resident;
+    }
+
+    /**
+     * Moves the tokens of a contended bucket into a {@link StripedTokenBucket} that replaces it in the store. The old
+     * entry is retired, so requests still holding it find the drained bucket retired and retry on the striped one.
+     */
+    private ResidentBucket promote(User user, ResidentBucket resident, TokenBucket hot, SubscriptionSnapshot snapshot) {
+        synchronized (hot) {
+            ResidentBucket current = userBuckets.get(user.getId());
+            if (current != resident) {
+                return current != null ? current : resident;
+            }
+            RateParams rateParams = rateParamsFor(user, snapshot);
+            long now = tickSource.nanoTime();
+            long tokens = hot.drainTokens(now);
+            StripedTokenBucket striped = new StripedTokenBucket(rateParams, hot.creditLedger(), tickSource,
+                                                                stripingPolicy.stripes(), tokens);
+            striped.reconfigure(rateParams, hot.configVersion());
+            ResidentBucket promoted = new ResidentBucket(striped, resident.residents());
+            if (!userBuckets.replace(user.getId(), resident, promoted)) {
+                hot.returnTokens(tokens);
+                return resident;
+            }
+            resident.retire();
+            stripedPromotions.increment();
+            return promoted;
+        }
+    }
+
+    /**
+     * Whether an admission went to an entry the store has dropped and must be retried on the user's new bucket. Paid
+     * credits are charged to the user's ledger rather than the bucket, so a credit-funded admission stands.
+     */
+    private static boolean lostToEviction(ResidentBucket resident, Admission admission) {
+        return admission != Admission.CREDITS && resident.isRetired();
+    }
+
+    public long stripedPromotions() {
+        return stripedPromotions.sum();
+    }
+
+    private ResidentBucket newBucket(User user, SubscriptionSnapshot snapshot) {
+        if (metrics != null) {
+            metrics.recordBucketCreation(user.getType());
+        }
+        RateParams rateParams = rateParamsFor(user, snapshot);
+        AdmissionBucket bucket = subscriptionTypeAlgorithmMap.get(user.getType())
+                                                             .newBucket(rateParams, user.getCreditLedger(), tickSource);
+        RestoredLimiterState restored = restoredState;
+        if (restored != null) {
+            restored.restore(user.getId(), bucket, rateParams);
+        }
+        LongAdder residents = residentBuckets[user.getType()
+                                                  .ordinal()];
+        residents.increment();
+        return new ResidentBucket(bucket, residents);
+    }
+
+    public void restoreFrom(RestoredLimiterState restoredState) {
+        this.restoredState = restoredState;
+    }
+
+    public RestoredLimiterState restoredState() {
+        return restoredState;
+    }
+
+    /**
+     * Visits the resident buckets without locking, optionally only those the store marked dirty since the previous
+     * visit.
+     */
+    public void forEachBucket(boolean dirtyOnly, ShardedBucketStore.EntryVisitor<? super AdmissionBucket> visitor) {
+        userBuckets.forEach(dirtyOnly, (id, resident) -> visitor.visit(id, resident.bucket()));
+    }
+
+    public BucketEvictor<?> bucketEvictor() {
+        return bucketEvictor;
+    }
+
+    public EvictionMetrics evictionMetrics() {
+        return bucketEvictor.metrics();
+    }
+
+    public List<ShardFootprint> memoryFootprint() {
+        return userBuckets.memoryFootprint();
+    }
+
+    /**
+     * Retires every entry the store drops and lets eviction to make room prefer buckets back at full capacity.
+     */
+    private final class ResidentRemoval implements RemovalListener<ResidentBucket> {
+        @Override
+        public void onRemoval(long id, ResidentBucket resident) {
+            resident.retire();
+            resident.residents()
+                    .decrement();
+        }
+
+        @Override
+        public boolean tryRetire(ResidentBucket resident) {
+            return resident.retireIfEvictable(tickSource.nanoTime(), 0);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.clock.TickSource;
+import org.rate_limiter.exceptions.InvalidRateParams;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_TICK_SOURCE;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.RATE_PARAMS_FIELDS_ARE_INVALID;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.isSupported;
+
+/**
+ * Generic cell rate algorithm: the whole state is the theoretical arrival time (TAT) at which the bucket would be
+ * full again, kept in a plain {@code long} field and updated with one CAS.
+ * <p>
+ * A token is emitted every {@code timeUnit / count} (the emission interval, rounded up to a nanosecond) and the burst
+ * tolerance is {@code capacity} emission intervals, so the tokens available at {@code now} are
+ * {@code (burstTolerance - max(0, tat - now)) / emissionInterval}, exactly what a {@link TokenBucket} with the same
+ * {@link RateParams} would hold. A new bucket starts with the same {@code min(capacity, count)} tokens. Each bucket
+ * derives its intervals itself, which is a division and a multiplication, so per-user overrides leave nothing behind
+ * in a global cache.
+ */
+public class GcraBucket implements AdmissionBucket {
+    private static final VarHandle THEORETICAL_ARRIVAL;
+
+    static {
+        try {
+            THEORETICAL_ARRIVAL = MethodHandles.lookup()
+                                               .findVarHandle(GcraBucket.class, "theoreticalArrivalNanos", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final CreditLedger creditLedger;
+    private final TickSource tickSource;
+    private volatile Limits limits;
+    private volatile long theoreticalArrivalNanos;
+    private volatile long configVersion;
+
+    public GcraBucket(RateParams rateParams, CreditLedger creditLedger) {
+        this(rateParams, creditLedger, DEFAULT_TICK_SOURCE);
+    }
+
+    public GcraBucket(RateParams rateParams, CreditLedger creditLedger, TickSource tickSource) {
+        this.limits = deriveLimits(rateParams);
+        this.creditLedger = creditLedger;
+        this.tickSource = tickSource;
+        long initialTokens = Math.min(rateParams.capacity(), rateParams.rateRequest()
+                                                                       .count());
+        this.theoreticalArrivalNanos = tickSource.nanoTime() + limits.burstToleranceNanos()
+                - initialTokens * limits.emissionIntervalNanos();
+    }
+
+    @Override
+    public Admission admit(long permits, long nowNanos) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException(TokenBucket.PERMITS_MUST_BE_POSITIVE);
+        }
+        Limits current = limits;
+        long takenTokens = takeTokens(current, permits, nowNanos);
+        if (takenTokens == permits) {
+            return Admission.TOKENS;
+        }
+        if (takenTokens >= 0 && creditLedger.tryConsume(permits - takenTokens)) {
+            return Admission.CREDITS;
+        }
+        returnTokens(current, takenTokens);
+        return Admission.DENIED;
+    }
+
+    @Override
+    public long nanosUntilAvailable(long permits, long nowNanos) {
+        Limits current = limits;
+        if (permits > current.capacity()) {
+            return Long.MAX_VALUE;
+        }
+        long arrival = Math.max(theoreticalArrivalNanos - nowNanos, 0);
+        return Math.max(1, arrival + permits * current.emissionIntervalNanos() - current.burstToleranceNanos());
+    }
+
+    @Override
+    public long availableTokens() {
+        return tokensAt(limits, theoreticalArrivalNanos, tickSource.nanoTime());
+    }
+
+    @Override
+    public CreditLedger creditLedger() {
+        return creditLedger;
+    }
+
+    @Override
+    public void restoreTokens(long tokens, long nowNanos) {
+        Limits current = limits;
+        theoreticalArrivalNanos = nowNanos + current.burstToleranceNanos()
+                - Math.clamp(tokens, 0, current.capacity()) * current.emissionIntervalNanos();
+    }
+
+    @Override
+    public long configVersion() {
+        return configVersion;
+    }
+
+    @Override
+    public synchronized void reconfigure(RateParams rateParams, long newConfigVersion) {
+        if (newConfigVersion <= configVersion) {
+            return;
+        }
+        Limits oldLimits = limits;
+        Limits newLimits = isSupported(rateParams) ? deriveLimits(rateParams) : oldLimits;
+        if (!newLimits.equals(oldLimits)) {
+            long now = tickSource.nanoTime();
+            while (true) {
+                long current = theoreticalArrivalNanos;
+                long scaled = tokensAt(oldLimits, current, now) * newLimits.capacity() / oldLimits.capacity();
+                long rescaled = now + newLimits.burstToleranceNanos() - scaled * newLimits.emissionIntervalNanos();
+                if (THEORETICAL_ARRIVAL.compareAndSet(this, current, rescaled)) {
+                    break;
+                }
+            }
+            limits = newLimits;
+        }
+        configVersion = newConfigVersion;
+    }
+
+    @Override
+    public boolean isEvictable(long nowNanos, long idleNanos) {
+        return nowNanos - theoreticalArrivalNanos >= idleNanos;
+    }
+
+    /**
+     * Takes all {@code permits} if the bucket holds them, otherwise every remaining token as long as the paid credits
+     * may cover the rest. Returns the number of tokens taken, or -1 when the request cannot be satisfied at all.
+     */
+    private long takeTokens(Limits limits, long permits, long nowNanos) {
+        while (true) {
+            long current = theoreticalArrivalNanos;
+            long taken = Math.min(tokensAt(limits, current, nowNanos), permits);
+            if (taken < permits && !creditLedger.mayCover(permits - taken)) {
+                return -1;
+            }
+            // A bucket that is full again restarts from now, like a token bucket that stops refilling at capacity
+            long start = current - nowNanos > 0 ? current : nowNanos;
+            if (taken == 0 || THEORETICAL_ARRIVAL.compareAndSet(this, current,
+                                                                start + taken * limits.emissionIntervalNanos())) {
+                return taken;
+            }
+        }
+    }
+
+    private void returnTokens(Limits limits, long tokens) {
+        if (tokens > 0) {
+            THEORETICAL_ARRIVAL.getAndAdd(this, -tokens * limits.emissionIntervalNanos());
+        }
+    }
+
+    private static long tokensAt(Limits limits, long theoreticalArrival, long nowNanos) {
+        long arrival = Math.max(theoreticalArrival - nowNanos, 0);
+        // A caller that sampled the clock before a racing request may see less than nothing left
+        return Math.max(0, (limits.burstToleranceNanos() - arrival) / limits.emissionIntervalNanos());
+    }
+
+    private static Limits deriveLimits(RateParams rateParams) {
+        long periodNanos = rateParams.rateRequest()
+                                     .timeUnit()
+                                     .toNanos(1);
+        long fillRate = rateParams.rateRequest()
+                                  .count();
+        if (rateParams.capacity() <= 0 || fillRate <= 0) {
+            throw new InvalidRateParams(RATE_PARAMS_FIELDS_ARE_INVALID);
+        }
+        long emissionIntervalNanos = Math.ceilDiv(periodNanos, fillRate);
+        try {
+            return new Limits(rateParams.capacity(), emissionIntervalNanos,
+                              Math.multiplyExact(rateParams.capacity(), emissionIntervalNanos));
+        } catch (ArithmeticException e) {
+            throw new InvalidRateParams(RATE_PARAMS_FIELDS_ARE_INVALID);
+        }
+    }
+
+    private record Limits(long capacity, long emissionIntervalNanos, long burstToleranceNanos) {
+    }
+}
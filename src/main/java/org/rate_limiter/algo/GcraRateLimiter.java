@@ -0,0 +1,21 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.clock.TickSource;
+import org.rate_limiter.store.EvictionPolicy;
+
+import static org.rate_limiter.configurations.CommonConfiguration.*;
+
+public class GcraRateLimiter extends BucketRateLimiter {
+
+    public GcraRateLimiter() {
+        this(DEFAULT_TICK_SOURCE);
+    }
+
+    public GcraRateLimiter(TickSource tickSource) {
+        this(DEFAULT_BUCKET_STORE_SHARDS, DEFAULT_EVICTION_POLICY, tickSource);
+    }
+
+    public GcraRateLimiter(int shardCount, EvictionPolicy evictionPolicy, TickSource tickSource) {
+        super(Algorithm.GCRA.forEverySubscription(), shardCount, evictionPolicy, tickSource);
+    }
+}
@@ -0,0 +1,165 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.User;
+import org.rate_limiter.clock.TickSource;
+import org.rate_limiter.store.BucketEvictor;
+import org.rate_limiter.store.EvictionPolicy;
+import org.rate_limiter.store.ShardedBucketStore;
+
+import java.util.List;
+
+import static org.rate_limiter.configurations.CommonConfiguration.*;
+
+/**
+ * Rate limiter that admits a request only if every parent {@link RateLimitLevel} and the user's own limiter admit it.
+ * <p>
+ * Parent buckets are taken from the outermost level inwards with a single CAS each, then the user's limiter is asked.
+ * When any of them refuses, the tokens already taken from the outer levels are given back with one more CAS per
+ * level. No lock is held across levels, so requests of different users sharing a parent can never deadlock; a
+ * concurrent request may at worst see a parent briefly short of the tokens that are about to be given back. Paid
+ * credits are only used at the user level.
+ */
+public class HierarchicalRateLimiter implements RateLimiter {
+    private final RateLimiter userRateLimiter;
+    private final Level[] levels;
+    private final TickSource tickSource;
+
+    public HierarchicalRateLimiter(RateLimiter userRateLimiter, List<RateLimitLevel> parents) {
+        this(userRateLimiter, parents, DEFAULT_EVICTION_POLICY, DEFAULT_TICK_SOURCE);
+    }
+
+    public HierarchicalRateLimiter(RateLimiter userRateLimiter, List<RateLimitLevel> parents, TickSource tickSource) {
+        this(userRateLimiter, parents, DEFAULT_EVICTION_POLICY, tickSource);
+    }
+
+    public HierarchicalRateLimiter(RateLimiter userRateLimiter, List<RateLimitLevel> parents,
+                                   EvictionPolicy evictionPolicy, TickSource tickSource) {
+        CreditLedger noCredits = new CreditLedger(tickSource);
+        this.userRateLimiter = userRateLimiter;
+        this.levels = new Level[parents.size()];
+        for (int index = 0; index < levels.length; index++) {
+            levels[index] = new Level(parents.get(index), noCredits, evictionPolicy, tickSource);
+        }
+        this.tickSource = tickSource;
+    }
+
+    @Override
+    public boolean allowRequest(User user) {
+        return allowRequests(user, 1);
+    }
+
+    @Override
+    public boolean allowRequests(User user, long permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException(TokenBucket.PERMITS_MUST_BE_POSITIVE);
+        }
+        long now = tickSource.nanoTime();
+        int refused = takeFromParents(user, permits, now);
+        if (refused >= 0) {
+            returnToParents(user, permits, refused);
+            return false;
+        }
+        if (userRateLimiter.allowRequests(user, permits)) {
+            return true;
+        }
+        returnToParents(user, permits, levels.length);
+        return false;
+    }
+
+    @Override
+    public long tryAcquire(User user, long permits) {
+        return tryAcquire(user, permits, false);
+    }
+
+    @Override
+    public long retryAcquire(User user, long permits) {
+        return tryAcquire(user, permits, true);
+    }
+
+    private long tryAcquire(User user, long permits, boolean retry) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException(TokenBucket.PERMITS_MUST_BE_POSITIVE);
+        }
+        long now = tickSource.nanoTime();
+        int refused = takeFromParents(user, permits, now);
+        if (refused >= 0) {
+            returnToParents(user, permits, refused);
+            return Math.max(1, levels[refused].bucketFor(user)
+                                              .nanosUntilAvailable(permits, now));
+        }
+        long waitNanos = retry ? userRateLimiter.retryAcquire(user, permits)
+                               : userRateLimiter.tryAcquire(user, permits);
+        if (waitNanos != 0) {
+            returnToParents(user, permits, levels.length);
+        }
+        return waitNanos;
+    }
+
+    public long availableTokens(User user, String levelName) {
+        for (Level level : levels) {
+            if (level.parent.name()
+                            .equals(levelName)) {
+                return level.bucketFor(user)
+                            .availableTokens();
+            }
+        }
+        throw new IllegalArgumentException("Unknown rate limit level " + levelName);
+    }
+
+    /**
+     * Returns the index of the level that refused, or -1 if every level handed over {@code permits} tokens.
+     */
+    private int takeFromParents(User user, long permits, long now) {
+        for (int index = 0; index < levels.length; index++) {
+            Level level = levels[index];
+            if (level.bucketFor(user)
+                     .leaseTokens(permits, permits, now) == 0) {
+                return index;
+            }
+            level.evictor.onRequest();
+        }
+        return -1;
+    }
+
+    private void returnToParents(User user, long permits, int takenLevels) {
+        for (int index = 0; index < takenLevels; index++) {
+            levels[index].bucketFor(user)
+                         .returnTokens(permits);
+        }
+    }
+
+    private static final class Level {
+        private final RateLimitLevel parent;
+        private final CreditLedger noCredits;
+        private final TickSource tickSource;
+        private final ShardedBucketStore<TokenBucket> buckets;
+        private final BucketEvictor<TokenBucket> evictor;
+
+        private Level(RateLimitLevel parent, CreditLedger noCredits, EvictionPolicy evictionPolicy,
+                      TickSource tickSource) {
+            if (parent.rateParams() == null || parent.keyOf() == null) {
+                throw new IllegalArgumentException("Rate limit level fields are invalid");
+            }
+            // Rejects invalid rate params up front instead of on the first request
+            PackedTokenState.refillPeriodTicks(parent.rateParams());
+            this.parent = parent;
+            this.noCredits = noCredits;
+            this.tickSource = tickSource;
+            this.buckets = new ShardedBucketStore<>(DEFAULT_BUCKET_STORE_SHARDS, 0,
+                                                    evictionPolicy.maxResidentBuckets());
+            this.evictor = new BucketEvictor<>(buckets, evictionPolicy, tickSource);
+        }
+
+        private TokenBucket bucketFor(User user) {
+            long key = parent.keyOf()
+                             .applyAsLong(user);
+            TokenBucket bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = buckets.computeIfAbsent(key, id -> new TokenBucket(parent.rateParams(), noCredits,
+                                                                            tickSource));
+            }
+            return bucket;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.RateParams;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.clock.TickSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.rate_limiter.algo.PackedTokenState.*;
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_TICK_SOURCE;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.currentSnapshot;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.rateParamsFor;
+
+/**
+ * Rate limiter that keeps one fixed-size record per user in a memory-mapped file instead of a {@link TokenBucket}
+ * object per user. Records are indexed directly by {@link User#getId()} and updated with {@link VarHandle} CAS.
+ * <p>
+ * User ids must be dense, in {@code [0, maxUsers)}: the file reserves a record for every id in that range whether
+ * the user exists or not, so sparse ids such as hashes or keys with large gaps must be mapped to a dense range first.
+ * <p>
+ * Record layout ({@value #RECORD_BYTES} bytes): the packed token state of {@link PackedTokenState}, eight reserved
+ * bytes, and the subscription ordinal plus one (zero marks a record that was never touched). Refill times are
+ * measured from a wall-clock epoch stored in the file header, so state carries across a process restart and the
+ * downtime counts as refill time. Paid credits are not persisted: they stay in each user's
+ * {@link org.rate_limiter.CreditLedger} on the heap.
+ * <p>
+ * Rate params, per-user overrides included, are read from the current subscription snapshot on every operation.
+ * Records have no room for a config version, so after a reload stored tokens are clamped to the new capacity on
+ * their next refill rather than rescaled.
+ */
+public class OffHeapRateLimiter implements RateLimiter, AutoCloseable {
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+                                                                                  ByteOrder.nativeOrder());
+    private static final long MAGIC = 0x52_4C_41_52_45_4E_41_31L;
+    private static final int HEADER_BYTES = 4096;
+    private static final int RECORD_BYTES = 32;
+    private static final int STATE_OFFSET = 0;
+    private static final int SUBSCRIPTION_OFFSET = 16;
+    private static final int RECORDS_PER_CHUNK_SHIFT = 25;
+    private static final long RECORDS_PER_CHUNK_MASK = (1L << RECORDS_PER_CHUNK_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] chunks;
+    private final long maxUsers;
+    private final TickSource tickSource;
+    private final long openTicks;
+    private final long openNanos;
+
+    public OffHeapRateLimiter(Path arenaFile, long maxUsers) {
+        this(arenaFile, maxUsers, DEFAULT_TICK_SOURCE);
+    }
+
+    public OffHeapRateLimiter(Path arenaFile, long maxUsers, TickSource tickSource) {
+        if (maxUsers <= 0) {
+            throw new IllegalArgumentException("Max users must be positive");
+        }
+        this.maxUsers = maxUsers;
+        this.tickSource = tickSource;
+        try {
+            this.channel = FileChannel.open(arenaFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                            StandardOpenOption.WRITE);
+            this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            long epochMicros = readOrWriteHeader();
+            this.openNanos = tickSource.nanoTime();
+            this.openTicks = currentEpochMicros() - epochMicros;
+            this.chunks = mapChunks();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean allowRequest(User user) {
+        return allowRequests(user, 1, nowTicks());
+    }
+
+    @Override
+    public boolean allowRequests(User user, long permits) {
+        return allowRequests(user, permits, nowTicks());
+    }
+
+    @Override
+    public long tryAcquire(User user, long permits) {
+        long now = nowTicks();
+        if (allowRequests(user, permits, now)) {
+            return 0;
+        }
+        RateParams rateParams = rateParamsFor(user, currentSnapshot());
+        if (permits > rateParams.capacity()) {
+            return Long.MAX_VALUE;
+        }
+        MappedByteBuffer chunk = chunkFor(user.getId());
+        long current = (long) LONGS.getVolatile(chunk, recordOffset(user.getId()) + STATE_OFFSET);
+        long periodTicks = PackedTokenState.refillPeriodTicks(rateParams);
+        long refilled = PackedTokenState.refill(current, now, rateParams.capacity(),
+                                                rateParams.rateRequest().count(), periodTicks);
+        return waitNanos(permits - tokens(refilled), Math.max(0, elapsedTicks(ticks(refilled), now)),
+                         rateParams.rateRequest().count(), periodTicks);
+    }
+
+    @Override
+    public void allowRequests(User[] users, long[] allowedBitmap) {
+        AdmissionBitmap.reset(allowedBitmap, users.length);
+        long now = nowTicks();
+        for (int index = 0; index < users.length; index++) {
+            if (allowRequests(users[index], 1, now)) {
+                AdmissionBitmap.allow(allowedBitmap, index);
+            }
+        }
+    }
+
+    public long availableTokens(User user) {
+        RateParams rateParams = rateParamsFor(user, currentSnapshot());
+        MappedByteBuffer chunk = chunkFor(user.getId());
+        int offset = recordOffset(user.getId());
+        if ((long) LONGS.getAcquire(chunk, offset + SUBSCRIPTION_OFFSET) == 0) {
+            return Math.min(rateParams.capacity(), rateParams.rateRequest()
+                                                             .count());
+        }
+        long current = (long) LONGS.getVolatile(chunk, offset + STATE_OFFSET);
+        long periodTicks = PackedTokenState.refillPeriodTicks(rateParams);
+        return tokens(PackedTokenState.refill(current, nowTicks(), rateParams.capacity(),
+                                              rateParams.rateRequest().count(), periodTicks));
+    }
+
+    public void flush() {
+        header.force();
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void initializeIfAbsent(MappedByteBuffer chunk, int offset, SubscriptionType subscriptionType,
+                                    RateParams rateParams, long now) {
+        long subscription = subscriptionType.ordinal() + 1L;
+        if ((long) LONGS.getAcquire(chunk, offset + SUBSCRIPTION_OFFSET) == subscription) {
+            return;
+        }
+        long initialTokens = Math.min(rateParams.capacity(), rateParams.rateRequest()
+                                                                       .count());
+        // Only the first thread to touch the record moves it off the all-zero state
+        LONGS.compareAndSet(chunk, offset + STATE_OFFSET, 0L, pack(initialTokens, now));
+        LONGS.setRelease(chunk, offset + SUBSCRIPTION_OFFSET, subscription);
+    }
+
+    private boolean allowRequests(User user, long permits, long now) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException(TokenBucket.PERMITS_MUST_BE_POSITIVE);
+        }
+        RateParams rateParams = rateParamsFor(user, currentSnapshot());
+        MappedByteBuffer chunk = chunkFor(user.getId());
+        int offset = recordOffset(user.getId());
+        long periodTicks = PackedTokenState.refillPeriodTicks(rateParams);
+        initializeIfAbsent(chunk, offset, user.getType(), rateParams, now);
+        long takenTokens = takeTokens(chunk, offset, user, permits, rateParams, periodTicks, now);
+        if (takenTokens == permits) {
+            return true;
+        }
+        if (takenTokens >= 0 && user.getCreditLedger()
+                                    .tryConsume(permits - takenTokens)) {
+            return true;
+        }
+        returnTokens(chunk, offset, rateParams, takenTokens);
+        return false;
+    }
+
+    private static long takeTokens(MappedByteBuffer chunk, int offset, User user, long permits, RateParams rateParams,
+                                   long periodTicks, long now) {
+        long capacity = rateParams.capacity();
+        long fillRate = rateParams.rateRequest()
+                                  .count();
+        while (true) {
+            long current = (long) LONGS.getVolatile(chunk, offset + STATE_OFFSET);
+            long refilled = PackedTokenState.refill(current, now, capacity, fillRate, periodTicks);
+            long tokens = tokens(refilled);
+            long taken = Math.min(tokens, permits);
+            if (taken < permits && !user.getCreditLedger()
+                                        .mayCover(permits - taken)) {
+                return -1;
+            }
+            if (taken == 0 || LONGS.compareAndSet(chunk, offset + STATE_OFFSET, current,
+                                                  pack(tokens - taken, ticks(refilled)))) {
+                return taken;
+            }
+        }
+    }
+
+    private static void returnTokens(MappedByteBuffer chunk, int offset, RateParams rateParams, long tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        while (true) {
+            long current = (long) LONGS.getVolatile(chunk, offset + STATE_OFFSET);
+            long returned = pack(Math.min(rateParams.capacity(), tokens(current) + tokens), ticks(current));
+            if (LONGS.compareAndSet(chunk, offset + STATE_OFFSET, current, returned)) {
+                return;
+            }
+        }
+    }
+
+    private MappedByteBuffer chunkFor(long id) {
+        if (id < 0 || id >= maxUsers) {
+            throw new IllegalArgumentException("User id " + id + " is outside the arena of " + maxUsers + " users");
+        }
+        return chunks[(int) (id >>> RECORDS_PER_CHUNK_SHIFT)];
+    }
+
+    private static int recordOffset(long id) {
+        return (int) (id & RECORDS_PER_CHUNK_MASK) * RECORD_BYTES;
+    }
+
+    private long nowTicks() {
+        return (openTicks + (tickSource.nanoTime() - openNanos) / 1_000L) & TICK_MASK;
+    }
+
+    private long readOrWriteHeader() {
+        if (header.getLong(0) == MAGIC) {
+            if (header.getLong(8) != RECORD_BYTES || header.getLong(16) != maxUsers) {
+                throw new IllegalArgumentException("Arena file layout does not match " + maxUsers + " users");
+            }
+            return header.getLong(24);
+        }
+        long epochMicros = currentEpochMicros();
+        header.putLong(8, RECORD_BYTES);
+        header.putLong(16, maxUsers);
+        header.putLong(24, epochMicros);
+        header.putLong(0, MAGIC);
+        header.force();
+        return epochMicros;
+    }
+
+    private MappedByteBuffer[] mapChunks() throws IOException {
+        int chunkCount = (int) ((maxUsers + RECORDS_PER_CHUNK_MASK) >>> RECORDS_PER_CHUNK_SHIFT);
+        MappedByteBuffer[] mapped = new MappedByteBuffer[chunkCount];
+        for (int index = 0; index < chunkCount; index++) {
+            long firstRecord = (long) index << RECORDS_PER_CHUNK_SHIFT;
+            long records = Math.min(maxUsers - firstRecord, 1L << RECORDS_PER_CHUNK_SHIFT);
+            mapped[index] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + firstRecord * RECORD_BYTES,
+                                        records * RECORD_BYTES);
+        }
+        return mapped;
+    }
+
+    private long currentEpochMicros() {
+        return tickSource.epochNanos() / 1_000L;
+    }
+}
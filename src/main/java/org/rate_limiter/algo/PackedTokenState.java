@@ -0,0 +1,103 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.RateParams;
+import org.rate_limiter.exceptions.InvalidRateParams;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.rate_limiter.configurations.SubscriptionConfiguration.RATE_PARAMS_FIELDS_ARE_INVALID;
+
+/**
+ * Packs a bucket's token count and its last refill time into a single {@code long} so that refill and consume can
+ * be published with one CAS.
+ * <p>
+ * Layout: the upper {@value #TOKEN_BITS} bits hold the tokens, the lower {@value #TICK_BITS} bits hold the refill
+ * time in microseconds relative to the bucket epoch. Tick arithmetic is modular: a caller up to
+ * {@link #MAX_STALE_TICKS} behind the stored refill time sampled the clock before a racing refill and gets no
+ * tokens, any other gap is elapsed time. The tick range wraps after about 50 days, so an idle gap just short of a
+ * multiple of it may refill less than it should, but never more.
+ * <p>
+ * The token field caps a bucket at {@link #MAX_TOKENS} (about 4M) tokens, which is
+ * {@link org.rate_limiter.configurations.CommonConfiguration#MAX_BUCKET_CAPACITY}; larger capacities are rejected
+ * when the rate params are published rather than when a bucket is built.
+ */
+final class PackedTokenState {
+    static final int TOKEN_BITS = 22;
+    static final int TICK_BITS = Long.SIZE - TOKEN_BITS;
+    static final long MAX_TOKENS = (1L << TOKEN_BITS) - 1;
+    static final long TICK_MASK = (1L << TICK_BITS) - 1;
+    static final long MAX_STALE_TICKS = TimeUnit.MINUTES.toMicros(1);
+
+    private PackedTokenState() {
+    }
+
+    static long pack(long tokens, long ticks) {
+        return (tokens << TICK_BITS) | (ticks & TICK_MASK);
+    }
+
+    static long tokens(long state) {
+        return state >>> TICK_BITS;
+    }
+
+    static long ticks(long state) {
+        return state & TICK_MASK;
+    }
+
+    /**
+     * Ticks from {@code lastTicks} to {@code nowTicks}, or -1 when {@code nowTicks} is a stale sample taken before
+     * a racing thread moved the refill time past it.
+     */
+    static long elapsedTicks(long lastTicks, long nowTicks) {
+        long elapsed = (nowTicks - lastTicks) & TICK_MASK;
+        return elapsed > TICK_MASK - MAX_STALE_TICKS ? -1 : elapsed;
+    }
+
+    static long toTicks(long elapsedNanos) {
+        return (elapsedNanos / 1_000L) & TICK_MASK;
+    }
+
+    static long refillPeriodTicks(RateParams rateParams) {
+        long periodTicks = rateParams.rateRequest()
+                                     .timeUnit()
+                                     .toMicros(1);
+        if (periodTicks <= 0 || rateParams.capacity() > MAX_TOKENS) {
+            throw new InvalidRateParams(RATE_PARAMS_FIELDS_ARE_INVALID);
+        }
+        return periodTicks;
+    }
+
+    /**
+     * Nanoseconds until {@code missingTokens} more tokens are refilled, given the ticks already elapsed since the
+     * last refill. Never returns zero, which callers reserve for an admitted request; a racing refill that already
+     * covers the missing tokens yields the shortest possible wait.
+     */
+    static long waitNanos(long missingTokens, long elapsedTicks, long fillRate, long periodTicks) {
+        if (missingTokens <= 0) {
+            return 1;
+        }
+        long waitTicks = Math.ceilDiv(missingTokens * periodTicks, fillRate) - elapsedTicks;
+        return Math.max(1, waitTicks) * 1_000L;
+    }
+
+    /**
+     * Returns the state after crediting the tokens earned between the stored refill time and {@code nowTicks}. The
+     * refill time only advances by the time actually converted into tokens, so partial progress is kept.
+     */
+    static long refill(long state, long nowTicks, long capacity, long fillRate, long periodTicks) {
+        long lastTicks = ticks(state);
+        long elapsed = elapsedTicks(lastTicks, nowTicks);
+        if (elapsed < 0) {
+            return state;
+        }
+        long tokens = tokens(state);
+        long missing = capacity - tokens;
+        if (missing <= 0 || elapsed >= Math.ceilDiv(missing * periodTicks, fillRate)) {
+            return pack(capacity, nowTicks);
+        }
+        long tokensToAdd = elapsed * fillRate / periodTicks;
+        if (tokensToAdd == 0) {
+            return state;
+        }
+        return pack(tokens + tokensToAdd, lastTicks + Math.ceilDiv(tokensToAdd * periodTicks, fillRate));
+    }
+}
@@ -0,0 +1,14 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.RateParams;
+import org.rate_limiter.User;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * A parent level of a {@link HierarchicalRateLimiter}. Users mapped to the same key by {@code keyOf} share one bucket
+ * with {@code rateParams}, e.g. {@code user -> tenantOf(user)} for a tenant quota or {@code user -> 0} for a global
+ * endpoint quota.
+ */
+public record RateLimitLevel(String name, RateParams rateParams, ToLongFunction<User> keyOf) {
+}
@@ -4,4 +4,37 @@ import org.rate_limiter.User;
 
 public interface RateLimiter {
     boolean allowRequest(User user);
+
+    /**
+     * Admits a request costing {@code permits} units, taking them from the user's tokens and paid credits together,
+     * or takes nothing and returns false.
+     */
+    boolean allowRequests(User user, long permits);
+
+    /**
+     * Admits the request like {@link #allowRequests(User, long)} and returns 0, or takes nothing and returns the
+     * nanoseconds until the user's bucket will hold {@code permits} tokens ({@link Long#MAX_VALUE} if it never can).
+     */
+    long tryAcquire(User user, long permits);
+
+    /**
+     * Same as {@link #tryAcquire(User, long)} for a caller that keeps retrying until admitted, such as a waiting
+     * acquire. Limiters keeping metrics only record the attempt that admits, so a request that waited counts once.
+     */
+    default long retryAcquire(User user, long permits) {
+        return tryAcquire(user, permits);
+    }
+
+    /**
+     * Checks one request for each user and sets bit {@code i} of {@code allowedBitmap} when {@code users[i]} is
+     * admitted. See {@link AdmissionBitmap} for sizing and reading the result.
+     */
+    default void allowRequests(User[] users, long[] allowedBitmap) {
+        AdmissionBitmap.reset(allowedBitmap, users.length);
+        for (int index = 0; index < users.length; index++) {
+            if (allowRequest(users[index])) {
+                AdmissionBitmap.allow(allowedBitmap, index);
+            }
+        }
+    }
 }
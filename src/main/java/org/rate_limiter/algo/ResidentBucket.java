@@ -0,0 +1,69 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.store.Evictable;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Entry of a {@link BucketRateLimiter} store: the user's bucket together with the resident bucket count of the
+ * user's subscription type, which the limiter bumps when it creates the entry and drops when the store removes it.
+ * <p>
+ * An entry is retired before the store drops it. A request that took tokens from a retired entry, or was denied by
+ * it, looks the user up again, so an admission racing with eviction is never lost with the dropped bucket. The
+ * evictor announces the retirement before checking the bucket and a request admits before checking the retirement,
+ * both through volatile accesses, so either the evictor sees the admission and keeps the bucket or the request sees
+ * the retirement.
+ */
+final class ResidentBucket implements Evictable {
+    private static final int ACTIVE = 0;
+    private static final int RETIRING = 1;
+    private static final int RETIRED = 2;
+
+    private final AdmissionBucket bucket;
+    private final LongAdder residents;
+    private volatile int retirement;
+
+    ResidentBucket(AdmissionBucket bucket, LongAdder residents) {
+        this.bucket = bucket;
+        this.residents = residents;
+    }
+
+    AdmissionBucket bucket() {
+        return bucket;
+    }
+
+    LongAdder residents() {
+        return residents;
+    }
+
+    @Override
+    public boolean isEvictable(long nowNanos, long idleNanos) {
+        return bucket.isEvictable(nowNanos, idleNanos);
+    }
+
+    @Override
+    public boolean retireIfEvictable(long nowNanos, long idleNanos) {
+        retirement = RETIRING;
+        boolean evictable = bucket.isEvictable(nowNanos, idleNanos);
+        retirement = evictable ? RETIRED : ACTIVE;
+        return evictable;
+    }
+
+    /**
+     * Retires the entry whatever its state, when the store evicts it to make room.
+     */
+    void retire() {
+        retirement = RETIRED;
+    }
+
+    /**
+     * Waits out an eviction check in progress, which takes no longer than one {@link #isEvictable} call.
+     */
+    boolean isRetired() {
+        int state;
+        while ((state = retirement) == RETIRING) {
+            Thread.onSpinWait();
+        }
+        return state == RETIRED;
+    }
+}
@@ -0,0 +1,38 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.RateParams;
+import org.rate_limiter.exceptions.InvalidRateParams;
+
+import static org.rate_limiter.configurations.CommonConfiguration.MAX_WINDOW_LIMIT;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.RATE_PARAMS_FIELDS_ARE_INVALID;
+
+/**
+ * Window sizing shared by the sliding window algorithms. A window spans one {@code rateRequest().timeUnit()} and
+ * admits {@code rateRequest().count()} requests, capped by the capacity, so a user never bursts above the configured
+ * rate the way a full token bucket can.
+ */
+final class SlidingWindow {
+    static final long MAX_LIMIT = MAX_WINDOW_LIMIT;
+
+    private SlidingWindow() {
+    }
+
+    static long windowMicros(RateParams rateParams) {
+        long windowMicros = rateParams.rateRequest()
+                                      .timeUnit()
+                                      .toMicros(1);
+        if (windowMicros <= 0) {
+            throw new InvalidRateParams(RATE_PARAMS_FIELDS_ARE_INVALID);
+        }
+        return windowMicros;
+    }
+
+    static long limit(RateParams rateParams) {
+        long limit = Math.min(rateParams.capacity(), rateParams.rateRequest()
+                                                               .count());
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new InvalidRateParams(RATE_PARAMS_FIELDS_ARE_INVALID);
+        }
+        return limit;
+    }
+}
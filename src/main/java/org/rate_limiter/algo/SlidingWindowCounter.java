@@ -0,0 +1,276 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.clock.TickSource;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_TICK_SOURCE;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.isSupported;
+
+/**
+ * Sliding window approximated by two fixed windows: the requests of the previous window are weighted by the share
+ * of it that still overlaps the sliding window ending now. State is one {@code long} updated with a CAS.
+ * <p>
+ * Layout: the upper {@value #WINDOW_BITS} bits hold the index of the current window since the bucket epoch, followed
+ * by the previous and the current window's counts of {@value #COUNT_BITS} bits each. Window arithmetic is modular
+ * like {@link PackedTokenState}: a sample up to a minute behind the stored window comes from a thread that read the
+ * clock before a racing update and leaves the state alone, any other gap is elapsed windows. An idle gap just short
+ * of a multiple of the window range may count as that stale sample until the clock moves past it, which denies
+ * rather than admits too much.
+ */
+public class SlidingWindowCounter implements AdmissionBucket {
+    private static final int COUNT_BITS = 20;
+    private static final int WINDOW_BITS = Long.SIZE - 2 * COUNT_BITS;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+    private static final long MAX_ELAPSED_WINDOWS = WINDOW_MASK >>> 1;
+    private static final long MAX_STALE_MICROS = PackedTokenState.MAX_STALE_TICKS;
+
+    private final AtomicLong state;
+    private final CreditLedger creditLedger;
+    private final TickSource tickSource;
+    private final long epochNanos;
+    private volatile RateParams rateParams;
+    private volatile long configVersion;
+
+    public SlidingWindowCounter(RateParams rateParams, CreditLedger creditLedger) {
+        this(rateParams, creditLedger, DEFAULT_TICK_SOURCE);
+    }
+
+    public SlidingWindowCounter(RateParams rateParams, CreditLedger creditLedger, TickSource tickSource) {
+        SlidingWindow.limit(rateParams);
+        SlidingWindow.windowMicros(rateParams);
+        this.rateParams = rateParams;
+        this.creditLedger = creditLedger;
+        this.tickSource = tickSource;
+        this.epochNanos = tickSource.nanoTime();
+        this.state = new AtomicLong(pack(0, 0, 0));
+    }
+
+    @Override
+    public Admission admit(long permits, long nowNanos) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException(TokenBucket.PERMITS_MUST_BE_POSITIVE);
+        }
+        RateParams params = rateParams;
+        long limit = SlidingWindow.limit(params);
+        long windowMicros = SlidingWindow.windowMicros(params);
+        long nowMicros = elapsedMicros(nowNanos);
+        long takenTokens = takeTokens(limit, windowMicros, permits, nowMicros);
+        if (takenTokens == permits) {
+            return Admission.TOKENS;
+        }
+        if (takenTokens >= 0 && creditLedger.tryConsume(permits - takenTokens)) {
+            return Admission.CREDITS;
+        }
+        returnTokens(takenTokens, nowMicros / windowMicros);
+        return Admission.DENIED;
+    }
+
+    @Override
+    public long nanosUntilAvailable(long permits, long nowNanos) {
+        RateParams params = rateParams;
+        long limit = SlidingWindow.limit(params);
+        long windowMicros = SlidingWindow.windowMicros(params);
+        if (permits > limit) {
+            return Long.MAX_VALUE;
+        }
+        long nowMicros = elapsedMicros(nowNanos);
+        long window = nowMicros / windowMicros;
+        long rolled = roll(state.get(), window, windowMicros);
+        long offset = offsetIn(rolled, window, nowMicros, windowMicros);
+        long previous = previous(rolled);
+        long current = current(rolled);
+        long waitMicros;
+        if (current + permits <= limit) {
+            // the previous window has to fade until its weighted count fits next to the current one
+            long room = limit - permits - current;
+            waitMicros = previous == 0 ? 0 : windowMicros - room * windowMicros / previous - offset;
+        } else {
+            // the current window becomes the previous one and has to fade in turn
+            long room = limit - permits;
+            waitMicros = windowMicros - offset + windowMicros - room * windowMicros / current;
+        }
+        return Math.max(1, waitMicros) * 1_000L;
+    }
+
+    @Override
+    public long availableTokens() {
+        RateParams params = rateParams;
+        long windowMicros = SlidingWindow.windowMicros(params);
+        long nowMicros = elapsedMicros(tickSource.nanoTime());
+        long window = nowMicros / windowMicros;
+        long rolled = roll(state.get(), window, windowMicros);
+        return Math.max(0, SlidingWindow.limit(params) - weightedCount(rolled, offsetIn(rolled, window, nowMicros,
+                                                                                         windowMicros), windowMicros));
+    }
+
+    @Override
+    public CreditLedger creditLedger() {
+        return creditLedger;
+    }
+
+    /**
+     * Counts the tokens missing from the limit as used at the start of the current window.
+     */
+    @Override
+    public void restoreTokens(long tokens, long nowNanos) {
+        RateParams params = rateParams;
+        long limit = SlidingWindow.limit(params);
+        long window = elapsedMicros(nowNanos) / SlidingWindow.windowMicros(params);
+        state.set(pack(window, 0, limit - Math.clamp(tokens, 0, limit)));
+    }
+
+    @Override
+    public long configVersion() {
+        return configVersion;
+    }
+
+    /**
+     * Scales both window counts by the ratio of the limits. When the window length changes too, the weighted count
+     * is carried into a fresh window of the new length, which holds it for a whole window instead of letting it fade.
+     */
+    @Override
+    public synchronized void reconfigure(RateParams newRateParams, long newConfigVersion) {
+        if (newConfigVersion <= configVersion) {
+            return;
+        }
+        RateParams oldRateParams = rateParams;
+        if (!newRateParams.equals(oldRateParams) && isSupported(newRateParams)) {
+            long oldLimit = SlidingWindow.limit(oldRateParams);
+            long oldWindowMicros = SlidingWindow.windowMicros(oldRateParams);
+            long newLimit = SlidingWindow.limit(newRateParams);
+            long newWindowMicros = SlidingWindow.windowMicros(newRateParams);
+            long nowMicros = elapsedMicros(tickSource.nanoTime());
+            while (true) {
+                long current = state.get();
+                long window = nowMicros / oldWindowMicros;
+                long rolled = roll(current, window, oldWindowMicros);
+                long rescaled;
+                if (newWindowMicros == oldWindowMicros) {
+                    rescaled = pack(window(rolled), scale(previous(rolled), newLimit, oldLimit),
+                                    scale(current(rolled), newLimit, oldLimit));
+                } else {
+                    long weighted = weightedCount(rolled, offsetIn(rolled, window, nowMicros, oldWindowMicros),
+                                                  oldWindowMicros);
+                    rescaled = pack(nowMicros / newWindowMicros, 0, scale(weighted, newLimit, oldLimit));
+                }
+                if (state.compareAndSet(current, rescaled)) {
+                    break;
+                }
+            }
+            rateParams = newRateParams;
+        }
+        configVersion = newConfigVersion;
+    }
+
+    @Override
+    public boolean isEvictable(long nowNanos, long idleNanos) {
+        long windowMicros = SlidingWindow.windowMicros(rateParams);
+        long window = elapsedMicros(nowNanos) / windowMicros;
+        long elapsedWindows = elapsedWindows(state.get(), window, windowMicros);
+        return elapsedWindows >= 2 && (elapsedWindows - 1) * windowMicros >= idleNanos / 1_000L;
+    }
+
+    /**
+     * Takes all {@code permits} if the window has room for them, otherwise all the room left as long as the paid
+     * credits may cover the rest. Returns the number of tokens taken, or -1 when the request cannot be satisfied.
+     */
+    private long takeTokens(long limit, long windowMicros, long permits, long nowMicros) {
+        long window = nowMicros / windowMicros;
+        while (true) {
+            long current = state.get();
+            long rolled = roll(current, window, windowMicros);
+            long used = weightedCount(rolled, offsetIn(rolled, window, nowMicros, windowMicros), windowMicros);
+            long taken = Math.min(Math.max(0, limit - used), permits);
+            if (taken < permits && !creditLedger.mayCover(permits - taken)) {
+                return -1;
+            }
+            if (taken == 0 || state.compareAndSet(current, pack(window(rolled), previous(rolled),
+                                                                current(rolled) + taken))) {
+                return taken;
+            }
+        }
+    }
+
+    private void returnTokens(long tokens, long window) {
+        if (tokens <= 0) {
+            return;
+        }
+        while (true) {
+            long current = state.get();
+            long windowsSinceTaken = (window(current) - window) & WINDOW_MASK;
+            long returned;
+            if (windowsSinceTaken == 0) {
+                returned = pack(window(current), previous(current), Math.max(0, current(current) - tokens));
+            } else if (windowsSinceTaken == 1) {
+                returned = pack(window(current), Math.max(0, previous(current) - tokens), current(current));
+            } else {
+                return;
+            }
+            if (state.compareAndSet(current, returned)) {
+                return;
+            }
+        }
+    }
+
+    private static long weightedCount(long state, long offsetMicros, long windowMicros) {
+        // Rounding the weighted count up keeps the approximation from ever admitting more than the limit
+        return Math.ceilDiv(previous(state) * (windowMicros - offsetMicros), windowMicros) + current(state);
+    }
+
+    private static long scale(long count, long newLimit, long oldLimit) {
+        return Math.min(COUNT_MASK, Math.ceilDiv(count * newLimit, oldLimit));
+    }
+
+    /**
+     * Moves the state forward to {@code window}. A state that is slightly ahead comes from a racing thread and is
+     * returned unchanged.
+     */
+    private static long roll(long state, long window, long windowMicros) {
+        long elapsedWindows = elapsedWindows(state, window, windowMicros);
+        if (elapsedWindows <= 0) {
+            return state;
+        }
+        return pack(window, elapsedWindows == 1 ? current(state) : 0, 0);
+    }
+
+    /**
+     * Windows from the state's to {@code window}, or -1 when the state is at most {@link #MAX_STALE_MICROS} ahead.
+     */
+    private static long elapsedWindows(long state, long window, long windowMicros) {
+        long elapsedWindows = (window - window(state)) & WINDOW_MASK;
+        long staleWindows = Math.clamp(MAX_STALE_MICROS / windowMicros, 1, MAX_ELAPSED_WINDOWS);
+        return elapsedWindows > WINDOW_MASK - staleWindows ? -1 : elapsedWindows;
+    }
+
+    /**
+     * Offset of now into the state's window; a state from a later window is read at its start, which overestimates
+     * the previous window's weight rather than admitting too much.
+     */
+    private static long offsetIn(long state, long window, long nowMicros, long windowMicros) {
+        return window(state) == (window & WINDOW_MASK) ? nowMicros % windowMicros : 0;
+    }
+
+    private long elapsedMicros(long nowNanos) {
+        return Math.max(0, nowNanos - epochNanos) / 1_000L;
+    }
+
+    private static long pack(long window, long previous, long current) {
+        return (window & WINDOW_MASK) << 2 * COUNT_BITS | previous << COUNT_BITS | current;
+    }
+
+    private static long window(long state) {
+        return state >>> 2 * COUNT_BITS;
+    }
+
+    private static long previous(long state) {
+        return (state >>> COUNT_BITS) & COUNT_MASK;
+    }
+
+    private static long current(long state) {
+        return state & COUNT_MASK;
+    }
+}
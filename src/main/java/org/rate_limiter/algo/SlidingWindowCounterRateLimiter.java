@@ -0,0 +1,21 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.clock.TickSource;
+import org.rate_limiter.store.EvictionPolicy;
+
+import static org.rate_limiter.configurations.CommonConfiguration.*;
+
+public class SlidingWindowCounterRateLimiter extends BucketRateLimiter {
+
+    public SlidingWindowCounterRateLimiter() {
+        this(DEFAULT_TICK_SOURCE);
+    }
+
+    public SlidingWindowCounterRateLimiter(TickSource tickSource) {
+        this(DEFAULT_BUCKET_STORE_SHARDS, DEFAULT_EVICTION_POLICY, tickSource);
+    }
+
+    public SlidingWindowCounterRateLimiter(int shardCount, EvictionPolicy evictionPolicy, TickSource tickSource) {
+        super(Algorithm.SLIDING_WINDOW_COUNTER.forEverySubscription(), shardCount, evictionPolicy, tickSource);
+    }
+}
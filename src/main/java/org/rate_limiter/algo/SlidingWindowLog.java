@@ -0,0 +1,187 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.clock.TickSource;
+
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_TICK_SOURCE;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.isSupported;
+
+/**
+ * Exact sliding window: the admission time of every permit within the window is kept in a ring buffer of
+ * primitive timestamps. The ring starts at {@value #INITIAL_RING_SIZE} slots and doubles as admissions need it, up
+ * to the window limit, so a user costs 8 bytes per permit it actually held in a window, at most 8 MB at
+ * {@link org.rate_limiter.configurations.CommonConfiguration#MAX_WINDOW_LIMIT}. A full log rejects without
+ * allocating. All state is guarded by the bucket's monitor.
+ */
+public class SlidingWindowLog implements AdmissionBucket {
+    static final int INITIAL_RING_SIZE = 16;
+
+    private final CreditLedger creditLedger;
+    private final TickSource tickSource;
+    private final long epochNanos;
+    private RateParams rateParams;
+    private long configVersion;
+    private long[] timestamps;
+    private int limit;
+    private long windowMicros;
+    private int head;
+    private int size;
+    private long latestMicros;
+
+    public SlidingWindowLog(RateParams rateParams, CreditLedger creditLedger) {
+        this(rateParams, creditLedger, DEFAULT_TICK_SOURCE);
+    }
+
+    public SlidingWindowLog(RateParams rateParams, CreditLedger creditLedger, TickSource tickSource) {
+        this.rateParams = rateParams;
+        this.limit = (int) SlidingWindow.limit(rateParams);
+        this.timestamps = new long[Math.min(limit, INITIAL_RING_SIZE)];
+        this.windowMicros = SlidingWindow.windowMicros(rateParams);
+        this.creditLedger = creditLedger;
+        this.tickSource = tickSource;
+        this.epochNanos = tickSource.nanoTime();
+    }
+
+    @Override
+    public synchronized Admission admit(long permits, long nowNanos) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException(TokenBucket.PERMITS_MUST_BE_POSITIVE);
+        }
+        // Timestamps stay ordered even when a caller sampled the clock before a racing one
+        long nowMicros = Math.max(latestMicros, elapsedMicros(nowNanos));
+        expire(nowMicros);
+        long taken = Math.min(limit - size, permits);
+        if (taken < permits && !creditLedger.tryConsume(permits - taken)) {
+            return Admission.DENIED;
+        }
+        ensureRoom(size + (int) taken);
+        for (long permit = 0; permit < taken; permit++) {
+            timestamps[slot(size)] = nowMicros;
+            size++;
+        }
+        latestMicros = nowMicros;
+        return taken < permits ? Admission.CREDITS : Admission.TOKENS;
+    }
+
+    @Override
+    public synchronized long tryAcquire(long permits, long nowNanos) {
+        if (admit(permits, nowNanos).allowed()) {
+            return 0;
+        }
+        return Math.max(1, nanosUntilAvailable(permits, nowNanos));
+    }
+
+    @Override
+    public synchronized long nanosUntilAvailable(long permits, long nowNanos) {
+        if (permits > limit) {
+            return Long.MAX_VALUE;
+        }
+        long nowMicros = Math.max(latestMicros, elapsedMicros(nowNanos));
+        expire(nowMicros);
+        int mustExpire = (int) (size + permits - limit);
+        if (mustExpire <= 0) {
+            return 0;
+        }
+        long waitMicros = timestamps[slot(mustExpire - 1)] + windowMicros - nowMicros;
+        return Math.max(1, waitMicros) * 1_000L;
+    }
+
+    @Override
+    public synchronized long availableTokens() {
+        expire(Math.max(latestMicros, elapsedMicros(tickSource.nanoTime())));
+        return limit - size;
+    }
+
+    @Override
+    public CreditLedger creditLedger() {
+        return creditLedger;
+    }
+
+    /**
+     * Logs the tokens missing from the limit as admitted at {@code nowNanos}.
+     */
+    @Override
+    public synchronized void restoreTokens(long tokens, long nowNanos) {
+        long nowMicros = Math.max(latestMicros, elapsedMicros(nowNanos));
+        int logged = limit - Math.clamp(tokens, 0, limit);
+        ensureRoom(logged);
+        head = 0;
+        size = logged;
+        for (int index = 0; index < size; index++) {
+            timestamps[index] = nowMicros;
+        }
+        latestMicros = nowMicros;
+    }
+
+    @Override
+    public synchronized long configVersion() {
+        return configVersion;
+    }
+
+    /**
+     * Keeps the newest admissions, as many as the old log's share of the new limit, and expires them by the new
+     * window length from then on.
+     */
+    @Override
+    public synchronized void reconfigure(RateParams newRateParams, long newConfigVersion) {
+        if (newConfigVersion <= configVersion) {
+            return;
+        }
+        if (!newRateParams.equals(rateParams) && isSupported(newRateParams)) {
+            long newWindowMicros = SlidingWindow.windowMicros(newRateParams);
+            int newLimit = (int) SlidingWindow.limit(newRateParams);
+            expire(Math.max(latestMicros, elapsedMicros(tickSource.nanoTime())));
+            int kept = (int) Math.min(newLimit, Math.ceilDiv((long) size * newLimit, limit));
+            long[] resized = new long[Math.min(newLimit, Math.max(kept, INITIAL_RING_SIZE))];
+            for (int index = 0; index < kept; index++) {
+                resized[index] = timestamps[slot(size - kept + index)];
+            }
+            timestamps = resized;
+            limit = newLimit;
+            windowMicros = newWindowMicros;
+            head = 0;
+            size = kept;
+            rateParams = newRateParams;
+        }
+        configVersion = newConfigVersion;
+    }
+
+    @Override
+    public synchronized boolean isEvictable(long nowNanos, long idleNanos) {
+        long nowMicros = elapsedMicros(nowNanos);
+        expire(nowMicros);
+        return size == 0 && nowMicros - latestMicros >= idleNanos / 1_000L;
+    }
+
+    private void expire(long nowMicros) {
+        while (size > 0 && timestamps[head] <= nowMicros - windowMicros) {
+            head = slot(1);
+            size--;
+        }
+    }
+
+    /**
+     * Grows the ring, keeping the admissions in order from slot 0, until it holds {@code entries}.
+     */
+    private void ensureRoom(int entries) {
+        if (entries <= timestamps.length) {
+            return;
+        }
+        long[] grown = new long[(int) Math.min(limit, Math.max(entries, 2L * timestamps.length))];
+        for (int index = 0; index < size; index++) {
+            grown[index] = timestamps[slot(index)];
+        }
+        timestamps = grown;
+        head = 0;
+    }
+
+    private int slot(int index) {
+        int slot = head + index;
+        return slot < timestamps.length ? slot : slot - timestamps.length;
+    }
+
+    private long elapsedMicros(long nowNanos) {
+        return Math.max(0, nowNanos - epochNanos) / 1_000L;
+    }
+}
@@ -0,0 +1,21 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.clock.TickSource;
+import org.rate_limiter.store.EvictionPolicy;
+
+import static org.rate_limiter.configurations.CommonConfiguration.*;
+
+public class SlidingWindowLogRateLimiter extends BucketRateLimiter {
+
+    public SlidingWindowLogRateLimiter() {
+        this(DEFAULT_TICK_SOURCE);
+    }
+
+    public SlidingWindowLogRateLimiter(TickSource tickSource) {
+        this(DEFAULT_BUCKET_STORE_SHARDS, DEFAULT_EVICTION_POLICY, tickSource);
+    }
+
+    public SlidingWindowLogRateLimiter(int shardCount, EvictionPolicy evictionPolicy, TickSource tickSource) {
+        super(Algorithm.SLIDING_WINDOW_LOG.forEverySubscription(), shardCount, evictionPolicy, tickSource);
+    }
+}
@@ -0,0 +1,236 @@
+package org.rate_limiter.algo;
+
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.clock.TickSource;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import static org.rate_limiter.algo.PackedTokenState.*;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.isSupported;
+
+/**
+ * Token bucket for a single very hot key, split into per-core stripes so concurrent admissions CAS different cache
+ * lines instead of one {@code AtomicLong}.
+ * <p>
+ * Each stripe is a {@link PackedTokenState} holding its share of the capacity and refilling at {@code 1/stripes} of
+ * the rate. A request takes from the stripe of its thread and borrows from the siblings when that one runs dry, so a
+ * request is only denied when the stripes together cannot cover it. The shares and rates add up exactly to the
+ * bucket's, so the stripes never admit more than a single {@link TokenBucket} would over any interval; the price is
+ * that a full stripe discards its refill while a sibling is empty, which can admit somewhat less. Only
+ * {@link #restoreTokens} and {@link #reconfigure} overwrite the stripes, like the single bucket's
+ * {@link TokenBucket#restoreTokens}, and may lose admissions racing with them.
+ */
+public class StripedTokenBucket implements AdmissionBucket {
+    private static final VarHandle STRIPES = MethodHandles.arrayElementVarHandle(long[].class);
+    // 128 bytes apart, so adjacent line prefetching does not pair two stripes either
+    private static final int STRIDE = 16;
+
+    private final long[] stripes;
+    private final int stripeCount;
+    private final CreditLedger creditLedger;
+    private final TickSource tickSource;
+    private final long epochNanos;
+    private volatile Layout layout;
+    private volatile long configVersion;
+
+    public StripedTokenBucket(RateParams rateParams, CreditLedger creditLedger, TickSource tickSource, int stripeCount,
+                              long initialTokens) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        this.stripeCount = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new long[this.stripeCount * STRIDE];
+        this.layout = layoutFor(rateParams, this.stripeCount);
+        this.creditLedger = creditLedger;
+        this.tickSource = tickSource;
+        this.epochNanos = tickSource.nanoTime();
+        spreadTokens(initialTokens, epochNanos);
+    }
+
+    @Override
+    public Admission admit(long permits, long nowNanos) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException(TokenBucket.PERMITS_MUST_BE_POSITIVE);
+        }
+        Layout current = layout;
+        long now = toTicks(nowNanos - epochNanos);
+        int home = homeStripe(current);
+        long taken = 0;
+        for (int probe = 0; probe <= current.mask() && taken < permits; probe++) {
+            taken += take(current, (home + probe) & current.mask(), permits - taken, now);
+        }
+        if (taken == permits) {
+            return Admission.TOKENS;
+        }
+        if (creditLedger.tryConsume(permits - taken)) {
+            return Admission.CREDITS;
+        }
+        giveBack(current, home, taken);
+        return Admission.DENIED;
+    }
+
+    @Override
+    public long nanosUntilAvailable(long permits, long nowNanos) {
+        Layout current = layout;
+        if (permits > current.rateParams()
+                             .capacity()) {
+            return Long.MAX_VALUE;
+        }
+        // Every stripe refills on its own, so the missing tokens arrive one per stripe at a time
+        long missing = permits - tokensAt(current, toTicks(nowNanos - epochNanos));
+        return waitNanos(Math.ceilDiv(missing, current.mask() + 1), 0, current.rateParams()
+                                                                              .rateRequest()
+                                                                              .count(),
+                         current.stripePeriodTicks());
+    }
+
+    @Override
+    public long availableTokens() {
+        return tokensAt(layout, toTicks(tickSource.nanoTime() - epochNanos));
+    }
+
+    public int stripeCount() {
+        return layout.mask() + 1;
+    }
+
+    @Override
+    public CreditLedger creditLedger() {
+        return creditLedger;
+    }
+
+    @Override
+    public void restoreTokens(long tokens, long nowNanos) {
+        spreadTokens(tokens, nowNanos);
+    }
+
+    /**
+     * Spreads {@code tokens} over the stripes in proportion to their shares of the capacity. Private, so the
+     * constructor can call it without handing a half-built bucket to a subclass.
+     */
+    private void spreadTokens(long tokens, long nowNanos) {
+        Layout current = layout;
+        long capacity = current.rateParams()
+                               .capacity();
+        long clamped = Math.clamp(tokens, 0, capacity);
+        long remaining = clamped;
+        long ticks = toTicks(nowNanos - epochNanos);
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            long share = 0;
+            if (stripe <= current.mask()) {
+                share = stripe == current.mask() ? remaining
+                        : Math.min(remaining, Math.ceilDiv(clamped * current.stripeCapacities()[stripe], capacity));
+            }
+            STRIPES.setVolatile(stripes, stripe * STRIDE, pack(share, ticks));
+            remaining -= share;
+        }
+    }
+
+    @Override
+    public long configVersion() {
+        return configVersion;
+    }
+
+    /**
+     * Rescales the tokens held by all stripes like {@link TokenBucket#reconfigure} and re-splits them by the new
+     * capacity; a capacity smaller than the stripe count uses fewer stripes.
+     */
+    @Override
+    public synchronized void reconfigure(RateParams newRateParams, long newConfigVersion) {
+        if (newConfigVersion <= configVersion) {
+            return;
+        }
+        Layout oldLayout = layout;
+        if (!newRateParams.equals(oldLayout.rateParams()) && isSupported(newRateParams)) {
+            Layout newLayout = layoutFor(newRateParams, stripeCount);
+            long nowNanos = tickSource.nanoTime();
+            long scaled = tokensAt(oldLayout, toTicks(nowNanos - epochNanos)) * newRateParams.capacity()
+                    / oldLayout.rateParams()
+                               .capacity();
+            layout = newLayout;
+            spreadTokens(scaled, nowNanos);
+        }
+        configVersion = newConfigVersion;
+    }
+
+    @Override
+    public boolean isEvictable(long nowNanos, long idleNanos) {
+        Layout current = layout;
+        long now = toTicks(nowNanos - epochNanos);
+        for (int stripe = 0; stripe <= current.mask(); stripe++) {
+            long state = (long) STRIPES.getVolatile(stripes, stripe * STRIDE);
+            if (elapsedTicks(ticks(state), now) < idleNanos / 1_000L
+                    || tokens(refill(current, stripe, state, now)) < current.stripeCapacities()[stripe]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long take(Layout current, int stripe, long maxPermits, long now) {
+        int index = stripe * STRIDE;
+        while (true) {
+            long state = (long) STRIPES.getVolatile(stripes, index);
+            long refilled = refill(current, stripe, state, now);
+            long tokens = tokens(refilled);
+            long taken = Math.min(tokens, maxPermits);
+            if (taken == 0 || STRIPES.compareAndSet(stripes, index, state, pack(tokens - taken, ticks(refilled)))) {
+                return taken;
+            }
+        }
+    }
+
+    private void giveBack(Layout current, int home, long tokens) {
+        for (int probe = 0; probe <= current.mask() && tokens > 0; probe++) {
+            int stripe = (home + probe) & current.mask();
+            int index = stripe * STRIDE;
+            while (true) {
+                long state = (long) STRIPES.getVolatile(stripes, index);
+                long returned = Math.min(tokens, current.stripeCapacities()[stripe] - tokens(state));
+                if (returned <= 0) {
+                    break;
+                }
+                if (STRIPES.compareAndSet(stripes, index, state, pack(tokens(state) + returned, ticks(state)))) {
+                    tokens -= returned;
+                    break;
+                }
+            }
+        }
+    }
+
+    private long tokensAt(Layout current, long now) {
+        long tokens = 0;
+        for (int stripe = 0; stripe <= current.mask(); stripe++) {
+            tokens += tokens(refill(current, stripe, (long) STRIPES.getVolatile(stripes, stripe * STRIDE), now));
+        }
+        return tokens;
+    }
+
+    private static long refill(Layout layout, int stripe, long state, long now) {
+        return PackedTokenState.refill(state, now, layout.stripeCapacities()[stripe], layout.rateParams()
+                                                                                            .rateRequest()
+                                                                                            .count(),
+                                       layout.stripePeriodTicks());
+    }
+
+    private static int homeStripe(Layout layout) {
+        long hash = Thread.currentThread()
+                          .threadId() * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & layout.mask();
+    }
+
+    private static Layout layoutFor(RateParams rateParams, int stripeCount) {
+        long periodTicks = refillPeriodTicks(rateParams);
+        long capacity = rateParams.capacity();
+        int used = (int) Math.min(stripeCount, Long.highestOneBit(Math.max(1, capacity)));
+        long[] stripeCapacities = new long[used];
+        for (int stripe = 0; stripe < used; stripe++) {
+            stripeCapacities[stripe] = capacity / used + (stripe < capacity % used ? 1 : 0);
+        }
+        return new Layout(rateParams, used - 1, stripeCapacities, periodTicks * used);
+    }
+
+    private record Layout(RateParams rateParams, int mask, long[] stripeCapacities, long stripePeriodTicks) {
+    }
+}
@@ -0,0 +1,24 @@
+package org.rate_limiter.algo;
+
+/**
+ * When a {@link BucketRateLimiter} promotes a hot {@link TokenBucket} to a {@link StripedTokenBucket}: once the
+ * bucket's contention score reaches {@code contentionThreshold}, it is split into {@code stripes} pools. Every failed
+ * CAS adds {@link TokenBucket#CONTENTION_PER_FAILED_CAS} to the score and every uncontended admission takes one off,
+ * so only keys that keep failing CAS for a sustained stretch are promoted.
+ */
+public record StripingPolicy(int stripes, int contentionThreshold) {
+    public StripingPolicy {
+        if (stripes < 2 || contentionThreshold <= 0) {
+            throw new IllegalArgumentException("Striping needs at least 2 stripes and a positive contention threshold");
+        }
+    }
+
+    /**
+     * One stripe per available processor, rounded up to a power of two.
+     */
+    public static StripingPolicy perCore(int contentionThreshold) {
+        int processors = Runtime.getRuntime()
+                                .availableProcessors();
+        return new StripingPolicy(Math.max(2, Integer.highestOneBit(processors - 1) << 1), contentionThreshold);
+    }
+}
@@ -1,31 +1,41 @@
 package org.rate_limiter.algo;
 
-import org.jetbrains.annotations.NotNull;
-import org.rate_limiter.PaidCredit;
+import org.rate_limiter.CreditLedger;
 import org.rate_limiter.RateParams;
+import org.rate_limiter.clock.TickSource;
 
-import java.time.LocalDateTime;
-import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.Predicate;
 
-import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_TOKENS_PER_CREDIT;
-import static org.rate_limiter.configurations.CommonConfiguration.EXTRA_CREDITS_VALIDITY_DURATION;
+import static org.rate_limiter.algo.PackedTokenState.*;
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_TICK_SOURCE;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.isSupported;
 
-public class TokenBucket {
-    private final RateParams rateParams;
-    private final AtomicLong tokens;
-    private final List<PaidCredit> paidCredits;
-    private final AtomicLong usedTokens;
-    private long lastRefillTime;
+public class TokenBucket implements AdmissionBucket {
+    public static final String PERMITS_MUST_BE_POSITIVE = "Permits must be positive";
+    public static final int CONTENTION_PER_FAILED_CAS = 16;
+    private static final int MAX_CONTENTION = 1 << 24;
 
+    private final AtomicLong state;
+    private final CreditLedger creditLedger;
+    private final TickSource tickSource;
+    private final long epochNanos;
+    private volatile RateParams rateParams;
+    private volatile long configVersion;
+    // Plain field updated racily by request threads: an approximate score is all promotion needs
+    private int contention;
 
-    public TokenBucket(RateParams rateParams, List<PaidCredit> paidCredits) {
+
+    public TokenBucket(RateParams rateParams, CreditLedger creditLedger) {
+        this(rateParams, creditLedger, DEFAULT_TICK_SOURCE);
+    }
+
+    public TokenBucket(RateParams rateParams, CreditLedger creditLedger, TickSource tickSource) {
+        refillPeriodTicks(rateParams);
         this.rateParams = rateParams;
-        this.tokens = new AtomicLong(initiallyAllowedRequest(rateParams));
-        this.usedTokens = new AtomicLong(0L);
-        this.paidCredits = paidCredits;
-        this.lastRefillTime = System.nanoTime();
+        this.tickSource = tickSource;
+        this.epochNanos = tickSource.nanoTime();
+        this.state = new AtomicLong(pack(initiallyAllowedRequest(rateParams), 0L));
+        this.creditLedger = creditLedger;
     }
 
     private static long initiallyAllowedRequest(RateParams rateParams) {
@@ -34,74 +44,193 @@ public class TokenBucket {
     }
 
     public boolean allowRequest() {
-        refillTokens();
-        return isRequestAllowed();
+        return allowRequests(1, tickSource.nanoTime());
+    }
+
+    @Override
+    public Admission admit(long permits, long nowNanos) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException(PERMITS_MUST_BE_POSITIVE);
+        }
+        RateParams params = rateParams;
+        long takenTokens = takeTokens(params, permits, toTicks(nowNanos - epochNanos));
+        if (takenTokens == permits) {
+            return Admission.TOKENS;
+        }
+        if (takenTokens >= 0 && useUserCreditsIfExist(permits - takenTokens)) {
+            return Admission.CREDITS;
+        }
+        returnTokens(params, takenTokens);
+        return Admission.DENIED;
     }
 
-    private void refillTokens() {
-        long tokensToAdd = getTokenReplenishmentCount();
-        if (tokensToAdd > 0) {
-            updateTokens(tokensToAdd);
+    /**
+     * Takes as many tokens as the bucket holds, up to {@code maxPermits}, if that is at least {@code minPermits}.
+     * Paid credits are not touched. Returns the number of tokens taken, or 0 when fewer than {@code minPermits} are
+     * available.
+     */
+    public long leaseTokens(long minPermits, long maxPermits, long nowNanos) {
+        if (minPermits <= 0 || maxPermits < minPermits) {
+            throw new IllegalArgumentException(PERMITS_MUST_BE_POSITIVE);
+        }
+        RateParams params = rateParams;
+        long now = toTicks(nowNanos - epochNanos);
+        while (true) {
+            long current = state.get();
+            long refilled = refill(params, current, now);
+            long tokens = tokens(refilled);
+            if (tokens < minPermits) {
+                return 0;
+            }
+            long taken = Math.min(tokens, maxPermits);
+            if (state.compareAndSet(current, pack(tokens - taken, ticks(refilled)))) {
+                return taken;
+            }
         }
     }
 
-    private long getTokenReplenishmentCount() {
-        long now = System.nanoTime();
-        long timeElapsed = now - lastRefillTime;
-        long fillRate = rateParams.rateRequest()
-                                  .count();
-        return timeElapsed * fillRate / rateParams.rateRequest()
-                                                  .timeUnit()
-                                                  .toNanos(1);
+    @Override
+    public long nanosUntilAvailable(long permits, long nowNanos) {
+        RateParams params = rateParams;
+        if (permits > params.capacity()) {
+            return Long.MAX_VALUE;
+        }
+        long now = toTicks(nowNanos - epochNanos);
+        long refilled = refill(params, state.get(), now);
+        return waitNanos(permits - tokens(refilled), Math.max(0, elapsedTicks(ticks(refilled), now)),
+                         params.rateRequest()
+                               .count(), refillPeriodTicks(params));
     }
 
-    private void updateTokens(long tokensToAdd) {
-        long capacity = rateParams.capacity();
-        tokens.set(getMinimumTokensCount(capacity, tokensToAdd));
-        lastRefillTime = System.nanoTime();
+    public void returnTokens(long tokens) {
+        returnTokens(rateParams, tokens);
     }
 
-    private long getMinimumTokensCount(long capacity, long tokensToAdd) {
-        return Math.max(0, Math.min(capacity, tokens.get() + tokensToAdd));
+    @Override
+    public long availableTokens() {
+        return tokens(refill(rateParams, state.get(), nowTicks()));
     }
 
-    private boolean isRequestAllowed() {
-        return decrementTokenCountIfPositiveThenReturnIfTokenExists() || useUserCreditsIfExist();
+    /**
+     * Decaying score of the CAS failures of concurrent admissions, see {@link StripingPolicy}.
+     */
+    public int contention() {
+        return contention;
     }
 
-    private boolean decrementTokenCountIfPositiveThenReturnIfTokenExists() {
-        return (tokens.longValue() > 0 && tokens.getAndDecrement() > 0);
+    /**
+     * Takes every token the bucket holds at {@code nowNanos}, e.g. to move them into a {@link StripedTokenBucket}.
+     */
+    public long drainTokens(long nowNanos) {
+        RateParams params = rateParams;
+        long now = toTicks(nowNanos - epochNanos);
+        while (true) {
+            long current = state.get();
+            long refilled = refill(params, current, now);
+            if (state.compareAndSet(current, pack(0, ticks(refilled)))) {
+                return tokens(refilled);
+            }
+        }
     }
 
-    private boolean useUserCreditsIfExist() {
-        long validTokens = getValidTokensFromTokens();
-        long eligibleTokens = validTokens - usedTokens.get();
-        if (eligibleTokens > 0) {
-            usedTokens.incrementAndGet();
-            return true;
+    @Override
+    public CreditLedger creditLedger() {
+        return creditLedger;
+    }
+
+    @Override
+    public void restoreTokens(long tokens, long nowNanos) {
+        state.set(pack(Math.clamp(tokens, 0, rateParams.capacity()), toTicks(nowNanos - epochNanos)));
+    }
+
+    @Override
+    public long configVersion() {
+        return configVersion;
+    }
+
+    /**
+     * Keeps the bucket's fill level: the tokens refilled under the old params are scaled by the ratio of the
+     * capacities. Requests racing with the switch may still be decided with the old params.
+     */
+    @Override
+    public synchronized void reconfigure(RateParams newRateParams, long newConfigVersion) {
+        if (newConfigVersion <= configVersion) {
+            return;
+        }
+        RateParams oldRateParams = rateParams;
+        if (!newRateParams.equals(oldRateParams) && isSupported(newRateParams)) {
+            long now = nowTicks();
+            while (true) {
+                long current = state.get();
+                long refilled = refill(oldRateParams, current, now);
+                long scaled = tokens(refilled) * newRateParams.capacity() / oldRateParams.capacity();
+                if (state.compareAndSet(current, pack(scaled, ticks(refilled)))) {
+                    break;
+                }
+            }
+            rateParams = newRateParams;
+        }
+        configVersion = newConfigVersion;
+    }
+
+    @Override
+    public boolean isEvictable(long nowNanos, long idleNanos) {
+        RateParams params = rateParams;
+        long current = state.get();
+        long now = toTicks(nowNanos - epochNanos);
+        return elapsedTicks(ticks(current), now) >= idleNanos / 1_000L
+                && tokens(refill(params, current, now)) >= params.capacity();
+    }
+
+    /**
+     * Takes all {@code permits} if the bucket holds them, otherwise every remaining token as long as the paid credits
+     * may cover the rest. Returns the number of tokens taken, or -1 when the request cannot be satisfied at all.
+     */
+    private long takeTokens(RateParams params, long permits, long now) {
+        boolean contended = false;
+        while (true) {
+            long current = state.get();
+            long refilled = refill(params, current, now);
+            long tokens = tokens(refilled);
+            long taken = Math.min(tokens, permits);
+            if (taken < permits && !creditLedger.mayCover(permits - taken)) {
+                return -1;
+            }
+            if (taken == 0 || state.compareAndSet(current, pack(tokens - taken, ticks(refilled)))) {
+                if (!contended && contention > 0) {
+                    contention--;
+                }
+                return taken;
+            }
+            contended = true;
+            contention = Math.min(MAX_CONTENTION, contention + CONTENTION_PER_FAILED_CAS);
+        }
+    }
+
+    private void returnTokens(RateParams params, long tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        while (true) {
+            long current = state.get();
+            long returned = pack(Math.min(params.capacity(), tokens(current) + tokens), ticks(current));
+            if (state.compareAndSet(current, returned)) {
+                return;
+            }
         }
-        return false;
     }
 
-    private long getValidTokensFromTokens() {
-        long validCredits = this.paidCredits.stream()
-                                            .filter(notExpiredCredits())
-                                            .map(PaidCredit::credits)
-                                            .map(AtomicLong::get)
-                                            .mapToLong(Long::longValue)
-                                            .sum();
-        return getTokensCountFromCredits(validCredits);
+    private static long refill(RateParams params, long current, long now) {
+        return PackedTokenState.refill(current, now, params.capacity(), params.rateRequest()
+                                                                              .count(), refillPeriodTicks(params));
     }
 
-    @NotNull
-    private static Predicate<PaidCredit> notExpiredCredits() {
-        return paidCredit -> paidCredit.allocationTime()
-                                       .plus(EXTRA_CREDITS_VALIDITY_DURATION)
-                                       .isAfter(LocalDateTime.now());
+    private long nowTicks() {
+        return toTicks(tickSource.nanoTime() - epochNanos);
     }
 
-    private static long getTokensCountFromCredits(long validCredits) {
-        return (long) (validCredits * DEFAULT_TOKENS_PER_CREDIT);
+    private boolean useUserCreditsIfExist(long tokens) {
+        return creditLedger.tryConsume(tokens);
     }
 
 }
@@ -1,33 +1,43 @@
 package org.rate_limiter.algo;
 
-import org.rate_limiter.RateParams;
-import org.rate_limiter.SubscriptionType;
-import org.rate_limiter.User;
+import org.rate_limiter.clock.TickSource;
+import org.rate_limiter.metrics.RateLimiterMetrics;
+import org.rate_limiter.store.EvictionPolicy;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import static org.rate_limiter.configurations.CommonConfiguration.*;
 
-import static org.rate_limiter.configurations.SubscriptionConfiguration.getSubscriptionTypeRateParamsMap;
 
-
-public class TokenBucketRateLimiter implements RateLimiter {
-    private final Map<SubscriptionType, RateParams> subscriptionTypeLimitConfigurationMap;
-    private final ConcurrentMap<User, TokenBucket> userBuckets;
+public class TokenBucketRateLimiter extends BucketRateLimiter {
 
     public TokenBucketRateLimiter() {
-        subscriptionTypeLimitConfigurationMap = getSubscriptionTypeRateParamsMap();
-        this.userBuckets = new ConcurrentHashMap<>();
+        this(DEFAULT_BUCKET_STORE_SHARDS);
+    }
+
+    public TokenBucketRateLimiter(int shardCount) {
+        this(shardCount, DEFAULT_EVICTION_POLICY);
+    }
+
+    public TokenBucketRateLimiter(TickSource tickSource) {
+        this(DEFAULT_BUCKET_STORE_SHARDS, DEFAULT_EVICTION_POLICY, tickSource);
+    }
+
+    public TokenBucketRateLimiter(int shardCount, EvictionPolicy evictionPolicy) {
+        this(shardCount, evictionPolicy, DEFAULT_TICK_SOURCE);
+    }
+
+    public TokenBucketRateLimiter(int shardCount, EvictionPolicy evictionPolicy, TickSource tickSource) {
+        super(Algorithm.TOKEN_BUCKET.forEverySubscription(), shardCount, evictionPolicy, tickSource);
+    }
+
+    public TokenBucketRateLimiter(int shardCount, EvictionPolicy evictionPolicy, TickSource tickSource,
+                                  RateLimiterMetrics metrics) {
+        super(Algorithm.TOKEN_BUCKET.forEverySubscription(), shardCount, evictionPolicy, tickSource, metrics);
     }
 
-    @Override
-    public boolean allowRequest(User user) {
-        TokenBucket bucket = userBuckets.computeIfAbsent(user,
-                                                         k -> new TokenBucket(
-                                                                 subscriptionTypeLimitConfigurationMap.get(
-                                                                         user.getType()), user.getPaidCredits())
-                                                        );
-        return bucket.allowRequest();
+    public TokenBucketRateLimiter(int shardCount, EvictionPolicy evictionPolicy, TickSource tickSource,
+                                  RateLimiterMetrics metrics, StripingPolicy stripingPolicy) {
+        super(Algorithm.TOKEN_BUCKET.forEverySubscription(), shardCount, evictionPolicy, tickSource, metrics,
+              stripingPolicy);
     }
 
 }
@@ -0,0 +1,63 @@
+package org.rate_limiter.clock;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Serves times sampled by a background thread every {@code resolution}, so request threads read a volatile field
+ * instead of the system clock. Readings lag real time by at most one resolution step.
+ */
+public final class CachedTickSource implements TickSource, AutoCloseable {
+    private final TickSource delegate;
+    private final long resolutionNanos;
+    private final Thread ticker;
+    private volatile long nanoTime;
+    private volatile long epochNanos;
+    private volatile boolean running;
+
+    public CachedTickSource(Duration resolution) {
+        this(SystemTickSource.INSTANCE, resolution);
+    }
+
+    public CachedTickSource(TickSource delegate, Duration resolution) {
+        if (resolution.isNegative() || resolution.isZero()) {
+            throw new IllegalArgumentException("Resolution must be positive");
+        }
+        this.delegate = delegate;
+        this.resolutionNanos = resolution.toNanos();
+        this.running = true;
+        sample();
+        this.ticker = Thread.ofPlatform()
+                            .daemon()
+                            .name("rate-limiter-tick-source")
+                            .start(this::tick);
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanoTime;
+    }
+
+    @Override
+    public long epochNanos() {
+        return epochNanos;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(ticker);
+    }
+
+    private void tick() {
+        while (running) {
+            LockSupport.parkNanos(this, resolutionNanos);
+            sample();
+        }
+    }
+
+    private void sample() {
+        epochNanos = delegate.epochNanos();
+        nanoTime = delegate.nanoTime();
+    }
+}
@@ -0,0 +1,47 @@
+package org.rate_limiter.clock;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock that only moves when told to, for deterministic tests and simulations.
+ */
+public class ManualTickSource implements TickSource {
+    private final long epochOffsetNanos;
+    private final AtomicLong nanoTime;
+
+    public ManualTickSource() {
+        this(SystemTickSource.INSTANCE.epochNanos());
+    }
+
+    public ManualTickSource(long startEpochNanos) {
+        this.epochOffsetNanos = startEpochNanos;
+        this.nanoTime = new AtomicLong();
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanoTime.get();
+    }
+
+    @Override
+    public long epochNanos() {
+        return epochOffsetNanos + nanoTime.get();
+    }
+
+    public void advance(long duration, TimeUnit timeUnit) {
+        advance(timeUnit.toNanos(duration));
+    }
+
+    public void advance(Duration duration) {
+        advance(duration.toNanos());
+    }
+
+    public void advance(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Time cannot move backwards");
+        }
+        nanoTime.addAndGet(nanos);
+    }
+}
@@ -0,0 +1,20 @@
+package org.rate_limiter.clock;
+
+import java.util.concurrent.TimeUnit;
+
+public final class SystemTickSource implements TickSource {
+    public static final SystemTickSource INSTANCE = new SystemTickSource();
+
+    private SystemTickSource() {
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public long epochNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    }
+}
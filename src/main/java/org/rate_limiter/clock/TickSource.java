@@ -0,0 +1,14 @@
+package org.rate_limiter.clock;
+
+public interface TickSource {
+    /**
+     * Monotonic time in nanoseconds with an arbitrary origin, used to measure refill intervals.
+     */
+    long nanoTime();
+
+    /**
+     * Wall-clock time in nanoseconds since the Unix epoch, used for credit expiry and for state that outlives the
+     * process.
+     */
+    long epochNanos();
+}
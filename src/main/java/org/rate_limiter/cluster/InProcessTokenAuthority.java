@@ -0,0 +1,73 @@
+package org.rate_limiter.cluster;
+
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.algo.TokenBucket;
+import org.rate_limiter.clock.TickSource;
+import org.rate_limiter.configurations.SubscriptionSnapshot;
+import org.rate_limiter.store.BucketEvictor;
+import org.rate_limiter.store.EvictionPolicy;
+import org.rate_limiter.store.ShardedBucketStore;
+
+import static org.rate_limiter.configurations.CommonConfiguration.*;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.configVersionFor;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.currentSnapshot;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.rateParamsFor;
+
+/**
+ * Reference {@link TokenAuthority} keeping one {@link TokenBucket} per user in memory. It serves the nodes of a single
+ * process directly, or the nodes of a cluster through a {@link TokenAuthorityServer}.
+ */
+public class InProcessTokenAuthority implements TokenAuthority {
+    private final ShardedBucketStore<TokenBucket> userBuckets;
+    private final BucketEvictor<TokenBucket> bucketEvictor;
+    private final CreditLedger noCredits;
+    private final TickSource tickSource;
+
+    public InProcessTokenAuthority() {
+        this(DEFAULT_TICK_SOURCE);
+    }
+
+    public InProcessTokenAuthority(TickSource tickSource) {
+        this(DEFAULT_EVICTION_POLICY, tickSource);
+    }
+
+    public InProcessTokenAuthority(EvictionPolicy evictionPolicy, TickSource tickSource) {
+        this.userBuckets = new ShardedBucketStore<>(DEFAULT_BUCKET_STORE_SHARDS, DEFAULT_EXPECTED_USERS,
+                                                    evictionPolicy.maxResidentBuckets());
+        this.bucketEvictor = new BucketEvictor<>(userBuckets, evictionPolicy, tickSource);
+        this.noCredits = new CreditLedger(tickSource);
+        this.tickSource = tickSource;
+    }
+
+    @Override
+    public long lease(long userId, SubscriptionType subscriptionType, long minTokens, long maxTokens) {
+        long leased = bucketFor(userId, subscriptionType).leaseTokens(minTokens, maxTokens, tickSource.nanoTime());
+        bucketEvictor.onRequest();
+        return leased;
+    }
+
+    @Override
+    public void release(long userId, SubscriptionType subscriptionType, long tokens) {
+        bucketFor(userId, subscriptionType).returnTokens(tokens);
+    }
+
+    @Override
+    public long nanosUntilAvailable(long userId, SubscriptionType subscriptionType, long tokens) {
+        return bucketFor(userId, subscriptionType).nanosUntilAvailable(tokens, tickSource.nanoTime());
+    }
+
+    private TokenBucket bucketFor(long userId, SubscriptionType subscriptionType) {
+        SubscriptionSnapshot snapshot = currentSnapshot();
+        TokenBucket bucket = userBuckets.get(userId);
+        if (bucket == null) {
+            bucket = userBuckets.computeIfAbsent(userId, id -> new TokenBucket(
+                    rateParamsFor(userId, subscriptionType, snapshot), noCredits, tickSource));
+        }
+        long configVersion = configVersionFor(userId, snapshot);
+        if (bucket.configVersion() < configVersion) {
+            bucket.reconfigure(rateParamsFor(userId, subscriptionType, snapshot), configVersion);
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,53 @@
+package org.rate_limiter.cluster;
+
+import org.rate_limiter.store.Evictable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tokens a node holds for one user. Requests spend them with a CAS; resizing and taking expired tokens back happen
+ * under {@link #lock}, which also elects the one request at a time that refills the lease from the authority.
+ */
+final class Lease implements Evictable {
+    final ReentrantLock lock;
+    final Condition refilled;
+    final AtomicLong tokens;
+    long size;
+    boolean refilling;
+    long grantedAtNanos;
+    volatile long expiresAtNanos;
+
+    Lease(long nowNanos) {
+        this.lock = new ReentrantLock();
+        this.refilled = lock.newCondition();
+        this.tokens = new AtomicLong();
+        this.size = 1;
+        this.grantedAtNanos = nowNanos;
+        this.expiresAtNanos = nowNanos;
+    }
+
+    boolean tryTake(long permits, long nowNanos) {
+        if (nowNanos - expiresAtNanos >= 0) {
+            return false;
+        }
+        long current = tokens.get();
+        while (current >= permits) {
+            if (tokens.compareAndSet(current, current - permits)) {
+                return true;
+            }
+            current = tokens.get();
+        }
+        return false;
+    }
+
+    /**
+     * A lease that expired at least {@code idleNanos} ago can be dropped; any tokens it still holds were taken from
+     * the authority's bucket long enough ago that the bucket has refilled them.
+     */
+    @Override
+    public boolean isEvictable(long nowNanos, long idleNanos) {
+        return nowNanos - expiresAtNanos >= idleNanos;
+    }
+}
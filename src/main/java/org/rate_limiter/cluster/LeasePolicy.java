@@ -0,0 +1,13 @@
+package org.rate_limiter.cluster;
+
+import java.time.Duration;
+
+/**
+ * Sizing of the token leases a {@link LeasedRateLimiter} node takes from its {@link TokenAuthority}.
+ *
+ * @param nodes            number of nodes sharing the authority
+ * @param maxOverAdmission tolerated burst above a user's capacity, as a fraction of that capacity, across the cluster
+ * @param leaseTtl         time after which unspent leased tokens are given back
+ */
+public record LeasePolicy(int nodes, double maxOverAdmission, Duration leaseTtl) {
+}
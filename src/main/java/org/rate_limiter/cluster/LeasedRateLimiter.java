@@ -0,0 +1,191 @@
+package org.rate_limiter.cluster;
+
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.clock.TickSource;
+import org.rate_limiter.store.BucketEvictor;
+import org.rate_limiter.store.ShardedBucketStore;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.rate_limiter.algo.TokenBucket.PERMITS_MUST_BE_POSITIVE;
+import static org.rate_limiter.configurations.CommonConfiguration.*;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.currentSnapshot;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.rateParamsFor;
+
+/**
+ * Cluster node rate limiter. Each user's global bucket lives in a shared {@link TokenAuthority}; the node leases
+ * tokens from it in batches and admits requests from the local lease with a single CAS.
+ * <p>
+ * A lease starts at one token and doubles every time it is spent within half of {@link LeasePolicy#leaseTtl()}, so
+ * busy users reach the authority once per batch. Tokens still unspent when the lease expires are given back and the
+ * next lease is halved. A lease never grows past {@code capacity * maxOverAdmission / nodes} tokens, which bounds the
+ * tokens the whole cluster can hold outside the authority, and therefore the burst above the configured capacity, to
+ * {@code capacity * maxOverAdmission}. The bound follows the current subscription snapshot, so a reloaded capacity
+ * takes effect on the next lease.
+ * <p>
+ * Paid credits stay with the {@link User} and cover what neither the lease nor the authority can.
+ */
+public class LeasedRateLimiter implements RateLimiter {
+    private final TokenAuthority authority;
+    private final double leaseShare;
+    private final long leaseTtlNanos;
+    private final ShardedBucketStore<Lease> userLeases;
+    private final BucketEvictor<Lease> leaseEvictor;
+    private final TickSource tickSource;
+    private final LongAdder authorityLeases;
+
+    public LeasedRateLimiter(TokenAuthority authority, LeasePolicy leasePolicy) {
+        this(authority, leasePolicy, DEFAULT_TICK_SOURCE);
+    }
+
+    public LeasedRateLimiter(TokenAuthority authority, LeasePolicy leasePolicy, TickSource tickSource) {
+        if (leasePolicy.nodes() <= 0 || !(leasePolicy.maxOverAdmission() >= 0)
+                || leasePolicy.leaseTtl()
+                              .isNegative() || leasePolicy.leaseTtl()
+                                                          .isZero()) {
+            throw new IllegalArgumentException("Lease policy fields are invalid");
+        }
+        this.authority = authority;
+        this.leaseShare = leasePolicy.maxOverAdmission() / leasePolicy.nodes();
+        this.leaseTtlNanos = leasePolicy.leaseTtl()
+                                        .toNanos();
+        this.userLeases = new ShardedBucketStore<>(DEFAULT_BUCKET_STORE_SHARDS, DEFAULT_EXPECTED_USERS,
+                                                   DEFAULT_EVICTION_POLICY.maxResidentBuckets());
+        this.leaseEvictor = new BucketEvictor<>(userLeases, DEFAULT_EVICTION_POLICY, tickSource);
+        this.tickSource = tickSource;
+        this.authorityLeases = new LongAdder();
+    }
+
+    @Override
+    public boolean allowRequest(User user) {
+        return allowRequests(user, 1);
+    }
+
+    @Override
+    public boolean allowRequests(User user, long permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException(PERMITS_MUST_BE_POSITIVE);
+        }
+        long now = tickSource.nanoTime();
+        Lease lease = leaseFor(user, now);
+        boolean allowed = lease.tryTake(permits, now) || allowFromAuthority(user, lease, permits, now);
+        leaseEvictor.onRequest();
+        return allowed;
+    }
+
+    @Override
+    public long tryAcquire(User user, long permits) {
+        if (allowRequests(user, permits)) {
+            return 0;
+        }
+        if (permits > rateParamsFor(user, currentSnapshot()).capacity()) {
+            return Long.MAX_VALUE;
+        }
+        long leased = leaseFor(user, tickSource.nanoTime()).tokens.get();
+        return authority.nanosUntilAvailable(user.getId(), user.getType(), Math.max(1, permits - leased));
+    }
+
+    public long leasedTokens(User user) {
+        Lease lease = userLeases.get(user.getId());
+        return lease == null ? 0 : lease.tokens.get();
+    }
+
+    public long authorityLeases() {
+        return authorityLeases.sum();
+    }
+
+    public long maxLeaseTokens(SubscriptionType subscriptionType) {
+        return maxLeaseTokens(currentSnapshot().rateParams(subscriptionType)
+                                               .capacity());
+    }
+
+    public long maxLeaseTokens(User user) {
+        return maxLeaseTokens(rateParamsFor(user, currentSnapshot()).capacity());
+    }
+
+    private long maxLeaseTokens(long capacity) {
+        return Math.max(1, (long) (capacity * leaseShare));
+    }
+
+    /**
+     * Refills the lease from the authority. One request per lease talks to the authority at a time, without holding
+     * {@link Lease#lock}, so the others wait for its answer instead of stacking leases above the bound, and a stalled
+     * authority holds them no longer than the call itself.
+     */
+    private boolean allowFromAuthority(User user, Lease lease, long permits, long now) {
+        long released = 0;
+        long leased;
+        long size;
+        lease.lock.lock();
+        try {
+            while (true) {
+                if (lease.tryTake(permits, now)) {
+                    return true;
+                }
+                if (!lease.refilling) {
+                    break;
+                }
+                lease.refilled.awaitUninterruptibly();
+            }
+            lease.refilling = true;
+            leased = lease.tokens.getAndSet(0);
+            if (now - lease.expiresAtNanos >= 0) {
+                if (leased > 0) {
+                    released = leased;
+                    lease.size = Math.max(1, lease.size / 2);
+                    leased = 0;
+                }
+            } else if (now - lease.grantedAtNanos < leaseTtlNanos / 2) {
+                lease.size = lease.size * 2;
+            }
+            lease.size = Math.min(maxLeaseTokens(user), lease.size);
+            size = lease.size;
+        } finally {
+            lease.lock.unlock();
+        }
+        long granted = 0;
+        try {
+            if (released > 0) {
+                authority.release(user.getId(), user.getType(), released);
+            }
+            long deficit = permits - leased;
+            granted = authority.lease(user.getId(), user.getType(), deficit, Math.max(deficit, size));
+            authorityLeases.increment();
+            if (granted > 0) {
+                lease.tokens.addAndGet(leased + granted - permits);
+                return true;
+            }
+            if (user.getCreditLedger()
+                    .tryConsume(deficit)) {
+                return true;
+            }
+            lease.tokens.addAndGet(leased);
+            return false;
+        } catch (RuntimeException e) {
+            lease.tokens.addAndGet(leased);
+            throw e;
+        } finally {
+            lease.lock.lock();
+            try {
+                if (granted > 0) {
+                    lease.grantedAtNanos = now;
+                    lease.expiresAtNanos = now + leaseTtlNanos;
+                }
+                lease.refilling = false;
+                lease.refilled.signalAll();
+            } finally {
+                lease.lock.unlock();
+            }
+        }
+    }
+
+    private Lease leaseFor(User user, long now) {
+        Lease lease = userLeases.get(user.getId());
+        if (lease == null) {
+            lease = userLeases.computeIfAbsent(user.getId(), id -> new Lease(now));
+        }
+        return lease;
+    }
+}
@@ -0,0 +1,129 @@
+package org.rate_limiter.cluster;
+
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.exceptions.TokenAuthorityUnavailableException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.rate_limiter.cluster.TokenAuthorityProtocol.*;
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_TOKEN_AUTHORITY_CALL_TIMEOUT;
+
+/**
+ * {@link TokenAuthority} client for a {@link TokenAuthorityServer}. Calls share one connection and are serialized;
+ * a broken connection is dropped and reopened by the next call. Connecting and every call are bounded by the call
+ * timeout, past which the call fails with {@link TokenAuthorityUnavailableException} and the connection is dropped,
+ * since a late answer would be read by the next call.
+ */
+public class RemoteTokenAuthority implements TokenAuthority, AutoCloseable {
+    private final InetSocketAddress address;
+    private final int callTimeoutMillis;
+    private final ReentrantLock lock;
+    private volatile Socket socket;
+    private DataInputStream in;
+    private DataOutputStream out;
+
+    public RemoteTokenAuthority(InetSocketAddress address) {
+        this(address, DEFAULT_TOKEN_AUTHORITY_CALL_TIMEOUT);
+    }
+
+    public RemoteTokenAuthority(InetSocketAddress address, Duration callTimeout) {
+        if (callTimeout.toMillis() <= 0) {
+            throw new IllegalArgumentException("Call timeout must be at least a millisecond");
+        }
+        this.address = address;
+        this.callTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, callTimeout.toMillis());
+        this.lock = new ReentrantLock();
+    }
+
+    @Override
+    public long lease(long userId, SubscriptionType subscriptionType, long minTokens, long maxTokens) {
+        return call(LEASE, userId, subscriptionType, minTokens, maxTokens);
+    }
+
+    @Override
+    public void release(long userId, SubscriptionType subscriptionType, long tokens) {
+        call(RELEASE, userId, subscriptionType, tokens, 0);
+    }
+
+    @Override
+    public long nanosUntilAvailable(long userId, SubscriptionType subscriptionType, long tokens) {
+        return call(NANOS_UNTIL_AVAILABLE, userId, subscriptionType, tokens, 0);
+    }
+
+    /**
+     * Closes the socket before taking the lock, so a call blocked on a stalled authority fails instead of holding the
+     * lock until it times out.
+     */
+    @Override
+    public void close() {
+        Socket current = socket;
+        if (current != null) {
+            closeQuietly(current);
+        }
+        lock.lock();
+        try {
+            disconnect();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long call(byte opcode, long userId, SubscriptionType subscriptionType, long first, long second) {
+        lock.lock();
+        try {
+            if (socket == null) {
+                connect();
+            }
+            writeRequest(out, opcode, userId, subscriptionType, first, second);
+            out.flush();
+            return in.readLong();
+        } catch (IOException e) {
+            disconnect();
+            throw new TokenAuthorityUnavailableException("Token authority at " + address + " is unavailable", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void connect() throws IOException {
+        Socket connection = new Socket();
+        try {
+            connection.setTcpNoDelay(true);
+            connection.setSoTimeout(callTimeoutMillis);
+            connection.connect(address, callTimeoutMillis);
+            in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+        socket = connection;
+    }
+
+    private void disconnect() {
+        Socket current = socket;
+        if (current == null) {
+            return;
+        }
+        closeQuietly(current);
+        socket = null;
+        in = null;
+        out = null;
+    }
+
+    private static void closeQuietly(Socket connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+}
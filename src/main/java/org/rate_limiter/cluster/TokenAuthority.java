@@ -0,0 +1,26 @@
+package org.rate_limiter.cluster;
+
+import org.rate_limiter.SubscriptionType;
+
+/**
+ * Owner of the global token bucket of every user, shared by all nodes of a cluster. Nodes lease tokens in batches
+ * and admit requests locally from the lease, so the authority is consulted once per batch rather than per request.
+ */
+public interface TokenAuthority {
+    /**
+     * Takes between {@code minTokens} and {@code maxTokens} tokens from the user's global bucket and returns how many
+     * were taken, or 0 when the bucket holds fewer than {@code minTokens}.
+     */
+    long lease(long userId, SubscriptionType subscriptionType, long minTokens, long maxTokens);
+
+    /**
+     * Gives back leased tokens that were not spent. The global bucket never grows beyond its capacity.
+     */
+    void release(long userId, SubscriptionType subscriptionType, long tokens);
+
+    /**
+     * Returns the nanoseconds until the user's global bucket holds {@code tokens} tokens (at least 1), or
+     * {@link Long#MAX_VALUE} if it never can.
+     */
+    long nanosUntilAvailable(long userId, SubscriptionType subscriptionType, long tokens);
+}
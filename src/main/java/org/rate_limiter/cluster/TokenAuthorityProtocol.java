@@ -0,0 +1,63 @@
+package org.rate_limiter.cluster;
+
+import org.rate_limiter.SubscriptionType;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Wire format between {@link RemoteTokenAuthority} and {@link TokenAuthorityServer}. Every request is a fixed frame of
+ * {@value #REQUEST_BYTES} bytes (opcode, user id, subscription ordinal and two operands) and every response a single
+ * long, answered in request order on the same connection.
+ */
+final class TokenAuthorityProtocol {
+    static final byte LEASE = 1;
+    static final byte RELEASE = 2;
+    static final byte NANOS_UNTIL_AVAILABLE = 3;
+    static final int REQUEST_BYTES = 1 + Long.BYTES + 1 + 2 * Long.BYTES;
+
+    private static final SubscriptionType[] SUBSCRIPTION_TYPES = SubscriptionType.values();
+
+    private TokenAuthorityProtocol() {
+    }
+
+    static void writeRequest(DataOutputStream out, byte opcode, long userId, SubscriptionType subscriptionType,
+                             long first, long second) throws IOException {
+        out.writeByte(opcode);
+        out.writeLong(userId);
+        out.writeByte(subscriptionType.ordinal());
+        out.writeLong(first);
+        out.writeLong(second);
+    }
+
+    /**
+     * Reads the rest of a request frame and answers it with {@code authority}. A frame with fields the authority
+     * cannot take fails with an {@link IOException}, like a truncated one.
+     */
+    static long dispatch(TokenAuthority authority, DataInputStream in, byte opcode) throws IOException {
+        long userId = in.readLong();
+        int ordinal = in.readUnsignedByte();
+        long first = in.readLong();
+        long second = in.readLong();
+        boolean valid = switch (opcode) {
+            case LEASE -> first > 0 && second >= first;
+            case RELEASE -> first >= 0;
+            case NANOS_UNTIL_AVAILABLE -> first > 0;
+            default -> throw new IOException("Unknown opcode " + opcode);
+        };
+        if (ordinal >= SUBSCRIPTION_TYPES.length || !valid) {
+            throw new IOException("Malformed request " + opcode + " for user " + userId);
+        }
+        SubscriptionType subscriptionType = SUBSCRIPTION_TYPES[ordinal];
+        return switch (opcode) {
+            case LEASE -> authority.lease(userId, subscriptionType, first, second);
+            case RELEASE -> {
+                authority.release(userId, subscriptionType, first);
+                yield 0;
+            }
+            case NANOS_UNTIL_AVAILABLE -> authority.nanosUntilAvailable(userId, subscriptionType, first);
+            default -> throw new IOException("Unknown opcode " + opcode);
+        };
+    }
+}
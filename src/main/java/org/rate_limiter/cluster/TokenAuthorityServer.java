@@ -0,0 +1,121 @@
+package org.rate_limiter.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves a {@link TokenAuthority} over TCP using {@link TokenAuthorityProtocol}. Each connection is handled on its own
+ * virtual thread; responses are flushed once the client has no further pipelined requests buffered.
+ */
+public class TokenAuthorityServer implements AutoCloseable {
+    private final TokenAuthority authority;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections;
+    private volatile boolean running;
+
+    public TokenAuthorityServer(TokenAuthority authority, InetSocketAddress bindAddress) {
+        this.authority = authority;
+        this.connections = ConcurrentHashMap.newKeySet();
+        try {
+            this.serverSocket = new ServerSocket();
+            serverSocket.bind(bindAddress);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.running = true;
+        Thread.ofPlatform()
+              .daemon()
+              .name("token-authority-acceptor")
+              .start(this::accept);
+    }
+
+    public InetSocketAddress address() {
+        return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+    }
+
+    /**
+     * Closes the server socket and every connection, even when some of them fail to close, and rethrows the first
+     * failure.
+     */
+    @Override
+    public void close() {
+        running = false;
+        IOException failure = closeQuietly(serverSocket, null);
+        for (Socket connection : connections) {
+            failure = closeQuietly(connection, failure);
+        }
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket connection = serverSocket.accept();
+                connection.setTcpNoDelay(true);
+                connections.add(connection);
+                if (!running) {
+                    // Accepted while closing, after close() went through the connections
+                    connection.close();
+                    return;
+                }
+                Thread.ofVirtual()
+                      .name("token-authority-connection")
+                      .start(() -> serve(connection));
+            } catch (IOException e) {
+                if (running) {
+                    Thread.currentThread()
+                          .getUncaughtExceptionHandler()
+                          .uncaughtException(Thread.currentThread(), e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket connection) {
+        try (connection;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))) {
+            while (true) {
+                byte opcode;
+                try {
+                    opcode = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                out.writeLong(TokenAuthorityProtocol.dispatch(authority, in, opcode));
+                if (in.available() < TokenAuthorityProtocol.REQUEST_BYTES) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // The client went away or sent a malformed frame; its connection is dropped
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    private static IOException closeQuietly(Closeable closeable, IOException failure) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                return e;
+            }
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+}
@@ -1,11 +1,28 @@
 package org.rate_limiter.configurations;
 
+import org.rate_limiter.clock.SystemTickSource;
+import org.rate_limiter.clock.TickSource;
+import org.rate_limiter.store.EvictionPolicy;
+
 import java.time.Duration;
 
 public class CommonConfiguration {
 
     public static final double DEFAULT_TOKENS_PER_CREDIT = 1.0;
     public static final Duration EXTRA_CREDITS_VALIDITY_DURATION = Duration.ofDays(5);
+    public static final Duration DEFAULT_CREDIT_EXPIRY_TICK = Duration.ofSeconds(1);
+    // Token buckets pack their tokens into 22 bits, sliding windows their counts into 20 bits
+    public static final long MAX_BUCKET_CAPACITY = (1L << 22) - 1;
+    public static final long MAX_WINDOW_LIMIT = (1L << 20) - 1;
+    public static final int DEFAULT_BUCKET_STORE_SHARDS = 64;
+    public static final int DEFAULT_EXPECTED_USERS = 1 << 16;
+    public static final int DEFAULT_FULL_SNAPSHOT_EVERY = 16;
+    public static final int DEFAULT_SIDECAR_CONNECTIONS = 4;
+    public static final Duration DEFAULT_SIDECAR_CALL_TIMEOUT = Duration.ofSeconds(1);
+    public static final Duration DEFAULT_TOKEN_AUTHORITY_CALL_TIMEOUT = Duration.ofSeconds(1);
+    public static final TickSource DEFAULT_TICK_SOURCE = SystemTickSource.INSTANCE;
+    public static final EvictionPolicy DEFAULT_EVICTION_POLICY = new EvictionPolicy(Duration.ofMinutes(10),
+                                                                                    Long.MAX_VALUE, 64, 256);
 
     private CommonConfiguration() {
     }
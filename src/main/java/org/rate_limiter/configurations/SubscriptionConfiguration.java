@@ -4,8 +4,10 @@ import org.jetbrains.annotations.NotNull;
 import org.rate_limiter.RateParams;
 import org.rate_limiter.RateRequest;
 import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
 import org.rate_limiter.exceptions.InvalidRateParams;
 import org.rate_limiter.exceptions.RateParamsUpdateNotAllowedException;
+import org.rate_limiter.store.ShardedBucketStore;
 
 import java.util.EnumMap;
 import java.util.Map;
@@ -13,6 +15,7 @@ import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
 import static org.rate_limiter.SubscriptionType.*;
+import static org.rate_limiter.configurations.CommonConfiguration.*;
 
 public class SubscriptionConfiguration {
     private SubscriptionConfiguration() {
@@ -20,20 +23,29 @@ public class SubscriptionConfiguration {
     }
     public static final String RATE_PARAMS_FIELDS_ARE_INVALID = "Rate params fields are invalid";
     public static final String NOT_ALLOWED = "Not allowed";
-    private static final Map<SubscriptionType, RateParams> subscriptionTypeRateParamsMap;
+    private static final ShardedBucketStore<UserRateParams> userRateParams = new ShardedBucketStore<>(
+            DEFAULT_BUCKET_STORE_SHARDS, 0);
+    private static volatile SubscriptionSnapshot snapshot;
+    // Last version handed out to a snapshot or an override, guarded by the class lock
+    private static long lastVersion;
 
     static {
-        subscriptionTypeRateParamsMap = new EnumMap<>(
-                Map.ofEntries(Map.entry(FREE_USER, new RateParams(10, new RateRequest(TimeUnit.SECONDS, 2))),
-                              Map.entry(BASIC_USER, new RateParams(15, new RateRequest(TimeUnit.SECONDS, 5))),
-                              Map.entry(PREMIUM_USER, new RateParams(100, new RateRequest(TimeUnit.SECONDS, 20))),
-                              Map.entry(BUSINESS_USER, new RateParams(200, new RateRequest(TimeUnit.SECONDS, 100))),
-                              Map.entry(CUSTOM_USER, new RateParams(10, new RateRequest(TimeUnit.SECONDS, 2)))
-                             ));
+        snapshot = new SubscriptionSnapshot(
+                1, Map.ofEntries(Map.entry(FREE_USER, new RateParams(10, new RateRequest(TimeUnit.SECONDS, 2))),
+                                 Map.entry(BASIC_USER, new RateParams(15, new RateRequest(TimeUnit.SECONDS, 5))),
+                                 Map.entry(PREMIUM_USER, new RateParams(100, new RateRequest(TimeUnit.SECONDS, 20))),
+                                 Map.entry(BUSINESS_USER, new RateParams(200, new RateRequest(TimeUnit.SECONDS, 100))),
+                                 Map.entry(CUSTOM_USER, new RateParams(10, new RateRequest(TimeUnit.SECONDS, 2)))
+                                ));
+        lastVersion = snapshot.version();
+    }
+
+    public static SubscriptionSnapshot currentSnapshot() {
+        return snapshot;
     }
 
     public static Map<SubscriptionType, RateParams> getSubscriptionTypeRateParamsMap() {
-        return subscriptionTypeRateParamsMap;
+        return snapshot.rateParams();
     }
 
     public static void updateSubscriptionConfiguration(@NotNull final SubscriptionType subscriptionType,
@@ -42,13 +54,117 @@ public class SubscriptionConfiguration {
 
         if (subscriptionType != CUSTOM_USER) throw new RateParamsUpdateNotAllowedException(NOT_ALLOWED);
 
-        subscriptionTypeRateParamsMap.put(subscriptionType, rateParams);
+        publish(Map.of(subscriptionType, rateParams));
+    }
+
+    /**
+     * Replaces the rate params of every subscription type in {@code rateParamsByType}, predefined ones included, as
+     * one new snapshot. Nothing is applied if any of them is invalid.
+     */
+    public static void reloadSubscriptionConfiguration(
+            @NotNull final Map<SubscriptionType, RateParams> rateParamsByType) {
+        for (RateParams rateParams : rateParamsByType.values()) {
+            if (isInvalidOrContainsInvalidFields(rateParams)) {
+                throw new InvalidRateParams(RATE_PARAMS_FIELDS_ARE_INVALID);
+            }
+        }
+        publish(rateParamsByType);
+    }
+
+    /**
+     * Returns the override of {@code user} if it has one, the rate params of its subscription type in
+     * {@code current} otherwise. Buckets built from the result stay valid until {@link #configVersionFor} moves on.
+     */
+    public static RateParams rateParamsFor(@NotNull final User user, @NotNull final SubscriptionSnapshot current) {
+        return rateParamsFor(user.getId(), user.getType(), current);
+    }
+
+    public static RateParams rateParamsFor(final long userId, @NotNull final SubscriptionType subscriptionType,
+                                           @NotNull final SubscriptionSnapshot current) {
+        UserRateParams override = userRateParams.get(userId);
+        return override != null ? override.rateParams() : current.rateParams(subscriptionType);
+    }
+
+    /**
+     * Version of the rate params {@code user} gets from {@code current}: the snapshot version, or the version its
+     * override was set at if that is newer. Setting an override only moves the version of that user, so the buckets
+     * of everyone else stay current. Read it before {@link #rateParamsFor}, so a concurrent change is at worst
+     * applied twice.
+     */
+    public static long configVersionFor(@NotNull final User user, @NotNull final SubscriptionSnapshot current) {
+        return configVersionFor(user.getId(), current);
+    }
+
+    public static long configVersionFor(final long userId, @NotNull final SubscriptionSnapshot current) {
+        UserRateParams override = userRateParams.get(userId);
+        return override != null ? Math.max(current.version(), override.version()) : current.version();
+    }
+
+    public static RateParams getUserRateParams(final long userId) {
+        UserRateParams override = userRateParams.get(userId);
+        return override != null ? override.rateParams() : null;
+    }
+
+    /**
+     * Gives one user its own rate params regardless of its subscription type. Overrides are kept in a lock-free
+     * {@link ShardedBucketStore}, so the lookup costs a single probe even for millions of users. Each override is
+     * stamped with a version of its own instead of publishing a new snapshot.
+     */
+    public static synchronized void setUserRateParams(final long userId, @NotNull final RateParams rateParams) {
+        if (isInvalidOrContainsInvalidFields(rateParams)) throw new InvalidRateParams(RATE_PARAMS_FIELDS_ARE_INVALID);
+
+        if (!rateParams.equals(getUserRateParams(userId))) {
+            userRateParams.put(userId, new UserRateParams(rateParams, ++lastVersion));
+        }
+    }
+
+    /**
+     * Removing an override publishes a new snapshot, since no entry is left to carry the user's version.
+     */
+    public static synchronized void removeUserRateParams(final long userId) {
+        UserRateParams override = userRateParams.get(userId);
+        if (override != null && userRateParams.remove(userId, override)) {
+            publishVersion();
+        }
+    }
+
+    public static long userRateParamsCount() {
+        return userRateParams.size();
+    }
+
+    private static synchronized void publishVersion() {
+        snapshot = new SubscriptionSnapshot(++lastVersion, snapshot.rateParams());
+    }
+
+    private static synchronized void publish(Map<SubscriptionType, RateParams> changes) {
+        SubscriptionSnapshot current = snapshot;
+        Map<SubscriptionType, RateParams> rateParams = new EnumMap<>(current.rateParams());
+        rateParams.putAll(changes);
+        if (!rateParams.equals(current.rateParams())) {
+            snapshot = new SubscriptionSnapshot(++lastVersion, rateParams);
+        }
+    }
+
+    /**
+     * Whether every engine can run {@code rateParams}: token buckets hold at most {@link
+     * CommonConfiguration#MAX_BUCKET_CAPACITY} tokens in microsecond ticks, sliding windows count at most {@link
+     * CommonConfiguration#MAX_WINDOW_LIMIT} requests and GCRA needs the burst tolerance in nanoseconds to fit a
+     * {@code long}. Only supported params are ever published, so buckets never fail on a config change.
+     */
+    public static boolean isSupported(RateParams rateParams) {
+        return !isInvalidOrContainsInvalidFields(rateParams);
     }
 
-    private static boolean isInvalidOrContainsInvalidFields(@NotNull RateParams rateParams) {
-        return Objects.isNull(rateParams.rateRequest())
+    private static boolean isInvalidOrContainsInvalidFields(RateParams rateParams) {
+        return Objects.isNull(rateParams)
+                || Objects.isNull(rateParams.rateRequest())
                 || Objects.isNull(rateParams.rateRequest().timeUnit())
                 || rateParams.capacity() <= 0
-                || rateParams.rateRequest().count() <= 0;
+                || rateParams.rateRequest().count() <= 0
+                || rateParams.capacity() > MAX_BUCKET_CAPACITY
+                || Math.min(rateParams.capacity(), rateParams.rateRequest().count()) > MAX_WINDOW_LIMIT
+                || rateParams.rateRequest().timeUnit().toMicros(1) <= 0
+                || Math.ceilDiv(rateParams.rateRequest().timeUnit().toNanos(1), rateParams.rateRequest().count())
+                        > Long.MAX_VALUE / rateParams.capacity();
     }
 }
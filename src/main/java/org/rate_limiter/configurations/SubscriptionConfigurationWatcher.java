@@ -0,0 +1,149 @@
+package org.rate_limiter.configurations;
+
+import org.rate_limiter.RateParams;
+import org.rate_limiter.RateRequest;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.exceptions.InvalidRateParams;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.rate_limiter.configurations.SubscriptionConfiguration.RATE_PARAMS_FIELDS_ARE_INVALID;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.currentSnapshot;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.reloadSubscriptionConfiguration;
+
+/**
+ * Reloads subscription rate params from a properties file whenever it changes. Every subscription type may appear
+ * with {@code <TYPE>.capacity}, {@code <TYPE>.rate} and {@code <TYPE>.timeUnit}; missing keys keep their current
+ * value. A file that fails to parse or validate is reported to the watch thread's uncaught exception handler and the
+ * current snapshot stays in place.
+ */
+public final class SubscriptionConfigurationWatcher implements AutoCloseable {
+    private final Path file;
+    private final WatchService watchService;
+    private final Thread watcher;
+
+    public SubscriptionConfigurationWatcher(Path file) {
+        this.file = file.toAbsolutePath();
+        reload();
+        try {
+            this.watchService = this.file.getFileSystem()
+                                         .newWatchService();
+            this.file.getParent()
+                     .register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                               StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.watcher = Thread.ofPlatform()
+                             .daemon()
+                             .name("subscription-configuration-watcher")
+                             .start(this::watch);
+    }
+
+    public void reload() {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        reloadSubscriptionConfiguration(parse(properties));
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= file.getFileName()
+                                   .equals(event.context());
+                }
+                key.reset();
+                if (changed) {
+                    reloadSafely();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Closed, nothing left to watch
+        }
+    }
+
+    private void reloadSafely() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            watcher.getUncaughtExceptionHandler()
+                   .uncaughtException(watcher, e);
+        }
+    }
+
+    private static Map<SubscriptionType, RateParams> parse(Properties properties) {
+        Map<SubscriptionType, RateParams> current = currentSnapshot().rateParams();
+        Map<SubscriptionType, RateParams> rateParamsByType = new EnumMap<>(SubscriptionType.class);
+        for (String key : properties.stringPropertyNames()) {
+            int separator = key.lastIndexOf('.');
+            SubscriptionType subscriptionType = parseType(separator < 0 ? key : key.substring(0, separator));
+            RateParams rateParams = rateParamsByType.getOrDefault(subscriptionType, current.get(subscriptionType));
+            String value = properties.getProperty(key)
+                                     .trim();
+            rateParamsByType.put(subscriptionType, switch (key.substring(separator + 1)) {
+                case "capacity" -> new RateParams(parseLong(value), rateParams.rateRequest());
+                case "rate" -> new RateParams(rateParams.capacity(), new RateRequest(rateParams.rateRequest()
+                                                                                               .timeUnit(),
+                                                                                     parseLong(value)));
+                case "timeUnit" -> new RateParams(rateParams.capacity(), new RateRequest(parseTimeUnit(value),
+                                                                                         rateParams.rateRequest()
+                                                                                                   .count()));
+                default -> throw new InvalidRateParams("Unknown subscription property " + key);
+            });
+        }
+        return rateParamsByType;
+    }
+
+    private static SubscriptionType parseType(String name) {
+        try {
+            return SubscriptionType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRateParams("Unknown subscription type " + name);
+        }
+    }
+
+    private static TimeUnit parseTimeUnit(String value) {
+        try {
+            return TimeUnit.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRateParams(RATE_PARAMS_FIELDS_ARE_INVALID);
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidRateParams(RATE_PARAMS_FIELDS_ARE_INVALID);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.rate_limiter.configurations;
+
+import org.rate_limiter.RateParams;
+import org.rate_limiter.SubscriptionType;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Immutable view of the rate params of every subscription type. Each update publishes a new snapshot with a higher
+ * {@code version}, so a bucket can tell from a single comparison whether its limits are stale.
+ */
+public record SubscriptionSnapshot(long version, Map<SubscriptionType, RateParams> rateParams) {
+    public SubscriptionSnapshot {
+        rateParams = Collections.unmodifiableMap(new EnumMap<>(rateParams));
+    }
+
+    public RateParams rateParams(SubscriptionType subscriptionType) {
+        return rateParams.get(subscriptionType);
+    }
+}
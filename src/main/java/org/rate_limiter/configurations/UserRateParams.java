@@ -0,0 +1,9 @@
+package org.rate_limiter.configurations;
+
+import org.rate_limiter.RateParams;
+
+/**
+ * Rate params override of one user, stamped with the config version it was set at.
+ */
+record UserRateParams(RateParams rateParams, long version) {
+}
@@ -0,0 +1,9 @@
+package org.rate_limiter.exceptions;
+
+public class AdmissionServerUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public AdmissionServerUnavailableException(String errorMessage, Throwable cause) {
+        super(errorMessage, cause);
+    }
+}
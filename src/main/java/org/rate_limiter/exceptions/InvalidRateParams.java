@@ -1,6 +1,8 @@
 package org.rate_limiter.exceptions;
 
 public class InvalidRateParams extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     public InvalidRateParams(String errorMessage) {
         super(errorMessage);
     }
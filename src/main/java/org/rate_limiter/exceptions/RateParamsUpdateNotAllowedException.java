@@ -1,6 +1,8 @@
 package org.rate_limiter.exceptions;
 
 public class RateParamsUpdateNotAllowedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     public RateParamsUpdateNotAllowedException(String errorMessage) {
         super(errorMessage);
     }
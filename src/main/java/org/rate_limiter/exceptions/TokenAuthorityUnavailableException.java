@@ -0,0 +1,9 @@
+package org.rate_limiter.exceptions;
+
+public class TokenAuthorityUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public TokenAuthorityUnavailableException(String errorMessage, Throwable cause) {
+        super(errorMessage, cause);
+    }
+}
@@ -0,0 +1,85 @@
+package org.rate_limiter.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear histogram of nanosecond latencies. Every power of two is split into {@value #SUB_BUCKETS} buckets, so a
+ * reported percentile is the upper bound of a bucket at most 25% wider than its lower bound. Each bucket is a
+ * {@link LongAdder}, which keeps concurrent recording free of contention.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final LongAdder[] counts;
+
+    public LatencyHistogram() {
+        this.counts = new LongAdder[BUCKETS];
+        for (int index = 0; index < BUCKETS; index++) {
+            counts[index] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        counts[indexOf(Math.max(0, nanos))].increment();
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the {@code quantile} of recorded latencies, or 0 if nothing was
+     * recorded.
+     */
+    public long percentile(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        long[] sums = new long[BUCKETS];
+        long total = 0;
+        for (int index = 0; index < BUCKETS; index++) {
+            sums[index] = counts[index].sum();
+            total += sums[index];
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int index = 0; index < BUCKETS; index++) {
+            seen += sums[index];
+            if (seen >= rank) {
+                return upperBound(index);
+            }
+        }
+        return 0;
+    }
+
+    public void reset() {
+        for (LongAdder bucket : counts) {
+            bucket.reset();
+        }
+    }
+
+    private static int indexOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long mantissa = SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS + 1;
+        // The last bucket wraps around to exactly Long.MAX_VALUE
+        return (mantissa << shift) - 1;
+    }
+}
@@ -0,0 +1,15 @@
+package org.rate_limiter.metrics;
+
+import org.rate_limiter.SubscriptionType;
+
+import java.util.List;
+import java.util.Map;
+
+public record MetricsSnapshot(Map<SubscriptionType, SubscriptionMetrics> subscriptions, long decisions,
+                              long decisionLatencyP50Nanos, long decisionLatencyP99Nanos,
+                              long decisionLatencyP999Nanos, List<SpaceSavingSketch.HeavyHitter> topThrottledUsers) {
+
+    public record SubscriptionMetrics(long allowedRequests, long deniedRequests, long creditAdmissions,
+                                      long bucketCreations, long activeBuckets) {
+    }
+}
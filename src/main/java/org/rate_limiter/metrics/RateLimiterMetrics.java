@@ -0,0 +1,236 @@
+package org.rate_limiter.metrics;
+
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.Admission;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Counters of one rate limiter, pulled with {@link #snapshot()} or over JMX after {@link #register(String)}.
+ * <p>
+ * Every counter is a {@link LongAdder} per subscription type, so request threads only ever add to a striped cell
+ * and all summing happens on the reader side. Top-K tracking of throttled users is optional and sampled: only one
+ * denial in {@code throttleSampleEvery} reaches the {@link SpaceSavingSketch}, which keeps its lock off the hot path.
+ */
+public class RateLimiterMetrics implements RateLimiterMetricsMXBean {
+    public static final String OBJECT_NAME_PREFIX = "org.rate_limiter:type=RateLimiterMetrics,name=";
+    private static final int SKETCH_COUNTERS_PER_USER = 4;
+
+    private final LongAdder[] allowedRequests;
+    private final LongAdder[] deniedRequests;
+    private final LongAdder[] creditAdmissions;
+    private final LongAdder[] bucketCreations;
+    private final LatencyHistogram decisionLatency;
+    private final int topThrottledUsers;
+    private final int throttleSampleEvery;
+    private final SpaceSavingSketch throttledUsers;
+    private volatile ToLongFunction<SubscriptionType> activeBuckets;
+
+    public RateLimiterMetrics() {
+        this(0, 1);
+    }
+
+    /**
+     * Tracks the {@code topThrottledUsers} most throttled user ids from one in {@code throttleSampleEvery} denials;
+     * 0 users turns tracking off.
+     */
+    public RateLimiterMetrics(int topThrottledUsers, int throttleSampleEvery) {
+        if (topThrottledUsers < 0 || throttleSampleEvery <= 0) {
+            throw new IllegalArgumentException("Top throttled users must be non negative and sample rate positive");
+        }
+        this.allowedRequests = newAdders();
+        this.deniedRequests = newAdders();
+        this.creditAdmissions = newAdders();
+        this.bucketCreations = newAdders();
+        this.decisionLatency = new LatencyHistogram();
+        this.topThrottledUsers = topThrottledUsers;
+        this.throttleSampleEvery = throttleSampleEvery;
+        this.throttledUsers = topThrottledUsers == 0 ? null
+                : new SpaceSavingSketch(SKETCH_COUNTERS_PER_USER * topThrottledUsers);
+        this.activeBuckets = subscriptionType -> 0;
+    }
+
+    public void recordDecision(User user, Admission admission, long latencyNanos) {
+        int subscription = user.getType()
+                               .ordinal();
+        switch (admission) {
+            case TOKENS -> allowedRequests[subscription].increment();
+            case CREDITS -> {
+                allowedRequests[subscription].increment();
+                creditAdmissions[subscription].increment();
+            }
+            case DENIED -> {
+                deniedRequests[subscription].increment();
+                if (throttledUsers != null && sampled()) {
+                    throttledUsers.add(user.getId(), throttleSampleEvery);
+                }
+            }
+        }
+        decisionLatency.record(latencyNanos);
+    }
+
+    public void recordBucketCreation(SubscriptionType subscriptionType) {
+        bucketCreations[subscriptionType.ordinal()].increment();
+    }
+
+    /**
+     * Lets the owning rate limiter report its resident buckets per subscription type, read on demand.
+     */
+    public void trackActiveBuckets(ToLongFunction<SubscriptionType> activeBuckets) {
+        this.activeBuckets = activeBuckets;
+    }
+
+    public LatencyHistogram decisionLatency() {
+        return decisionLatency;
+    }
+
+    public MetricsSnapshot snapshot() {
+        Map<SubscriptionType, MetricsSnapshot.SubscriptionMetrics> subscriptions =
+                new EnumMap<>(SubscriptionType.class);
+        for (SubscriptionType subscriptionType : SubscriptionType.values()) {
+            int subscription = subscriptionType.ordinal();
+            subscriptions.put(subscriptionType, new MetricsSnapshot.SubscriptionMetrics(
+                    allowedRequests[subscription].sum(), deniedRequests[subscription].sum(),
+                    creditAdmissions[subscription].sum(), bucketCreations[subscription].sum(),
+                    activeBuckets.applyAsLong(subscriptionType)));
+        }
+        return new MetricsSnapshot(subscriptions, decisionLatency.count(), decisionLatency.percentile(0.5),
+                                   decisionLatency.percentile(0.99), decisionLatency.percentile(0.999),
+                                   topThrottled());
+    }
+
+    public ObjectName register(String name) {
+        try {
+            ObjectName objectName = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer()
+                             .registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register rate limiter metrics " + name, e);
+        }
+    }
+
+    public void unregister(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                             .unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not unregister rate limiter metrics " + objectName, e);
+        }
+    }
+
+    @Override
+    public long getAllowedRequests() {
+        return sum(allowedRequests);
+    }
+
+    @Override
+    public long getDeniedRequests() {
+        return sum(deniedRequests);
+    }
+
+    @Override
+    public long getCreditAdmissions() {
+        return sum(creditAdmissions);
+    }
+
+    @Override
+    public long getBucketCreations() {
+        return sum(bucketCreations);
+    }
+
+    @Override
+    public Map<String, Long> getAllowedRequestsBySubscription() {
+        return bySubscription(subscriptionType -> allowedRequests[subscriptionType.ordinal()].sum());
+    }
+
+    @Override
+    public Map<String, Long> getDeniedRequestsBySubscription() {
+        return bySubscription(subscriptionType -> deniedRequests[subscriptionType.ordinal()].sum());
+    }
+
+    @Override
+    public Map<String, Long> getActiveBucketsBySubscription() {
+        return bySubscription(activeBuckets);
+    }
+
+    @Override
+    public long getDecisionLatencyP50Nanos() {
+        return decisionLatency.percentile(0.5);
+    }
+
+    @Override
+    public long getDecisionLatencyP99Nanos() {
+        return decisionLatency.percentile(0.99);
+    }
+
+    @Override
+    public long getDecisionLatencyP999Nanos() {
+        return decisionLatency.percentile(0.999);
+    }
+
+    @Override
+    public Map<Long, Long> getTopThrottledUsers() {
+        Map<Long, Long> topUsers = new LinkedHashMap<>();
+        for (SpaceSavingSketch.HeavyHitter heavyHitter : topThrottled()) {
+            topUsers.put(heavyHitter.id(), heavyHitter.count());
+        }
+        return topUsers;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder[] adders : List.of(allowedRequests, deniedRequests, creditAdmissions, bucketCreations)) {
+            for (LongAdder adder : adders) {
+                adder.reset();
+            }
+        }
+        decisionLatency.reset();
+        if (throttledUsers != null) {
+            throttledUsers.reset();
+        }
+    }
+
+    private boolean sampled() {
+        return throttleSampleEvery == 1 || ThreadLocalRandom.current()
+                                                            .nextInt(throttleSampleEvery) == 0;
+    }
+
+    private List<SpaceSavingSketch.HeavyHitter> topThrottled() {
+        return throttledUsers == null ? List.of() : throttledUsers.top(topThrottledUsers);
+    }
+
+    private static Map<String, Long> bySubscription(ToLongFunction<SubscriptionType> counter) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (SubscriptionType subscriptionType : SubscriptionType.values()) {
+            counts.put(subscriptionType.name(), counter.applyAsLong(subscriptionType));
+        }
+        return counts;
+    }
+
+    private static long sum(LongAdder[] adders) {
+        long sum = 0;
+        for (LongAdder adder : adders) {
+            sum += adder.sum();
+        }
+        return sum;
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[SubscriptionType.values().length];
+        for (int index = 0; index < adders.length; index++) {
+            adders[index] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -0,0 +1,35 @@
+package org.rate_limiter.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link RateLimiterMetrics}. Per subscription maps are keyed by the {@code SubscriptionType} name.
+ */
+public interface RateLimiterMetricsMXBean {
+    long getAllowedRequests();
+
+    long getDeniedRequests();
+
+    long getCreditAdmissions();
+
+    long getBucketCreations();
+
+    Map<String, Long> getAllowedRequestsBySubscription();
+
+    Map<String, Long> getDeniedRequestsBySubscription();
+
+    Map<String, Long> getActiveBucketsBySubscription();
+
+    long getDecisionLatencyP50Nanos();
+
+    long getDecisionLatencyP99Nanos();
+
+    long getDecisionLatencyP999Nanos();
+
+    /**
+     * Estimated denials of the most throttled user ids, empty unless top-K tracking is enabled.
+     */
+    Map<Long, Long> getTopThrottledUsers();
+
+    void reset();
+}
@@ -0,0 +1,79 @@
+package org.rate_limiter.metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-saving sketch of the most frequent user ids in a stream, using a fixed number of counters. An id that is
+ * not tracked takes over the counter with the smallest count and inherits that count as its error, so every id that
+ * occurs more than {@code total / capacity} times is guaranteed to be tracked and no count is underestimated.
+ */
+public class SpaceSavingSketch {
+    private final long[] ids;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<Long, Integer> slots;
+    private int size;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.ids = new long[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.slots = new HashMap<>(2 * capacity);
+    }
+
+    public synchronized void add(long id, long weight) {
+        Integer slot = slots.get(id);
+        if (slot != null) {
+            counts[slot] += weight;
+            return;
+        }
+        if (size < ids.length) {
+            put(size++, id, weight, 0);
+            return;
+        }
+        int smallest = 0;
+        for (int index = 1; index < size; index++) {
+            if (counts[index] < counts[smallest]) {
+                smallest = index;
+            }
+        }
+        slots.remove(ids[smallest]);
+        put(smallest, id, counts[smallest] + weight, counts[smallest]);
+    }
+
+    /**
+     * Returns up to {@code limit} tracked ids, most frequent first.
+     */
+    public synchronized List<HeavyHitter> top(int limit) {
+        List<HeavyHitter> heavyHitters = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            heavyHitters.add(new HeavyHitter(ids[index], counts[index], errors[index]));
+        }
+        heavyHitters.sort((first, second) -> Long.compare(second.count(), first.count()));
+        return List.copyOf(heavyHitters.subList(0, Math.min(limit, heavyHitters.size())));
+    }
+
+    public synchronized void reset() {
+        slots.clear();
+        size = 0;
+    }
+
+    private void put(int slot, long id, long count, long error) {
+        ids[slot] = id;
+        counts[slot] = count;
+        errors[slot] = error;
+        slots.put(id, slot);
+    }
+
+    /**
+     * A tracked id; its true count lies between {@code count - error} and {@code count}.
+     */
+    public record HeavyHitter(long id, long count, long error) {
+    }
+}
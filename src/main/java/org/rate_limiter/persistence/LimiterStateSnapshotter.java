@@ -0,0 +1,219 @@
+package org.rate_limiter.persistence;
+
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.PaidCredit;
+import org.rate_limiter.algo.AdmissionBucket;
+import org.rate_limiter.algo.BucketRateLimiter;
+import org.rate_limiter.clock.TickSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_FULL_SNAPSHOT_EVERY;
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_TICK_SOURCE;
+import static org.rate_limiter.persistence.SnapshotFormat.*;
+
+/**
+ * Writes the buckets and paid credits of a {@link BucketRateLimiter} to a file that {@link RestoredLimiterState}
+ * loads after a restart.
+ * <p>
+ * Buckets are read with the same lock-free reads as requests, so snapshots never stop request threads. A full
+ * snapshot is written to a temporary file and moved over the previous one; in between, incremental snapshots append
+ * a frame with the buckets the store marked dirty since the last snapshot. Credits bought by a user without any
+ * request since are only picked up by the next full snapshot. A full snapshot also carries over records the limiter
+ * has not restored yet, with their original time, so a second restart loses nothing but their refill.
+ */
+public class LimiterStateSnapshotter {
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private final BucketRateLimiter rateLimiter;
+    private final Path file;
+    private final int fullSnapshotEvery;
+    private final TickSource tickSource;
+    private final ByteBuffer buffer;
+    private final CRC32C checksum;
+    private long validBytes;
+    private long snapshots;
+
+    public LimiterStateSnapshotter(BucketRateLimiter rateLimiter, Path file) {
+        this(rateLimiter, file, DEFAULT_FULL_SNAPSHOT_EVERY, DEFAULT_TICK_SOURCE);
+    }
+
+    public LimiterStateSnapshotter(BucketRateLimiter rateLimiter, Path file, int fullSnapshotEvery,
+                                   TickSource tickSource) {
+        if (fullSnapshotEvery <= 0) {
+            throw new IllegalArgumentException("Full snapshot interval must be positive");
+        }
+        this.rateLimiter = rateLimiter;
+        this.file = file;
+        this.fullSnapshotEvery = fullSnapshotEvery;
+        this.tickSource = tickSource;
+        this.buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        this.checksum = new CRC32C();
+    }
+
+    /**
+     * Writes a full snapshot every {@code fullSnapshotEvery} calls, starting with the first, and an incremental one
+     * otherwise. Returns the number of records written.
+     */
+    public synchronized int snapshot() {
+        return snapshots % fullSnapshotEvery == 0 ? writeFull() : writeIncremental();
+    }
+
+    public synchronized int writeFull() {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            int records;
+            try (FileChannel channel = FileChannel.open(temporary, CREATE, WRITE, TRUNCATE_EXISTING)) {
+                records = writeFrame(channel, 0, FULL);
+                validBytes = channel.size();
+            }
+            Files.move(temporary, file, ATOMIC_MOVE, REPLACE_EXISTING);
+            snapshots++;
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends the buckets touched since the previous snapshot, or writes a full snapshot if this snapshotter has not
+     * written one yet. A frame torn by an earlier failure is cut off first.
+     */
+    public synchronized int writeIncremental() {
+        if (snapshots == 0) {
+            return writeFull();
+        }
+        try (FileChannel channel = FileChannel.open(file, WRITE)) {
+            channel.truncate(validBytes);
+            int records = writeFrame(channel, validBytes, INCREMENTAL);
+            validBytes = channel.size();
+            snapshots++;
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Snapshots every {@code period} on {@code executor}. A failed snapshot is reported to the executing thread's
+     * uncaught exception handler and the schedule goes on.
+     */
+    public ScheduledFuture<?> schedule(ScheduledExecutorService executor, Duration period) {
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (UncheckedIOException e) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler()
+                      .uncaughtException(thread, e);
+            }
+        }, period.toNanos(), period.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Writes a zeroed header, the records and then the real header, forcing the records to disk before the header
+     * so a frame is never valid before its payload is durable.
+     */
+    private int writeFrame(FileChannel channel, long start, int kind) throws IOException {
+        channel.write(ByteBuffer.allocate(FRAME_HEADER_BYTES), start);
+        channel.position(start + FRAME_HEADER_BYTES);
+        checksum.reset();
+        buffer.clear();
+        int[] records = {0};
+        try {
+            RestoredLimiterState restoredState = rateLimiter.restoredState();
+            if (kind == FULL && restoredState != null) {
+                restoredState.forEachPending(record -> {
+                    copyRecord(channel, record);
+                    records[0]++;
+                });
+            }
+            rateLimiter.forEachBucket(kind == INCREMENTAL, (id, bucket) -> {
+                writeRecord(channel, id, bucket);
+                records[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        flush(channel);
+        channel.force(false);
+        long payloadBytes = channel.position() - start - FRAME_HEADER_BYTES;
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES)
+                                      .putInt(MAGIC)
+                                      .putInt(kind)
+                                      .putLong(tickSource.epochNanos())
+                                      .putInt(records[0])
+                                      .putLong(payloadBytes)
+                                      .putInt((int) checksum.getValue())
+                                      .flip();
+        channel.write(header, start);
+        channel.force(false);
+        return records[0];
+    }
+
+    private void writeRecord(FileChannel channel, long id, AdmissionBucket bucket) {
+        CreditLedger creditLedger = bucket.creditLedger();
+        List<PaidCredit> paidCredits = creditLedger.availableTokens() == 0 ? List.of()
+                : creditLedger.getPaidCredits();
+        ensureRoom(channel, RECORD_BYTES);
+        buffer.putLong(id)
+              .putLong(bucket.availableTokens())
+              .putInt(paidCredits.size());
+        for (PaidCredit paidCredit : paidCredits) {
+            ensureRoom(channel, CREDIT_BYTES);
+            buffer.putLong(paidCredit.remainingTokens()
+                                     .get())
+                  .putLong(paidCredit.expiryEpochNanos());
+        }
+    }
+
+    private void copyRecord(FileChannel channel, ByteBuffer record) {
+        if (record.remaining() <= buffer.capacity()) {
+            ensureRoom(channel, record.remaining());
+            buffer.put(record);
+            return;
+        }
+        try {
+            flush(channel);
+            checksum.update(record.duplicate());
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void ensureRoom(FileChannel channel, int bytes) {
+        if (buffer.remaining() < bytes) {
+            try {
+                flush(channel);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void flush(FileChannel channel) throws IOException {
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
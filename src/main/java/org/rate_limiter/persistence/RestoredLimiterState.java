@@ -0,0 +1,214 @@
+package org.rate_limiter.persistence;
+
+import org.rate_limiter.PaidCredit;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.algo.AdmissionBucket;
+import org.rate_limiter.clock.TickSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_TICK_SOURCE;
+import static org.rate_limiter.persistence.SnapshotFormat.*;
+
+/**
+ * Limiter state loaded from a file written by {@link LimiterStateSnapshotter}. The file is memory-mapped and only
+ * indexed at load, by an open addressing table from user id to record offset; records are decoded when the user's
+ * bucket is created again, so a restart does not wait for millions of buckets to be rebuilt.
+ * <p>
+ * Each record is restored at most once: the tokens it held are topped up with what the bucket would have refilled
+ * since the record's frame was written, and its paid credits go back into the bucket's ledger with their original
+ * expiry. Frames after a torn or corrupted one are ignored.
+ */
+public class RestoredLimiterState {
+    private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long TAKEN = -1;
+    private static final int OFFSET_BITS = 31;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    private final ByteBuffer mapped;
+    private final long[] frameEpochNanos;
+    private final long[] ids;
+    private final long[] entries;
+    private final int mask;
+    private final TickSource tickSource;
+
+    private RestoredLimiterState(ByteBuffer mapped, long[] frameEpochNanos, long[] ids, long[] entries,
+                                 TickSource tickSource) {
+        this.mapped = mapped;
+        this.frameEpochNanos = frameEpochNanos;
+        this.ids = ids;
+        this.entries = entries;
+        this.mask = ids.length - 1;
+        this.tickSource = tickSource;
+    }
+
+    public static RestoredLimiterState load(Path file) {
+        return load(file, DEFAULT_TICK_SOURCE);
+    }
+
+    /**
+     * Maps and indexes {@code file}; a missing file restores nothing.
+     */
+    public static RestoredLimiterState load(Path file, TickSource tickSource) {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Limiter state file is too large to map: " + file);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            mapped = ByteBuffer.allocate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<long[]> frames = validFrames(mapped);
+        long records = 0;
+        for (long[] frame : frames) {
+            records += frame[2];
+        }
+        int slots = Math.max(16, Integer.highestOneBit((int) Math.min(1 << 30, 2 * records + 1)) << 1);
+        RestoredLimiterState state = new RestoredLimiterState(mapped, new long[frames.size()], new long[slots],
+                                                              new long[slots], tickSource);
+        for (int frame = 0; frame < frames.size(); frame++) {
+            state.frameEpochNanos[frame] = frames.get(frame)[1];
+            int offset = (int) frames.get(frame)[0] + FRAME_HEADER_BYTES;
+            for (long record = 0; record < frames.get(frame)[2]; record++) {
+                state.index(mapped.getLong(offset), (long) frame << OFFSET_BITS | offset);
+                offset += recordBytes(mapped, offset);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Restores the persisted state of {@code userId} into its newly created {@code bucket}. Returns false when the
+     * user has no record or it was already restored.
+     */
+    public boolean restore(long userId, AdmissionBucket bucket, RateParams rateParams) {
+        long entry = take(userId);
+        if (entry <= 0) {
+            return false;
+        }
+        int offset = (int) (entry & OFFSET_MASK);
+        long downtimeNanos = Math.max(0, tickSource.epochNanos() - frameEpochNanos[(int) (entry >>> OFFSET_BITS)]);
+        long tokens = mapped.getLong(offset + TOKENS_OFFSET);
+        bucket.restoreTokens(Math.min(rateParams.capacity(), tokens + refilledDuring(downtimeNanos, rateParams)),
+                             tickSource.nanoTime());
+        int credits = mapped.getInt(offset + CREDITS_OFFSET);
+        if (credits > 0) {
+            List<PaidCredit> paidCredits = new ArrayList<>(credits);
+            for (int credit = 0; credit < credits; credit++) {
+                int creditOffset = offset + RECORD_BYTES + credit * CREDIT_BYTES;
+                paidCredits.add(new PaidCredit(new AtomicLong(mapped.getLong(creditOffset)),
+                                               mapped.getLong(creditOffset + Long.BYTES)));
+            }
+            bucket.creditLedger()
+                  .restorePaidCredits(paidCredits);
+        }
+        return true;
+    }
+
+    public long pendingRecords() {
+        long pending = 0;
+        for (int slot = 0; slot < entries.length; slot++) {
+            if ((long) ENTRIES.getAcquire(entries, slot) > 0) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Visits the raw bytes of every record not restored yet, so a full snapshot can carry them over.
+     */
+    void forEachPending(PendingRecordVisitor visitor) {
+        for (int slot = 0; slot < entries.length; slot++) {
+            long entry = (long) ENTRIES.getAcquire(entries, slot);
+            if (entry > 0) {
+                int offset = (int) (entry & OFFSET_MASK);
+                visitor.visit(mapped.slice(offset, recordBytes(mapped, offset)));
+            }
+        }
+    }
+
+    private void index(long id, long entry) {
+        int slot = slotFor(id);
+        ids[slot] = id;
+        entries[slot] = entry;
+    }
+
+    private long take(long id) {
+        int slot = slotFor(id);
+        long entry = (long) ENTRIES.getAcquire(entries, slot);
+        return entry > 0 ? (long) ENTRIES.getAndSet(entries, slot, TAKEN) : entry;
+    }
+
+    private int slotFor(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 29)) & mask;
+        while (entries[slot] != 0 && ids[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Returns {offset, epoch nanos, record count} of every intact frame from the last full one on.
+     */
+    private static List<long[]> validFrames(ByteBuffer mapped) {
+        List<long[]> frames = new ArrayList<>();
+        CRC32C checksum = new CRC32C();
+        int offset = 0;
+        while (mapped.limit() - offset >= FRAME_HEADER_BYTES) {
+            int kind = mapped.getInt(offset + Integer.BYTES);
+            long epochNanos = mapped.getLong(offset + 2 * Integer.BYTES);
+            int records = mapped.getInt(offset + 2 * Integer.BYTES + Long.BYTES);
+            long payloadBytes = mapped.getLong(offset + 3 * Integer.BYTES + Long.BYTES);
+            if (mapped.getInt(offset) != MAGIC || kind != FULL && kind != INCREMENTAL || records < 0
+                    || payloadBytes < (long) records * RECORD_BYTES
+                    || payloadBytes > mapped.limit() - offset - FRAME_HEADER_BYTES) {
+                break;
+            }
+            checksum.reset();
+            checksum.update(mapped.slice(offset + FRAME_HEADER_BYTES, (int) payloadBytes));
+            if ((int) checksum.getValue() != mapped.getInt(offset + FRAME_HEADER_BYTES - Integer.BYTES)) {
+                break;
+            }
+            if (kind == FULL) {
+                frames.clear();
+            }
+            frames.add(new long[]{offset, epochNanos, records});
+            offset += FRAME_HEADER_BYTES + (int) payloadBytes;
+        }
+        return frames;
+    }
+
+    private static int recordBytes(ByteBuffer mapped, int offset) {
+        return RECORD_BYTES + mapped.getInt(offset + CREDITS_OFFSET) * CREDIT_BYTES;
+    }
+
+    private static long refilledDuring(long downtimeNanos, RateParams rateParams) {
+        double refilled = (double) downtimeNanos * rateParams.rateRequest()
+                                                             .count() / rateParams.rateRequest()
+                                                                                  .timeUnit()
+                                                                                  .toNanos(1);
+        return (long) Math.min(rateParams.capacity(), refilled);
+    }
+
+    @FunctionalInterface
+    interface PendingRecordVisitor {
+        void visit(ByteBuffer record);
+    }
+}
@@ -0,0 +1,24 @@
+package org.rate_limiter.persistence;
+
+/**
+ * Layout of a limiter state file: a sequence of frames, each a {@value #FRAME_HEADER_BYTES} byte header (magic,
+ * kind, wall-clock time in epoch nanos, record count, payload length and a CRC32C of the payload) followed by its
+ * records. A record is the user id, the tokens the bucket held at the frame's time and the paid credits as pairs of
+ * remaining tokens and expiry in epoch nanos. All values are big-endian.
+ * <p>
+ * A {@link #FULL} frame holds every bucket and supersedes everything before it, an {@link #INCREMENTAL} frame only
+ * the buckets touched since the previous frame. The header is written last, so a frame torn by a crash ends the file.
+ */
+final class SnapshotFormat {
+    static final int MAGIC = 0x524C5331;
+    static final int FULL = 1;
+    static final int INCREMENTAL = 2;
+    static final int FRAME_HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    static final int RECORD_BYTES = 2 * Long.BYTES + Integer.BYTES;
+    static final int CREDIT_BYTES = 2 * Long.BYTES;
+    static final int TOKENS_OFFSET = Long.BYTES;
+    static final int CREDITS_OFFSET = 2 * Long.BYTES;
+
+    private SnapshotFormat() {
+    }
+}
@@ -0,0 +1,270 @@
+package org.rate_limiter.sidecar;
+
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.algo.AdmissionBitmap;
+import org.rate_limiter.exceptions.AdmissionServerUnavailableException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.rate_limiter.algo.TokenBucket.PERMITS_MUST_BE_POSITIVE;
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_SIDECAR_CALL_TIMEOUT;
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_SIDECAR_CONNECTIONS;
+import static org.rate_limiter.sidecar.AdmissionProtocol.MAX_BATCH_REQUESTS;
+
+/**
+ * Client for an {@link AdmissionServer} with a fixed pool of connections picked round robin. Calls are pipelined:
+ * a frame is written as soon as it is made and a reader thread per connection completes the pending calls in order,
+ * so one connection carries any number of concurrent calls.
+ * <p>
+ * A broken connection fails its pending calls with {@link AdmissionServerUnavailableException} and is reopened by
+ * the next call that picks it. A call the server does not answer within the call timeout fails the same way, while
+ * its connection stays open for the calls behind it.
+ */
+public class AdmissionClient implements AutoCloseable {
+    private final InetSocketAddress address;
+    private final AtomicReferenceArray<Connection> connections;
+    private final AtomicInteger nextConnection;
+    private final Duration callTimeout;
+    private volatile boolean closed;
+
+    public AdmissionClient(InetSocketAddress address) {
+        this(address, DEFAULT_SIDECAR_CONNECTIONS);
+    }
+
+    public AdmissionClient(InetSocketAddress address, int poolSize) {
+        this(address, poolSize, DEFAULT_SIDECAR_CALL_TIMEOUT);
+    }
+
+    public AdmissionClient(InetSocketAddress address, int poolSize, Duration callTimeout) {
+        if (poolSize <= 0 || callTimeout.isNegative() || callTimeout.isZero()) {
+            throw new IllegalArgumentException("Pool size and call timeout must be positive");
+        }
+        this.address = address;
+        this.connections = new AtomicReferenceArray<>(poolSize);
+        this.nextConnection = new AtomicInteger();
+        this.callTimeout = callTimeout;
+    }
+
+    public boolean allowRequest(long userId, SubscriptionType subscriptionType, long permits) {
+        return join(allowRequestAsync(userId, subscriptionType, permits));
+    }
+
+    public CompletableFuture<Boolean> allowRequestAsync(long userId, SubscriptionType subscriptionType, long permits) {
+        return allowRequestsAsync(new long[]{userId}, new SubscriptionType[]{subscriptionType}, new long[]{permits})
+                .thenApply(allowedBitmap -> AdmissionBitmap.isAllowed(allowedBitmap, 0));
+    }
+
+    /**
+     * Decides the requests in one frame and sets bit {@code i} of {@code allowedBitmap} when request {@code i} is
+     * admitted, like {@link org.rate_limiter.algo.RateLimiter#allowRequests(org.rate_limiter.User[], long[])}.
+     */
+    public void allowRequests(long[] userIds, SubscriptionType[] subscriptionTypes, long[] permits,
+                              long[] allowedBitmap) {
+        long[] decided = join(allowRequestsAsync(userIds, subscriptionTypes, permits));
+        if (allowedBitmap.length < decided.length) {
+            throw new IllegalArgumentException("Bitmap of " + allowedBitmap.length + " words cannot hold "
+                                                       + userIds.length + " results");
+        }
+        System.arraycopy(decided, 0, allowedBitmap, 0, decided.length);
+    }
+
+    public CompletableFuture<long[]> allowRequestsAsync(long[] userIds, SubscriptionType[] subscriptionTypes,
+                                                        long[] permits) {
+        int count = userIds.length;
+        if (count == 0 || count > MAX_BATCH_REQUESTS || subscriptionTypes.length != count
+                || permits.length != count) {
+            throw new IllegalArgumentException("A batch holds 1 to " + MAX_BATCH_REQUESTS
+                                                       + " requests with one type and permit count each");
+        }
+        for (long permit : permits) {
+            if (permit <= 0) {
+                throw new IllegalArgumentException(PERMITS_MUST_BE_POSITIVE);
+            }
+        }
+        return connection().send(userIds, subscriptionTypes, permits)
+                           .orTimeout(callTimeout.toNanos(), TimeUnit.NANOSECONDS)
+                           .exceptionallyCompose(failure -> CompletableFuture.failedFuture(
+                                   failure instanceof TimeoutException ? new AdmissionServerUnavailableException(
+                                           "Admission server at " + address + " did not answer within "
+                                                   + callTimeout, failure) : failure));
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (int index = 0; index < connections.length(); index++) {
+            Connection connection = connections.getAndSet(index, null);
+            if (connection != null) {
+                connection.shutdown();
+            }
+        }
+    }
+
+    private Connection connection() {
+        int index = Math.floorMod(nextConnection.getAndIncrement(), connections.length());
+        Connection connection = connections.get(index);
+        if (connection != null && !connection.broken) {
+            return connection;
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new AdmissionServerUnavailableException("Admission client is closed", null);
+            }
+            connection = connections.get(index);
+            if (connection == null || connection.broken) {
+                connection = new Connection(address);
+                connections.set(index, connection);
+            }
+            return connection;
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof AdmissionServerUnavailableException unavailable) {
+                throw unavailable;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Connection {
+        private final InetSocketAddress address;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final ReentrantLock writeLock;
+        private final ConcurrentLinkedQueue<PendingCall> pendingCalls;
+        private final Thread reader;
+        private volatile boolean broken;
+
+        private Connection(InetSocketAddress address) {
+            this.address = address;
+            this.socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(address);
+                this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            } catch (IOException e) {
+                close();
+                throw unavailable(address, e);
+            }
+            this.writeLock = new ReentrantLock();
+            this.pendingCalls = new ConcurrentLinkedQueue<>();
+            this.reader = Thread.ofVirtual()
+                                .name("admission-client-reader")
+                                .start(this::read);
+        }
+
+        private CompletableFuture<long[]> send(long[] userIds, SubscriptionType[] subscriptionTypes,
+                                               long[] permits) {
+            PendingCall pendingCall = new PendingCall(new CompletableFuture<>(), userIds.length);
+            writeLock.lock();
+            try {
+                if (broken) {
+                    pendingCall.future()
+                               .completeExceptionally(unavailable(address, null));
+                    return pendingCall.future();
+                }
+                // Queued before writing so the reader can never see a response without its call
+                pendingCalls.add(pendingCall);
+                AdmissionProtocol.writeRequests(out, userIds, subscriptionTypes, permits);
+                out.flush();
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                writeLock.unlock();
+            }
+            return pendingCall.future();
+        }
+
+        private void read() {
+            try {
+                readResponses();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private void readResponses() throws IOException {
+            while (true) {
+                int count = AdmissionProtocol.readResponseCount(in);
+                PendingCall pendingCall = pendingCalls.peek();
+                if (pendingCall == null || pendingCall.count() != count) {
+                    throw new IOException("Response for " + count + " requests matches no pending call");
+                }
+                long[] allowedBitmap = AdmissionProtocol.readResponseBitmap(in, count);
+                pendingCalls.poll()
+                            .future()
+                            .complete(allowedBitmap);
+            }
+        }
+
+        /**
+         * Fails the pending calls and waits for the reader to stop.
+         */
+        private void shutdown() {
+            fail(new IOException("Client closed"));
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                      .interrupt();
+            }
+        }
+
+        /**
+         * Closes the socket before taking the write lock, so a writer blocked on a full socket buffer fails instead of
+         * holding the lock forever.
+         */
+        private void fail(IOException cause) {
+            broken = true;
+            close();
+            writeLock.lock();
+            try {
+                AdmissionServerUnavailableException exception = unavailable(address, cause);
+                PendingCall pendingCall;
+                while ((pendingCall = pendingCalls.poll()) != null) {
+                    pendingCall.future()
+                               .completeExceptionally(exception);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+
+        private static AdmissionServerUnavailableException unavailable(InetSocketAddress address, IOException cause) {
+            return new AdmissionServerUnavailableException("Admission server at " + address + " is unavailable",
+                                                           cause);
+        }
+    }
+
+    private record PendingCall(CompletableFuture<long[]> future, int count) {
+    }
+}
@@ -0,0 +1,124 @@
+package org.rate_limiter.sidecar;
+
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.AdmissionBitmap;
+import org.rate_limiter.algo.RateLimiter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Wire format between {@link AdmissionClient} and {@link AdmissionServer}. Every frame starts with the length of the
+ * rest of the frame as an int, followed by the number of decisions it carries:
+ * <pre>
+ * request:  length | count | count * (user id: long, subscription ordinal: byte, permits: long)
+ * response: length | count | ceil(count / 64) * long, bit i set when request i was admitted
+ * </pre>
+ * Responses come back in request order on the same connection, so a client may pipeline any number of frames
+ * without correlation ids. The response words use the {@link AdmissionBitmap} layout.
+ */
+final class AdmissionProtocol {
+    static final int MAX_BATCH_REQUESTS = 4096;
+    static final int REQUEST_BYTES = Long.BYTES + 1 + Long.BYTES;
+
+    private static final SubscriptionType[] SUBSCRIPTION_TYPES = SubscriptionType.values();
+    private static final int USER_CACHE_SLOTS = 1024;
+
+    private AdmissionProtocol() {
+    }
+
+    static void writeRequests(DataOutputStream out, long[] userIds, SubscriptionType[] subscriptionTypes,
+                              long[] permits) throws IOException {
+        int count = userIds.length;
+        out.writeInt(Integer.BYTES + count * REQUEST_BYTES);
+        out.writeInt(count);
+        for (int index = 0; index < count; index++) {
+            out.writeLong(userIds[index]);
+            out.writeByte(subscriptionTypes[index].ordinal());
+            out.writeLong(permits[index]);
+        }
+    }
+
+    /**
+     * Reads the header of a response frame and returns the number of decisions it carries.
+     */
+    static int readResponseCount(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        int count = in.readInt();
+        if (count <= 0 || count > MAX_BATCH_REQUESTS
+                || length != Integer.BYTES + AdmissionBitmap.forRequests(count).length * Long.BYTES) {
+            throw new IOException("Malformed response of " + length + " bytes for " + count + " requests");
+        }
+        return count;
+    }
+
+    static long[] readResponseBitmap(DataInputStream in, int count) throws IOException {
+        long[] allowedBitmap = AdmissionBitmap.forRequests(count);
+        for (int word = 0; word < allowedBitmap.length; word++) {
+            allowedBitmap[word] = in.readLong();
+        }
+        return allowedBitmap;
+    }
+
+    /**
+     * Reads one request frame, decides it with {@code rateLimiter} and writes the response without flushing.
+     * Single-permit batches go through {@link RateLimiter#allowRequests(User[], long[])} so a limiter can decide
+     * them together.
+     */
+    static void dispatch(RateLimiter rateLimiter, UserCache userCache, DataInputStream in, DataOutputStream out)
+            throws IOException {
+        int length = in.readInt();
+        int count = in.readInt();
+        if (count <= 0 || count > MAX_BATCH_REQUESTS || length != Integer.BYTES + count * REQUEST_BYTES) {
+            throw new IOException("Malformed frame of " + length + " bytes for " + count + " requests");
+        }
+        User[] users = new User[count];
+        long[] permits = new long[count];
+        boolean singlePermits = true;
+        for (int index = 0; index < count; index++) {
+            long userId = in.readLong();
+            int ordinal = in.readUnsignedByte();
+            permits[index] = in.readLong();
+            if (ordinal >= SUBSCRIPTION_TYPES.length || permits[index] <= 0) {
+                throw new IOException("Malformed request " + index + " for user " + userId);
+            }
+            users[index] = userCache.user(userId, SUBSCRIPTION_TYPES[ordinal]);
+            singlePermits &= permits[index] == 1;
+        }
+        long[] allowedBitmap = AdmissionBitmap.forRequests(count);
+        if (singlePermits) {
+            rateLimiter.allowRequests(users, allowedBitmap);
+        } else {
+            for (int index = 0; index < count; index++) {
+                if (rateLimiter.allowRequests(users[index], permits[index])) {
+                    allowedBitmap[index >>> 6] |= 1L << index;
+                }
+            }
+        }
+        out.writeInt(Integer.BYTES + allowedBitmap.length * Long.BYTES);
+        out.writeInt(count);
+        for (long word : allowedBitmap) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Direct-mapped cache of the {@link User}s a connection has decided for, so steady traffic does not create a
+     * user, and its credit ledger, per request. Users are served without paid credits.
+     */
+    static final class UserCache {
+        private final User[] users = new User[USER_CACHE_SLOTS];
+
+        User user(long userId, SubscriptionType subscriptionType) {
+            int slot = (int) ((userId * 0x9E3779B97F4A7C15L) >>> 32) & (USER_CACHE_SLOTS - 1);
+            User user = users[slot];
+            if (user == null || user.getId() != userId || user.getType() != subscriptionType) {
+                user = new User(userId, subscriptionType);
+                users[slot] = user;
+            }
+            return user;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.rate_limiter.sidecar;
+
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sidecar serving the decisions of a {@link RateLimiter} to processes in other runtimes over TCP using
+ * {@link AdmissionProtocol}. Each connection is handled on its own virtual thread; responses are flushed once the
+ * client has no further pipelined frame buffered, so a pipelined burst costs one write.
+ * <p>
+ * Run standalone with {@code java -cp RateLimiter.jar org.rate_limiter.sidecar.AdmissionServer [host] port} to serve
+ * a {@link TokenBucketRateLimiter} with the default subscription configuration.
+ */
+public class AdmissionServer implements AutoCloseable {
+    private final RateLimiter rateLimiter;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections;
+    private volatile boolean running;
+
+    public AdmissionServer(RateLimiter rateLimiter, InetSocketAddress bindAddress) {
+        this.rateLimiter = rateLimiter;
+        this.connections = ConcurrentHashMap.newKeySet();
+        try {
+            this.serverSocket = new ServerSocket();
+            serverSocket.bind(bindAddress);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.running = true;
+        Thread.ofPlatform()
+              .daemon()
+              .name("admission-server-acceptor")
+              .start(this::accept);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length == 0 || args.length > 2) {
+            System.err.println("Usage: AdmissionServer [host] port");
+            System.exit(2);
+        }
+        InetSocketAddress bindAddress = args.length == 1 ? new InetSocketAddress(Integer.parseInt(args[0]))
+                : new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+        AdmissionServer server = new AdmissionServer(new TokenBucketRateLimiter(), bindAddress);
+        Runtime.getRuntime()
+               .addShutdownHook(new Thread(server::close));
+        System.out.println("Serving admission decisions on " + server.address());
+        Thread.currentThread()
+              .join();
+    }
+
+    public InetSocketAddress address() {
+        return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+            for (Socket connection : connections) {
+                connection.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket connection = serverSocket.accept();
+                connection.setTcpNoDelay(true);
+                connections.add(connection);
+                if (!running) {
+                    // Accepted while closing, after close() went through the connections
+                    connection.close();
+                    return;
+                }
+                Thread.ofVirtual()
+                      .name("admission-server-connection")
+                      .start(() -> serve(connection));
+            } catch (IOException e) {
+                if (running) {
+                    Thread.currentThread()
+                          .getUncaughtExceptionHandler()
+                          .uncaughtException(Thread.currentThread(), e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket connection) {
+        AdmissionProtocol.UserCache userCache = new AdmissionProtocol.UserCache();
+        try (connection;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))) {
+            while (true) {
+                AdmissionProtocol.dispatch(rateLimiter, userCache, in, out);
+                if (in.available() < Integer.BYTES) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // The client went away or sent a malformed frame; its connection is dropped
+        } finally {
+            connections.remove(connection);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.rate_limiter.simulation;
+
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.clock.ManualTickSource;
+import org.rate_limiter.clock.TickSource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Replays a request log through a {@link RateLimiter} on a virtual clock, so hours of traffic take seconds and a
+ * run is fully deterministic.
+ * <p>
+ * Users are split into {@code shards} by id and each shard is replayed as its own fork-join task, with its own
+ * {@link ManualTickSource} and a limiter made for it by {@code limiterFactory}. That matches the result of a single
+ * limiter for engines that keep per-user state only; limiters sharing state between users, such as a
+ * {@link org.rate_limiter.algo.HierarchicalRateLimiter} parent, must be run with one shard.
+ */
+public class Simulation {
+    private static final SubscriptionType[] SUBSCRIPTION_TYPES = SubscriptionType.values();
+    // Credit expiry depends on the wall clock, so every run starts at the same instant
+    private static final long START_EPOCH_NANOS = 1_700_000_000_000_000_000L;
+
+    private final Function<TickSource, RateLimiter> limiterFactory;
+    private final int shards;
+
+    public Simulation(Function<TickSource, RateLimiter> limiterFactory, int shards) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.limiterFactory = limiterFactory;
+        this.shards = shards;
+    }
+
+    public SimulationReport run(List<TrafficEvent> events) {
+        List<List<TrafficEvent>> shardEvents = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            shardEvents.add(new ArrayList<>(events.size() / shards + 1));
+        }
+        for (TrafficEvent event : events) {
+            shardEvents.get(shardOf(event.userId()))
+                       .add(event);
+        }
+        List<Callable<ShardResult>> tasks = new ArrayList<>();
+        for (List<TrafficEvent> shard : shardEvents) {
+            tasks.add(() -> replay(shard));
+        }
+
+        long wallStart = System.nanoTime();
+        List<ShardResult> results = new ArrayList<>();
+        try {
+            for (Future<ShardResult> future : ForkJoinPool.commonPool()
+                                                          .invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new IllegalStateException("Simulation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation shard failed", e.getCause());
+        }
+        long wallNanos = System.nanoTime() - wallStart;
+        return merge(results, events, wallNanos);
+    }
+
+    private int shardOf(long userId) {
+        return Math.floorMod(userId * 0x9E3779B97F4A7C15L >>> 32, shards);
+    }
+
+    private ShardResult replay(List<TrafficEvent> events) {
+        ManualTickSource tickSource = new ManualTickSource(START_EPOCH_NANOS);
+        RateLimiter rateLimiter = limiterFactory.apply(tickSource);
+        // Users and counters are laid out up front so the measured loop only runs the limiter
+        Map<Long, Integer> userIndexes = new HashMap<>();
+        List<User> userList = new ArrayList<>();
+        int[] eventUsers = new int[events.size()];
+        for (int index = 0; index < events.size(); index++) {
+            TrafficEvent event = events.get(index);
+            eventUsers[index] = userIndexes.computeIfAbsent(event.userId(), userId -> {
+                userList.add(new User(userId, event.subscriptionType(), tickSource));
+                return userList.size() - 1;
+            });
+        }
+        User[] users = userList.toArray(User[]::new);
+        long[] requests = new long[users.length];
+        long[] admitted = new long[users.length];
+        long[] creditPurchases = new long[users.length];
+
+        long cpuBefore = threadCpuNanos();
+        long allocatedBefore = threadAllocatedBytes();
+        for (int index = 0; index < eventUsers.length; index++) {
+            TrafficEvent event = events.get(index);
+            long elapsed = event.offsetNanos() - tickSource.nanoTime();
+            if (elapsed > 0) {
+                tickSource.advance(elapsed);
+            }
+            int user = eventUsers[index];
+            if (event.kind() == TrafficEvent.Kind.REQUEST) {
+                requests[user]++;
+                if (rateLimiter.allowRequests(users[user], event.amount())) {
+                    admitted[user]++;
+                }
+            } else {
+                creditPurchases[user]++;
+                users[user].addCredits(event.amount());
+            }
+        }
+        long cpuNanos = threadCpuNanos() - cpuBefore;
+        long allocatedBytes = allocatedBefore < 0 ? -1 : threadAllocatedBytes() - allocatedBefore;
+
+        ShardResult result = new ShardResult(cpuNanos, allocatedBytes);
+        for (int user = 0; user < users.length; user++) {
+            result.add(users[user].getType(), requests[user], admitted[user], creditPurchases[user]);
+        }
+        return result;
+    }
+
+    private static SimulationReport merge(List<ShardResult> results, List<TrafficEvent> events, long wallNanos) {
+        Map<SubscriptionType, SimulationReport.TierReport> tiers = new EnumMap<>(SubscriptionType.class);
+        long cpuNanos = 0;
+        long allocatedBytes = 0;
+        for (ShardResult result : results) {
+            cpuNanos += result.cpuNanos;
+            allocatedBytes = allocatedBytes < 0 || result.allocatedBytes < 0 ? -1
+                    : allocatedBytes + result.allocatedBytes;
+        }
+        for (SubscriptionType subscriptionType : SUBSCRIPTION_TYPES) {
+            TierTotals totals = new TierTotals();
+            for (ShardResult result : results) {
+                totals.add(result.tiers[subscriptionType.ordinal()]);
+            }
+            if (totals.users > 0) {
+                tiers.put(subscriptionType, totals.report());
+            }
+        }
+        long simulatedNanos = events.isEmpty() ? 0 : events.get(events.size() - 1)
+                                                           .offsetNanos();
+        return new SimulationReport(tiers, events.size(), simulatedNanos, wallNanos, cpuNanos, allocatedBytes);
+    }
+
+    private static long threadCpuNanos() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long threadAllocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadMXBean
+                && threadMXBean.isThreadAllocatedMemorySupported()) {
+            return threadMXBean.getThreadAllocatedBytes(Thread.currentThread()
+                                                              .threadId());
+        }
+        return -1;
+    }
+
+    private static final class ShardResult {
+        private final long cpuNanos;
+        private final long allocatedBytes;
+        private final TierTotals[] tiers;
+
+        private ShardResult(long cpuNanos, long allocatedBytes) {
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.tiers = new TierTotals[SUBSCRIPTION_TYPES.length];
+            for (int tier = 0; tier < tiers.length; tier++) {
+                tiers[tier] = new TierTotals();
+            }
+        }
+
+        private void add(SubscriptionType subscriptionType, long requests, long admitted, long creditPurchases) {
+            TierTotals totals = tiers[subscriptionType.ordinal()];
+            totals.users++;
+            totals.requests += requests;
+            totals.admitted += admitted;
+            totals.creditPurchases += creditPurchases;
+            if (requests > 0) {
+                double admitRatio = (double) admitted / requests;
+                totals.usersWithRequests++;
+                totals.admitRatioSum += admitRatio;
+                totals.admitRatioSquareSum += admitRatio * admitRatio;
+            }
+        }
+    }
+
+    /**
+     * Sums that merge across shards; Jain's index only needs the sum and the sum of squares of the ratios.
+     */
+    private static final class TierTotals {
+        private long users;
+        private long usersWithRequests;
+        private long requests;
+        private long admitted;
+        private long creditPurchases;
+        private double admitRatioSum;
+        private double admitRatioSquareSum;
+
+        private void add(TierTotals other) {
+            users += other.users;
+            usersWithRequests += other.usersWithRequests;
+            requests += other.requests;
+            admitted += other.admitted;
+            creditPurchases += other.creditPurchases;
+            admitRatioSum += other.admitRatioSum;
+            admitRatioSquareSum += other.admitRatioSquareSum;
+        }
+
+        private SimulationReport.TierReport report() {
+            // Nobody admitted at all is perfectly even too
+            double fairness = admitRatioSquareSum == 0 ? 1
+                    : admitRatioSum * admitRatioSum / (usersWithRequests * admitRatioSquareSum);
+            return new SimulationReport.TierReport(users, requests, admitted, creditPurchases, fairness);
+        }
+    }
+}
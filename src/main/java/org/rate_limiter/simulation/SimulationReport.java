@@ -0,0 +1,60 @@
+package org.rate_limiter.simulation;
+
+import org.rate_limiter.SubscriptionType;
+
+import java.util.Map;
+
+/**
+ * Outcome of a {@link Simulation} run. {@code engineCpuNanos} and {@code engineAllocatedBytes} cover the replay loops
+ * of all shards, which touch nothing but pre-sized arrays besides the limiter; allocation is -1 when the JVM cannot
+ * measure it.
+ */
+public record SimulationReport(Map<SubscriptionType, TierReport> tiers, long events, long simulatedNanos,
+                               long wallNanos, long engineCpuNanos, long engineAllocatedBytes) {
+
+    /**
+     * How many times faster than real time the traffic was replayed.
+     */
+    public double speedup() {
+        return (double) simulatedNanos / Math.max(1, wallNanos);
+    }
+
+    public double engineCpuNanosPerRequest() {
+        long requests = tiers.values()
+                             .stream()
+                             .mapToLong(TierReport::requests)
+                             .sum();
+        return (double) engineCpuNanos / Math.max(1, requests);
+    }
+
+    public String format() {
+        StringBuilder report = new StringBuilder(String.format("%-14s %8s %12s %12s %9s %9s %9s%n", "tier", "users",
+                                                                "requests", "admitted", "admit %", "fairness",
+                                                                "credits"));
+        tiers.forEach((subscriptionType, tier) -> report.append(
+                String.format("%-14s %8d %12d %12d %9.1f %9.3f %9d%n", subscriptionType, tier.users(),
+                              tier.requests(), tier.admitted(), 100 * tier.admitRate(), tier.fairness(),
+                              tier.creditPurchases())));
+        report.append(String.format("%d events over %.1f s simulated in %.1f ms (%.0fx real time)%n", events,
+                                    simulatedNanos / 1e9, wallNanos / 1e6, speedup()));
+        report.append(String.format("engine: %.0f ns CPU per request, %d bytes allocated%n",
+                                    engineCpuNanosPerRequest(), engineAllocatedBytes));
+        return report.toString();
+    }
+
+    /**
+     * Requests and admissions of one subscription tier. {@code fairness} is Jain's index over the admit ratio of
+     * each user with requests: 1 when every user got the same share admitted, down to {@code 1 / users} when one user
+     * got everything.
+     */
+    public record TierReport(long users, long requests, long admitted, long creditPurchases, double fairness) {
+
+        public long denied() {
+            return requests - admitted;
+        }
+
+        public double admitRate() {
+            return requests == 0 ? 0 : (double) admitted / requests;
+        }
+    }
+}
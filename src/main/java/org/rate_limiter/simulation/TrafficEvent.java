@@ -0,0 +1,31 @@
+package org.rate_limiter.simulation;
+
+import org.rate_limiter.SubscriptionType;
+
+/**
+ * One entry of a request log: at {@code offsetNanos} from the start of the log, user {@code userId} either sends a
+ * request costing {@code amount} permits or buys {@code amount} credits.
+ */
+public record TrafficEvent(long offsetNanos, long userId, SubscriptionType subscriptionType, Kind kind, long amount) {
+
+    public TrafficEvent {
+        if (offsetNanos < 0 || amount <= 0) {
+            throw new IllegalArgumentException("Event offset must not be negative and amount must be positive");
+        }
+    }
+
+    public static TrafficEvent request(long offsetNanos, long userId, SubscriptionType subscriptionType,
+                                       long permits) {
+        return new TrafficEvent(offsetNanos, userId, subscriptionType, Kind.REQUEST, permits);
+    }
+
+    public static TrafficEvent creditPurchase(long offsetNanos, long userId, SubscriptionType subscriptionType,
+                                              long credits) {
+        return new TrafficEvent(offsetNanos, userId, subscriptionType, Kind.CREDIT_PURCHASE, credits);
+    }
+
+    public enum Kind {
+        REQUEST,
+        CREDIT_PURCHASE
+    }
+}
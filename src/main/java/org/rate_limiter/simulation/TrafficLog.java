@@ -0,0 +1,80 @@
+package org.rate_limiter.simulation;
+
+import org.rate_limiter.SubscriptionType;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes request logs as CSV, one {@link TrafficEvent} per line after a header:
+ * {@value #HEADER}. Recorded production traffic can be exported to this format and replayed by a
+ * {@link Simulation}; the events must be in offset order.
+ */
+public final class TrafficLog {
+    static final String HEADER = "offset_nanos,user_id,subscription_type,kind,amount";
+
+    private TrafficLog() {
+    }
+
+    public static List<TrafficEvent> read(Path path) {
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String header = reader.readLine();
+            if (!HEADER.equals(header)) {
+                throw new IllegalArgumentException("Traffic log " + path + " does not start with " + HEADER);
+            }
+            List<TrafficEvent> events = new ArrayList<>();
+            long previousOffset = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                TrafficEvent event = parse(line, events.size() + 2);
+                if (event.offsetNanos() < previousOffset) {
+                    throw new IllegalArgumentException("Traffic log line " + (events.size() + 2)
+                                                               + " goes back in time");
+                }
+                previousOffset = event.offsetNanos();
+                events.add(event);
+            }
+            return events;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void write(Path path, List<TrafficEvent> events) {
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (TrafficEvent event : events) {
+                writer.write(event.offsetNanos() + "," + event.userId() + "," + event.subscriptionType() + ","
+                                     + event.kind() + "," + event.amount());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static TrafficEvent parse(String line, int lineNumber) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Traffic log line " + lineNumber + " has " + fields.length
+                                                       + " fields instead of 5");
+        }
+        try {
+            return new TrafficEvent(Long.parseLong(fields[0].trim()), Long.parseLong(fields[1].trim()),
+                                    SubscriptionType.valueOf(fields[2].trim()),
+                                    TrafficEvent.Kind.valueOf(fields[3].trim()), Long.parseLong(fields[4].trim()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Traffic log line " + lineNumber + " is malformed: " + line, e);
+        }
+    }
+}
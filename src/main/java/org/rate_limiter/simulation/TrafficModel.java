@@ -0,0 +1,75 @@
+package org.rate_limiter.simulation;
+
+import org.rate_limiter.SubscriptionType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic traffic shape. Requests arrive as a Poisson process at {@code requestsPerSecond}, each from a user drawn
+ * from a Zipf distribution over {@code users} ranks ({@code zipfExponent} 0 is uniform), so user 0 is the busiest.
+ * Every {@code burstEvery} one user sends {@code burstRequests} requests at once, and before any request its user buys
+ * {@code creditsPerPurchase} credits with probability {@code creditPurchaseProbability}. User {@code i} is on
+ * {@code tiers.get(i % tiers.size())}.
+ */
+public record TrafficModel(int users, List<SubscriptionType> tiers, double requestsPerSecond, double zipfExponent,
+                           Duration burstEvery, int burstRequests, double creditPurchaseProbability,
+                           long creditsPerPurchase) {
+
+    public TrafficModel {
+        if (users <= 0 || tiers.isEmpty() || !(requestsPerSecond > 0) || !(zipfExponent >= 0)
+                || burstEvery.isNegative() || burstRequests < 0 || !(creditPurchaseProbability >= 0)
+                || creditPurchaseProbability > 1 || creditsPerPurchase <= 0) {
+            throw new IllegalArgumentException("Traffic model fields are invalid");
+        }
+        tiers = List.copyOf(tiers);
+    }
+
+    /**
+     * Poisson arrivals spread uniformly over users on every tier, without bursts or credit purchases.
+     */
+    public static TrafficModel poisson(int users, double requestsPerSecond) {
+        return new TrafficModel(users, List.of(SubscriptionType.values()), requestsPerSecond, 0, Duration.ZERO, 0, 0,
+                                1);
+    }
+
+    /**
+     * Draws {@code duration} of traffic; the same seed always gives the same events.
+     */
+    public List<TrafficEvent> generate(Duration duration, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        ZipfDistribution popularity = new ZipfDistribution(users, zipfExponent);
+        long endNanos = duration.toNanos();
+        double meanGapNanos = 1e9 / requestsPerSecond;
+        long burstEveryNanos = burstEvery.toNanos();
+        long nextBurstNanos = burstEveryNanos > 0 && burstRequests > 0 ? burstEveryNanos : Long.MAX_VALUE;
+        List<TrafficEvent> events = new ArrayList<>((int) Math.min(Integer.MAX_VALUE - 8,
+                                                                   duration.toSeconds() * (long) requestsPerSecond));
+        double arrivalNanos = 0;
+        while (true) {
+            arrivalNanos += -Math.log(1 - random.nextDouble()) * meanGapNanos;
+            long offsetNanos = (long) Math.min(arrivalNanos, endNanos);
+            while (nextBurstNanos <= offsetNanos && nextBurstNanos < endNanos) {
+                int user = popularity.sample(random);
+                for (int request = 0; request < burstRequests; request++) {
+                    addRequest(events, random, nextBurstNanos, user);
+                }
+                nextBurstNanos += burstEveryNanos;
+            }
+            if (offsetNanos >= endNanos) {
+                return events;
+            }
+            addRequest(events, random, offsetNanos, popularity.sample(random));
+        }
+    }
+
+    private void addRequest(List<TrafficEvent> events, SplittableRandom random, long offsetNanos, int user) {
+        SubscriptionType subscriptionType = tiers.get(user % tiers.size());
+        if (creditPurchaseProbability > 0 && random.nextDouble() < creditPurchaseProbability) {
+            events.add(TrafficEvent.creditPurchase(offsetNanos, user, subscriptionType, creditsPerPurchase));
+        }
+        events.add(TrafficEvent.request(offsetNanos, user, subscriptionType, 1));
+    }
+}
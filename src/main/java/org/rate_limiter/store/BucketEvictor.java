@@ -0,0 +1,67 @@
+package org.rate_limiter.store;
+
+import org.rate_limiter.clock.TickSource;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops idle buckets from a {@link ShardedBucketStore} a few slots at a time. Request threads call
+ * {@link #onRequest()}, which sweeps on roughly one request in {@link EvictionPolicy#sweepEveryRequests()}; callers
+ * that prefer to keep the request path clean can schedule {@link #sweep()} on a background executor instead.
+ * <p>
+ * A request that looked a bucket up just before it was dropped may still admit against it. Buckets that override
+ * {@link Evictable#retireIfEvictable} let such requests notice and retry; with the others, the admission is
+ * forgotten with the bucket, so a user can be admitted a few permits beyond a full bucket.
+ */
+public class BucketEvictor<B extends Evictable> {
+    private final ShardedBucketStore<B> store;
+    private final long idleNanos;
+    private final int sweepSlots;
+    private final int sweepEveryRequests;
+    private final TickSource tickSource;
+    private final LongAdder idleEvictions;
+
+    public BucketEvictor(ShardedBucketStore<B> store, EvictionPolicy evictionPolicy, TickSource tickSource) {
+        if (evictionPolicy.idleTtl()
+                          .isNegative() || evictionPolicy.sweepSlots() <= 0
+                || evictionPolicy.sweepEveryRequests() < 0) {
+            throw new IllegalArgumentException("Eviction policy fields are invalid");
+        }
+        this.store = store;
+        this.idleNanos = evictionPolicy.idleTtl()
+                                       .toNanos();
+        this.sweepSlots = evictionPolicy.sweepSlots();
+        this.sweepEveryRequests = evictionPolicy.sweepEveryRequests();
+        this.tickSource = tickSource;
+        this.idleEvictions = new LongAdder();
+    }
+
+    public void onRequest() {
+        if (sweepEveryRequests > 0 && ThreadLocalRandom.current()
+                                                       .nextInt(sweepEveryRequests) == 0) {
+            sweep();
+        }
+    }
+
+    public int sweep() {
+        long now = tickSource.nanoTime();
+        int evicted = store.sweep(sweepSlots, bucket -> bucket.retireIfEvictable(now, idleNanos));
+        if (evicted > 0) {
+            idleEvictions.add(evicted);
+        }
+        return evicted;
+    }
+
+    public ScheduledFuture<?> scheduleSweeps(ScheduledExecutorService executor, Duration period) {
+        return executor.scheduleAtFixedRate(this::sweep, period.toNanos(), period.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    public EvictionMetrics metrics() {
+        return new EvictionMetrics(idleEvictions.sum(), store.capacityEvictions(), store.size());
+    }
+}
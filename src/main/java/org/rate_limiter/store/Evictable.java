@@ -0,0 +1,18 @@
+package org.rate_limiter.store;
+
+public interface Evictable {
+    /**
+     * Returns true when dropping the bucket is indistinguishable from recreating it on the next request, i.e. it
+     * is back at full capacity and has not been refilled for at least {@code idleNanos}.
+     */
+    boolean isEvictable(long nowNanos, long idleNanos);
+
+    /**
+     * Same check as {@link #isEvictable}, made by the {@link BucketEvictor} right before it drops the bucket. A
+     * bucket that can still be admitted against by requests that looked it up earlier retires itself here, so
+     * those requests can tell their admission did not count.
+     */
+    default boolean retireIfEvictable(long nowNanos, long idleNanos) {
+        return isEvictable(nowNanos, idleNanos);
+    }
+}
@@ -0,0 +1,4 @@
+package org.rate_limiter.store;
+
+public record EvictionMetrics(long idleEvictions, long capacityEvictions, long residentBuckets) {
+}
@@ -0,0 +1,6 @@
+package org.rate_limiter.store;
+
+import java.time.Duration;
+
+public record EvictionPolicy(Duration idleTtl, long maxResidentBuckets, int sweepSlots, int sweepEveryRequests) {
+}
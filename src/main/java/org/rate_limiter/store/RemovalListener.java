@@ -0,0 +1,18 @@
+package org.rate_limiter.store;
+
+/**
+ * Told about every entry a {@link ShardedBucketStore} drops, whether it was removed, swept or evicted to make room.
+ * Called under the shard lock, so it must not touch the store.
+ */
+@FunctionalInterface
+public interface RemovalListener<B> {
+    void onRemoval(long id, B value);
+
+    /**
+     * Retires {@code value} if dropping it loses nothing, e.g. a bucket back at full capacity, and returns whether
+     * it did; the store then evicts it. Eviction to make room prefers such entries over the least recently used one.
+     */
+    default boolean tryRetire(B value) {
+        return false;
+    }
+}
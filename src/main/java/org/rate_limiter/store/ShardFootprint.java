@@ -0,0 +1,4 @@
+package org.rate_limiter.store;
+
+public record ShardFootprint(int shard, int entries, int slots, long tableBytes) {
+}
@@ -0,0 +1,418 @@
+package org.rate_limiter.store;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * Bucket store keyed by a primitive user id and split into independently locked shards.
+ * <p>
+ * Every shard is an open addressing table with linear probing over a {@code long[]} of keys and an {@code Object[]}
+ * of buckets. Reads are lock free: a value slot is published with release semantics after its key is written, so a
+ * reader that observes a non-null value also observes the matching key. Writers serialize on the shard and publish
+ * a new table when it has to grow. Removed slots become tombstones that are never reused in place; they are purged
+ * when the shard rebuilds its table, which keeps a concurrent reader from pairing a key with another key's bucket.
+ * <p>
+ * A shard that reaches its share of {@code maxEntries} evicts with a clock sweep over the per-slot reference bits
+ * that lookups set, which approximates LRU without any bookkeeping on the read path beyond a single byte write.
+ * With a {@link RemovalListener}, the sweep first offers the next few entries to {@link RemovalListener#tryRetire}
+ * and evicts one that loses nothing; only when none qualifies does it drop the least recently used entry, whose
+ * state is lost.
+ * The same byte carries a dirty bit for {@link #forEach(boolean, EntryVisitor)}, so incremental snapshots only visit
+ * entries looked up or inserted since the previous visit.
+ */
+public class ShardedBucketStore<B> {
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final Object TOMBSTONE = new Object();
+    private static final int MIN_SHARD_SLOTS = 16;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final byte REFERENCED = 1;
+    private static final byte DIRTY = 2;
+    private static final int RETIRE_SCAN_ENTRIES = 16;
+
+    private final Shard[] shards;
+    private final int shardShift;
+    private final AtomicInteger sweepCursor;
+    private final LongAdder capacityEvictions;
+
+    public ShardedBucketStore(int shardCount, int expectedEntries) {
+        this(shardCount, expectedEntries, Long.MAX_VALUE);
+    }
+
+    public ShardedBucketStore(int shardCount, int expectedEntries, long maxEntries) {
+        this(shardCount, expectedEntries, maxEntries, null);
+    }
+
+    /**
+     * With a {@code removalListener}, every entry the store drops is reported to it.
+     */
+    @SuppressWarnings("unchecked")
+    public ShardedBucketStore(int shardCount, int expectedEntries, long maxEntries,
+                              RemovalListener<? super B> removalListener) {
+        if (shardCount <= 0 || expectedEntries < 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException(
+                    "Shard count and max entries must be positive, expected entries non negative");
+        }
+        int shardsPowerOfTwo = ceilingPowerOfTwo(shardCount);
+        int slotsPerShard = Math.max(MIN_SHARD_SLOTS, ceilingPowerOfTwo(2 * (expectedEntries / shardsPowerOfTwo + 1)));
+        int maxEntriesPerShard = (int) Math.min(Integer.MAX_VALUE >> 2,
+                                                Math.max(1, Math.ceilDiv(maxEntries, shardsPowerOfTwo)));
+        this.shards = new Shard[shardsPowerOfTwo];
+        for (int index = 0; index < shardsPowerOfTwo; index++) {
+            shards[index] = new Shard(slotsPerShard, maxEntriesPerShard, (RemovalListener<Object>) removalListener);
+        }
+        this.shardShift = Long.SIZE - Integer.numberOfTrailingZeros(shardsPowerOfTwo);
+        this.sweepCursor = new AtomicInteger();
+        this.capacityEvictions = new LongAdder();
+    }
+
+    @SuppressWarnings("unchecked")
+    public B get(long id) {
+        long hash = hash(id);
+        return (B) shardFor(hash).get(id, (int) hash);
+    }
+
+    @SuppressWarnings("unchecked")
+    public B computeIfAbsent(long id, LongFunction<? extends B> factory) {
+        long hash = hash(id);
+        Shard shard = shardFor(hash);
+        Object existing = shard.get(id, (int) hash);
+        if (existing != null) {
+            return (B) existing;
+        }
+        return (B) shard.computeIfAbsent(id, (int) hash, factory, capacityEvictions);
+    }
+
+    /**
+     * Maps {@code id} to {@code value} and returns the previous value, or null if there was none. A replaced value is
+     * swapped in its slot, so concurrent readers see either the old or the new one.
+     */
+    @SuppressWarnings("unchecked")
+    public B put(long id, B value) {
+        long hash = hash(id);
+        return (B) shardFor(hash).put(id, (int) hash, value, capacityEvictions);
+    }
+
+    /**
+     * Swaps {@code expected} for {@code value} in place if {@code id} still maps to {@code expected}.
+     */
+    public boolean replace(long id, B expected, B value) {
+        long hash = hash(id);
+        return shardFor(hash).replace(id, (int) hash, expected, value);
+    }
+
+    public boolean remove(long id, B expected) {
+        long hash = hash(id);
+        return shardFor(hash).remove(id, (int) hash, expected);
+    }
+
+    /**
+     * Examines up to {@code maxSlots} slots of the next shard in round-robin order and removes the buckets matching
+     * {@code evictable}. A shard that is busy with a writer is skipped rather than waited for, so calling this from
+     * request threads never blocks them.
+     */
+    @SuppressWarnings("unchecked")
+    public int sweep(int maxSlots, Predicate<? super B> evictable) {
+        Shard shard = shards[sweepCursor.getAndIncrement() & (shards.length - 1)];
+        return shard.sweep(maxSlots, value -> evictable.test((B) value));
+    }
+
+    /**
+     * Visits every entry, or only the dirty ones, without taking any shard lock, and clears the dirty bit of each
+     * visited entry. Entries inserted or removed concurrently may or may not be visited. The dirty bit is a plain
+     * write racing with lookups, so a lookup at the same instant may go unnoticed until the entry's next lookup.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(boolean dirtyOnly, EntryVisitor<? super B> visitor) {
+        for (Shard shard : shards) {
+            Table current = shard.table;
+            for (int slot = 0; slot < current.keys.length; slot++) {
+                Object value = VALUES.getAcquire(current.values, slot);
+                byte flags = current.flags[slot];
+                if (value == null || value == TOMBSTONE || dirtyOnly && (flags & DIRTY) == 0) {
+                    continue;
+                }
+                if ((flags & DIRTY) != 0) {
+                    current.flags[slot] = (byte) (flags & ~DIRTY);
+                }
+                visitor.visit(current.keys[slot], (B) value);
+            }
+        }
+    }
+
+    public long capacityEvictions() {
+        return capacityEvictions.sum();
+    }
+
+    public long size() {
+        long size = 0;
+        for (Shard shard : shards) {
+            size += shard.size;
+        }
+        return size;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public List<ShardFootprint> memoryFootprint() {
+        List<ShardFootprint> footprints = new ArrayList<>(shards.length);
+        for (int index = 0; index < shards.length; index++) {
+            Shard shard = shards[index];
+            int slots = shard.table.keys.length;
+            long tableBytes = 3L * ARRAY_HEADER_BYTES + (long) slots * (Long.BYTES + REFERENCE_BYTES + Byte.BYTES);
+            footprints.add(new ShardFootprint(index, shard.size, slots, tableBytes));
+        }
+        return footprints;
+    }
+
+    private Shard shardFor(long hash) {
+        return shards.length == 1 ? shards[0] : shards[(int) (hash >>> shardShift)];
+    }
+
+    private static long hash(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor<B> {
+        void visit(long id, B value);
+    }
+
+    private static final class Table {
+        private final long[] keys;
+        private final Object[] values;
+        private final byte[] flags;
+        private final int mask;
+
+        private Table(int slots) {
+            this.keys = new long[slots];
+            this.values = new Object[slots];
+            this.flags = new byte[slots];
+            this.mask = slots - 1;
+        }
+    }
+
+    private static final class Shard {
+        private final ReentrantLock lock;
+        private final int maxEntries;
+        private final RemovalListener<Object> removalListener;
+        private volatile Table table;
+        private volatile int size;
+        private int tombstones;
+        private int clockHand;
+
+        private Shard(int slots, int maxEntries, RemovalListener<Object> removalListener) {
+            this.lock = new ReentrantLock();
+            this.maxEntries = maxEntries;
+            this.removalListener = removalListener;
+            this.table = new Table(slots);
+        }
+
+        private Object get(long id, int hash) {
+            Table current = table;
+            for (int slot = hash & current.mask; ; slot = (slot + 1) & current.mask) {
+                Object value = VALUES.getAcquire(current.values, slot);
+                if (value == null) {
+                    return null;
+                }
+                if (current.keys[slot] == id && value != TOMBSTONE) {
+                    if (current.flags[slot] != (REFERENCED | DIRTY)) {
+                        current.flags[slot] = REFERENCED | DIRTY;
+                    }
+                    return value;
+                }
+            }
+        }
+
+        private Object computeIfAbsent(long id, int hash, LongFunction<?> factory, LongAdder capacityEvictions) {
+            lock.lock();
+            try {
+                Object existing = get(id, hash);
+                if (existing != null) {
+                    return existing;
+                }
+                Object value = factory.apply(id);
+                if (value != null) {
+                    insertAbsent(id, hash, value, capacityEvictions);
+                }
+                return value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Object put(long id, int hash, Object value, LongAdder capacityEvictions) {
+            lock.lock();
+            try {
+                Table current = table;
+                for (int slot = hash & current.mask; ; slot = (slot + 1) & current.mask) {
+                    Object existing = current.values[slot];
+                    if (existing == null) {
+                        break;
+                    }
+                    if (current.keys[slot] == id && existing != TOMBSTONE) {
+                        VALUES.setRelease(current.values, slot, value);
+                        current.flags[slot] |= DIRTY;
+                        return existing;
+                    }
+                }
+                insertAbsent(id, hash, value, capacityEvictions);
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void insertAbsent(long id, int hash, Object value, LongAdder capacityEvictions) {
+            if (size >= maxEntries) {
+                evictByClock();
+                capacityEvictions.increment();
+            }
+            if (2 * (size + tombstones + 1) > table.keys.length) {
+                table = rebuild(table, Math.max(MIN_SHARD_SLOTS, ceilingPowerOfTwo(4 * (size + 1))));
+                tombstones = 0;
+                clockHand = 0;
+            }
+            table.flags[insert(table, id, hash, value)] = DIRTY;
+            size = size + 1;
+        }
+
+        private boolean replace(long id, int hash, Object expected, Object value) {
+            lock.lock();
+            try {
+                Table current = table;
+                for (int slot = hash & current.mask; ; slot = (slot + 1) & current.mask) {
+                    Object existing = current.values[slot];
+                    if (existing == null) {
+                        return false;
+                    }
+                    if (current.keys[slot] == id && existing == expected) {
+                        VALUES.setRelease(current.values, slot, value);
+                        current.flags[slot] |= DIRTY;
+                        return true;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean remove(long id, int hash, Object expected) {
+            lock.lock();
+            try {
+                Table current = table;
+                for (int slot = hash & current.mask; ; slot = (slot + 1) & current.mask) {
+                    Object value = current.values[slot];
+                    if (value == null) {
+                        return false;
+                    }
+                    if (current.keys[slot] == id && value == expected) {
+                        removeSlot(current, slot);
+                        return true;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int sweep(int maxSlots, Predicate<Object> evictable) {
+            if (!lock.tryLock()) {
+                return 0;
+            }
+            try {
+                Table current = table;
+                int evicted = 0;
+                for (int examined = 0; examined < Math.min(maxSlots, current.keys.length); examined++) {
+                    int slot = clockHand;
+                    clockHand = (clockHand + 1) & current.mask;
+                    Object value = current.values[slot];
+                    if (value != null && value != TOMBSTONE && evictable.test(value)) {
+                        removeSlot(current, slot);
+                        evicted++;
+                    }
+                }
+                return evicted;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Evicts the first of the next {@link #RETIRE_SCAN_ENTRIES} entries the removal listener can retire, else
+         * the first unreferenced one, clearing reference bits on the way.
+         */
+        private void evictByClock() {
+            Table current = table;
+            int unreferenced = -1;
+            for (int scanned = 0; ; ) {
+                int slot = clockHand;
+                clockHand = (clockHand + 1) & current.mask;
+                Object value = current.values[slot];
+                if (value == null || value == TOMBSTONE) {
+                    continue;
+                }
+                if (removalListener != null && scanned++ < RETIRE_SCAN_ENTRIES && removalListener.tryRetire(value)) {
+                    removeSlot(current, slot);
+                    return;
+                }
+                byte flags = current.flags[slot];
+                if ((flags & REFERENCED) != 0) {
+                    current.flags[slot] = (byte) (flags & ~REFERENCED);
+                } else if (unreferenced < 0) {
+                    unreferenced = slot;
+                }
+                if (unreferenced >= 0 && (removalListener == null || scanned >= Math.min(RETIRE_SCAN_ENTRIES, size))) {
+                    removeSlot(current, unreferenced);
+                    return;
+                }
+            }
+        }
+
+        private void removeSlot(Table current, int slot) {
+            if (removalListener != null) {
+                removalListener.onRemoval(current.keys[slot], current.values[slot]);
+            }
+            VALUES.setRelease(current.values, slot, TOMBSTONE);
+            current.flags[slot] = 0;
+            size = size - 1;
+            tombstones++;
+        }
+
+        private static Table rebuild(Table current, int slots) {
+            Table rebuilt = new Table(slots);
+            for (int slot = 0; slot < current.keys.length; slot++) {
+                Object value = current.values[slot];
+                if (value != null && value != TOMBSTONE) {
+                    long key = current.keys[slot];
+                    rebuilt.flags[insert(rebuilt, key, (int) hash(key), value)] = current.flags[slot];
+                }
+            }
+            return rebuilt;
+        }
+
+        private static int insert(Table table, long id, int hash, Object value) {
+            int slot = hash & table.mask;
+            while (table.values[slot] != null) {
+                slot = (slot + 1) & table.mask;
+            }
+            table.keys[slot] = id;
+            VALUES.setRelease(table.values, slot, value);
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.rate_limiter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.clock.ManualTickSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.configurations.CommonConfiguration.EXTRA_CREDITS_VALIDITY_DURATION;
+
+class CreditExpiryWheelTest {
+    // Deliberately not aligned to any tick
+    private static final long START_EPOCH_NANOS = 1_700_000_000_123_456_789L;
+
+    private ManualTickSource tickSource;
+    private CreditExpiryWheel expiryWheel;
+
+    @BeforeEach
+    public void setUp() {
+        tickSource = new ManualTickSource(START_EPOCH_NANOS);
+        expiryWheel = new CreditExpiryWheel(Duration.ofSeconds(1), tickSource);
+    }
+
+    @Test
+    void testIdleLedgerIsDebitedWithoutRequests() {
+        CreditLedger creditLedger = new CreditLedger(tickSource, expiryWheel);
+        creditLedger.addCredits(3);
+        assertEquals(1, expiryWheel.pendingExpiries());
+
+        tickSource.advance(EXTRA_CREDITS_VALIDITY_DURATION.minusSeconds(1));
+        assertEquals(0, expiryWheel.advance());
+        assertTrue(creditLedger.mayCover(3));
+
+        tickSource.advance(2, TimeUnit.SECONDS);
+        assertEquals(1, expiryWheel.advance());
+        assertFalse(creditLedger.mayCover(1));
+        assertTrue(creditLedger.getPaidCredits()
+                               .isEmpty());
+        assertEquals(0, expiryWheel.pendingExpiries());
+    }
+
+    @Test
+    void testNextPurchaseIsScheduledOnceTheHeadIsGone() {
+        CreditLedger creditLedger = new CreditLedger(tickSource, expiryWheel);
+        creditLedger.addCredits(2);
+        tickSource.advance(Duration.ofDays(1));
+        creditLedger.addCredits(1);
+        assertEquals(1, expiryWheel.pendingExpiries());
+        assertTrue(creditLedger.tryConsume(2));
+
+        // The entry for the consumed purchase fires without effect and hands over to the next one
+        tickSource.advance(EXTRA_CREDITS_VALIDITY_DURATION.minusDays(1)
+                                                          .plusSeconds(1));
+        assertEquals(1, expiryWheel.advance());
+        assertTrue(creditLedger.mayCover(1));
+        assertEquals(1, expiryWheel.pendingExpiries());
+
+        tickSource.advance(Duration.ofDays(1));
+        assertEquals(1, expiryWheel.advance());
+        assertFalse(creditLedger.mayCover(1));
+        assertEquals(0, expiryWheel.pendingExpiries());
+    }
+
+    @Test
+    void testRestoredCreditsAreScheduledAheadOfNewerOnes() {
+        CreditLedger creditLedger = new CreditLedger(tickSource, expiryWheel);
+        creditLedger.addCredits(1);
+        long restoredExpiry = tickSource.epochNanos() + Duration.ofHours(1)
+                                                                .toNanos();
+        creditLedger.restorePaidCredits(List.of(new PaidCredit(new AtomicLong(4), restoredExpiry)));
+        assertTrue(creditLedger.mayCover(5));
+
+        tickSource.advance(Duration.ofHours(1)
+                                   .plusSeconds(1));
+        assertEquals(1, expiryWheel.advance());
+        assertTrue(creditLedger.mayCover(1));
+        assertFalse(creditLedger.mayCover(2));
+    }
+
+    @Test
+    void testLedgersExpireExactlyWhenDueAcrossLevels() {
+        List<CreditLedger> creditLedgers = new ArrayList<>();
+        List<Long> expiryTicks = new ArrayList<>();
+        for (int user = 0; user < 500; user++) {
+            CreditLedger creditLedger = new CreditLedger(tickSource, expiryWheel);
+            creditLedger.addCredits(1);
+            creditLedgers.add(creditLedger);
+            expiryTicks.add(Math.ceilDiv(tickSource.epochNanos() + EXTRA_CREDITS_VALIDITY_DURATION.toNanos(),
+                                         TimeUnit.SECONDS.toNanos(1)));
+            tickSource.advance(1_337, TimeUnit.MILLISECONDS);
+        }
+
+        int expired = 0;
+        while (expired < creditLedgers.size()) {
+            tickSource.advance(7, TimeUnit.MINUTES);
+            expired += expiryWheel.advance();
+            long currentTick = Math.floorDiv(tickSource.epochNanos(), TimeUnit.SECONDS.toNanos(1));
+            for (int user = 0; user < creditLedgers.size(); user++) {
+                assertEquals(expiryTicks.get(user) > currentTick, creditLedgers.get(user)
+                                                                               .mayCover(1), "user " + user);
+            }
+        }
+        assertEquals(creditLedgers.size(), expired);
+        assertEquals(0, expiryWheel.pendingExpiries());
+    }
+
+    @Test
+    void testExpiriesBeyondTheWheelSpanWaitOnTheTopLevel() {
+        // 64^4 ticks of 10 milliseconds are under two days, less than the credit validity
+        CreditExpiryWheel fineWheel = new CreditExpiryWheel(Duration.ofMillis(10), tickSource);
+        CreditLedger creditLedger = new CreditLedger(tickSource, fineWheel);
+        creditLedger.addCredits(1);
+
+        long hours = EXTRA_CREDITS_VALIDITY_DURATION.toHours();
+        for (int hour = 1; hour < hours; hour++) {
+            tickSource.advance(1, TimeUnit.HOURS);
+            assertEquals(0, fineWheel.advance(), "hour " + hour);
+        }
+        // Expiry is rounded up to the next tick
+        tickSource.advance(Duration.ofHours(1)
+                                   .plusMillis(10));
+        assertEquals(1, fineWheel.advance());
+        assertFalse(creditLedger.mayCover(1));
+    }
+}
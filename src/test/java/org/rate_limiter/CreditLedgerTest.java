@@ -0,0 +1,120 @@
+package org.rate_limiter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.algo.TokenBucket;
+import org.rate_limiter.clock.ManualTickSource;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.configurations.CommonConfiguration.EXTRA_CREDITS_VALIDITY_DURATION;
+
+class CreditLedgerTest {
+    private static final int DENIALS = 100_000;
+
+    private CreditLedger creditLedger;
+
+    @BeforeEach
+    public void setUp() {
+        creditLedger = new CreditLedger();
+    }
+
+    @Test
+    void testEmptyLedgerDeniesConsumption() {
+        assertFalse(creditLedger.tryConsume(1));
+        assertEquals(0, creditLedger.availableTokens());
+    }
+
+    @Test
+    void testCreditsAreConsumedOldestFirst() {
+        creditLedger.addCredits(2);
+        creditLedger.addCredits(3);
+
+        assertTrue(creditLedger.tryConsume(1));
+        assertEquals(2, creditLedger.getPaidCredits()
+                                    .size());
+        assertTrue(creditLedger.tryConsume(2));
+
+        assertEquals(1, creditLedger.getPaidCredits()
+                                    .size());
+        assertEquals(2, creditLedger.getPaidCredits()
+                                    .get(0)
+                                    .remainingTokens()
+                                    .get());
+        assertEquals(2, creditLedger.availableTokens());
+    }
+
+    @Test
+    void testConsumptionIsAllOrNothing() {
+        creditLedger.addCredits(2);
+
+        assertFalse(creditLedger.tryConsume(3));
+        assertEquals(2, creditLedger.availableTokens());
+        assertTrue(creditLedger.tryConsume(2));
+        assertFalse(creditLedger.tryConsume(1));
+    }
+
+    @Test
+    void testExpiredCreditsAreDroppedFromTheBalance() {
+        ManualTickSource tickSource = new ManualTickSource();
+        CreditLedger expiringLedger = new CreditLedger(tickSource);
+        expiringLedger.addCredits(2);
+        tickSource.advance(EXTRA_CREDITS_VALIDITY_DURATION.minusDays(1));
+        expiringLedger.addCredits(1);
+        assertTrue(expiringLedger.tryConsume(1));
+
+        tickSource.advance(Duration.ofDays(1));
+
+        assertEquals(1, expiringLedger.availableTokens());
+        assertFalse(expiringLedger.tryConsume(2));
+        assertTrue(expiringLedger.tryConsume(1));
+        assertTrue(expiringLedger.getPaidCredits()
+                                 .isEmpty());
+    }
+
+    @Test
+    void testNonPositivePurchaseIsIgnored() {
+        creditLedger.addCredits(0);
+        creditLedger.addCredits(-5);
+
+        assertTrue(creditLedger.getPaidCredits()
+                               .isEmpty());
+    }
+
+    @Test
+    void testDeniedRequestsDoNotAllocate() {
+        User user = new User(1, SubscriptionType.FREE_USER);
+        user.addCredits(1);
+        TokenBucket bucket = new TokenBucket(new RateParams(1, new RateRequest(TimeUnit.DAYS, 1)),
+                                             user.getCreditLedger());
+        assertTrue(bucket.allowRequest());
+        assertTrue(bucket.allowRequest());
+        assertFalse(bucket.allowRequest());
+
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread()
+                              .threadId();
+        int allowed = deny(bucket);
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        allowed += deny(bucket);
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(0, allowed);
+        // Streaming the credit list allocated a pipeline per denial, i.e. several megabytes for this loop
+        assertTrue(allocated < 1_000, "allocated " + allocated + " bytes over " + DENIALS + " denials");
+    }
+
+    private static int deny(TokenBucket bucket) {
+        int allowed = 0;
+        for (int request = 0; request < DENIALS; request++) {
+            if (bucket.allowRequest()) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+}
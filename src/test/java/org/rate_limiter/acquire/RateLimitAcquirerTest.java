@@ -0,0 +1,224 @@
+package org.rate_limiter.acquire;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+import org.rate_limiter.clock.ManualTickSource;
+import org.rate_limiter.metrics.RateLimiterMetrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.SubscriptionType.*;
+import static org.rate_limiter.configurations.CommonConfiguration.*;
+
+class RateLimitAcquirerTest {
+    private RateLimiter rateLimiter;
+    private RateLimitAcquirer rateLimitAcquirer;
+
+    @BeforeEach
+    public void setUp() {
+        rateLimiter = new TokenBucketRateLimiter();
+        rateLimitAcquirer = new RateLimitAcquirer(rateLimiter);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        rateLimitAcquirer.close();
+    }
+
+    @Test
+    void testTryAcquireReturnsWaitUntilNextToken() {
+        ManualTickSource tickSource = new ManualTickSource();
+        RateLimiter manualRateLimiter = new TokenBucketRateLimiter(tickSource);
+        User freeUser = new User(1, FREE_USER, tickSource);
+
+        assertEquals(0, manualRateLimiter.tryAcquire(freeUser, 2));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), manualRateLimiter.tryAcquire(freeUser, 1));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(2_000), manualRateLimiter.tryAcquire(freeUser, 4));
+
+        tickSource.advance(200, TimeUnit.MILLISECONDS);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(300), manualRateLimiter.tryAcquire(freeUser, 1));
+
+        tickSource.advance(300, TimeUnit.MILLISECONDS);
+        assertEquals(0, manualRateLimiter.tryAcquire(freeUser, 1));
+    }
+
+    @Test
+    void testTryAcquireBeyondCapacityNeverSucceeds() {
+        User freeUser = new User(1, FREE_USER);
+        assertEquals(Long.MAX_VALUE, rateLimiter.tryAcquire(freeUser, 11));
+    }
+
+    @Test
+    void testBlockingAcquireWaitsForRefill() throws InterruptedException {
+        User businessUser = new User(1, BUSINESS_USER);
+        assertTrue(rateLimiter.allowRequests(businessUser, 100));
+
+        long start = System.nanoTime();
+        rateLimitAcquirer.acquire(businessUser, 5);
+        long elapsed = System.nanoTime() - start;
+
+        // 5 tokens at 100 per second take 50 milliseconds to refill
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(40), "waited " + elapsed + " ns");
+        assertEquals(0, rateLimitAcquirer.waitingUsers());
+    }
+
+    @Test
+    void testWaitingAcquireIsRecordedAsOneDecision() throws Exception {
+        RateLimiterMetrics metrics = new RateLimiterMetrics();
+        RateLimiter meteredRateLimiter = new TokenBucketRateLimiter(DEFAULT_BUCKET_STORE_SHARDS,
+                                                                    DEFAULT_EVICTION_POLICY, DEFAULT_TICK_SOURCE,
+                                                                    metrics);
+        User businessUser = new User(1, BUSINESS_USER);
+        assertTrue(meteredRateLimiter.allowRequests(businessUser, 100));
+
+        try (RateLimitAcquirer meteredAcquirer = new RateLimitAcquirer(meteredRateLimiter)) {
+            meteredAcquirer.acquire(businessUser, 5);
+            meteredAcquirer.acquireAsync(businessUser, 5)
+                           .get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(3, metrics.getAllowedRequests());
+        assertEquals(0, metrics.getDeniedRequests());
+    }
+
+    @Test
+    void testBlockingAcquireBeyondCapacityShouldThrowException() {
+        User freeUser = new User(1, FREE_USER);
+        assertThrows(IllegalArgumentException.class, () -> rateLimitAcquirer.acquire(freeUser, 11));
+    }
+
+    @Test
+    void testAsyncWaitersAreServedInFifoOrder() throws Exception {
+        User premiumUser = new User(1, PREMIUM_USER);
+        assertTrue(rateLimiter.allowRequests(premiumUser, 20));
+
+        List<Integer> completionOrder = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int waiter = 0; waiter < 10; waiter++) {
+            int index = waiter;
+            futures.add(rateLimitAcquirer.acquireAsync(premiumUser, 1)
+                                         .thenRun(() -> completionOrder.add(index)));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                         .get(5, TimeUnit.SECONDS);
+
+        assertEquals(IntStream.range(0, 10)
+                              .boxed()
+                              .toList(), completionOrder);
+        assertEquals(0, rateLimitAcquirer.waitingUsers());
+    }
+
+    @Test
+    void testAsyncAcquireCompletesImmediatelyWhenTokensAreAvailable() {
+        User freeUser = new User(1, FREE_USER);
+        assertTrue(rateLimitAcquirer.acquireAsync(freeUser, 2)
+                                    .isDone());
+    }
+
+    @Test
+    void testAsyncAcquireBeyondCapacityFails() {
+        User freeUser = new User(1, FREE_USER);
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                                                     () -> rateLimitAcquirer.acquireAsync(freeUser, 11)
+                                                                            .get());
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+    }
+
+    @Test
+    void testManyVirtualThreadsShareOneBucket() throws InterruptedException {
+        User businessUser = new User(1, BUSINESS_USER);
+        CountDownLatch done = new CountDownLatch(150);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int thread = 0; thread < 150; thread++) {
+                executor.submit(() -> {
+                    rateLimitAcquirer.acquire(businessUser, 1);
+                    done.countDown();
+                    return null;
+                });
+            }
+            // 100 initial tokens plus 50 refilled at 100 per second
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+        assertEquals(0, rateLimitAcquirer.waitingUsers());
+    }
+
+    @Test
+    void testCloseFailsPendingWaiters() throws Exception {
+        ManualTickSource tickSource = new ManualTickSource();
+        RateLimitAcquirer closingAcquirer = new RateLimitAcquirer(new TokenBucketRateLimiter(tickSource));
+        User freeUser = new User(1, FREE_USER, tickSource);
+        assertTrue(closingAcquirer.acquireAsync(freeUser, 2)
+                                  .isDone());
+        CompletableFuture<Void> pending = closingAcquirer.acquireAsync(freeUser, 1);
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> {
+            try {
+                closingAcquirer.acquire(freeUser, 1);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, Executors.newVirtualThreadPerTaskExecutor());
+
+        closingAcquirer.close();
+
+        assertThrows(CancellationException.class, () -> pending.get(5, TimeUnit.SECONDS));
+        ExecutionException blockedException = assertThrows(ExecutionException.class,
+                                                           () -> blocked.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(CancellationException.class, blockedException.getCause());
+        assertTrue(closingAcquirer.acquireAsync(freeUser, 1)
+                                  .isCompletedExceptionally());
+        assertEquals(0, closingAcquirer.waitingUsers());
+    }
+
+    @Test
+    void testClosedTimerWheelRefusesTasks() {
+        HashedTimerWheel timerWheel = new HashedTimerWheel(Duration.ofMillis(1), 8);
+        assertTrue(timerWheel.schedule(0, () -> {
+        }));
+
+        timerWheel.close();
+
+        assertFalse(timerWheel.schedule(0, () -> {
+        }));
+    }
+
+    @Test
+    void testTimerWheelRunsTasksAfterTheirDelay() throws InterruptedException {
+        try (HashedTimerWheel timerWheel = new HashedTimerWheel(Duration.ofMillis(1), 8)) {
+            List<Integer> order = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(3);
+            long start = System.nanoTime();
+            timerWheel.schedule(TimeUnit.MILLISECONDS.toNanos(30), () -> {
+                order.add(30);
+                done.countDown();
+            });
+            timerWheel.schedule(TimeUnit.MILLISECONDS.toNanos(5), () -> {
+                order.add(5);
+                done.countDown();
+            });
+            timerWheel.schedule(TimeUnit.MILLISECONDS.toNanos(15), () -> {
+                order.add(15);
+                done.countDown();
+            });
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of(5, 15, 30), order);
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package org.rate_limiter.acquire;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.RateRequest;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.Algorithm;
+import org.rate_limiter.algo.BucketRateLimiter;
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+import org.rate_limiter.clock.SystemTickSource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.SubscriptionType.BUSINESS_USER;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.removeUserRateParams;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.setUserRateParams;
+
+class RateLimitedProcessorTest {
+    private RateLimiter rateLimiter;
+    private HashedTimerWheel timerWheel;
+    private User businessUser;
+
+    @BeforeEach
+    public void setUp() {
+        rateLimiter = new TokenBucketRateLimiter();
+        timerWheel = new HashedTimerWheel(Duration.ofMillis(1), 512);
+        businessUser = new User(1, BUSINESS_USER);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        timerWheel.close();
+        removeUserRateParams(businessUser.getId());
+    }
+
+    @Test
+    void testUpstreamDemandFollowsRefillRate() throws InterruptedException {
+        RateLimitedProcessor<Integer> processor = new RateLimitedProcessor<>(rateLimiter, businessUser, 10,
+                                                                             OverflowPolicy.DELAY, timerWheel);
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+        RangePublisher publisher = new RangePublisher(130);
+
+        long start = System.nanoTime();
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+
+        assertTrue(subscriber.terminated.await(5, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+        // A second's worth up front, then a batch of 10 every 100 milliseconds at 100 per second
+        assertEquals(List.of(100L, 10L, 10L, 10L), publisher.requests);
+        assertEquals(130, subscriber.items.size());
+        assertTrue(subscriber.completed);
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(250), "took " + elapsed + " ns");
+        assertEquals(0, processor.droppedItems());
+    }
+
+    @Test
+    void testDropPolicyDiscardsRefusedBatches() throws InterruptedException {
+        assertTrue(rateLimiter.allowRequests(businessUser, 100));
+        RateLimitedProcessor<Integer> processor = new RateLimitedProcessor<>(rateLimiter, businessUser, 10,
+                                                                             OverflowPolicy.DROP, timerWheel);
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+
+        processor.subscribe(subscriber);
+        new RangePublisher(50).subscribe(processor);
+
+        assertTrue(subscriber.terminated.await(5, TimeUnit.SECONDS));
+        assertTrue(subscriber.completed);
+        assertEquals(50, subscriber.items.size() + processor.droppedItems());
+        assertTrue(processor.droppedItems() >= 40, "dropped " + processor.droppedItems());
+    }
+
+    @Test
+    void testDelayPolicyDeliversRefusedBatchesLater() throws InterruptedException {
+        assertTrue(rateLimiter.allowRequests(businessUser, 100));
+        RateLimitedProcessor<Integer> processor = new RateLimitedProcessor<>(rateLimiter, businessUser, 10,
+                                                                             OverflowPolicy.DELAY, timerWheel);
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+
+        long start = System.nanoTime();
+        processor.subscribe(subscriber);
+        new RangePublisher(20).subscribe(processor);
+
+        assertTrue(subscriber.terminated.await(5, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+        assertTrue(subscriber.completed);
+        assertEquals(20, subscriber.items.size());
+        assertEquals(0, subscriber.items.get(0));
+        assertEquals(19, subscriber.items.get(19));
+        // 20 tokens at 100 per second take 200 milliseconds to refill
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(150), "took " + elapsed + " ns");
+        assertEquals(0, processor.droppedItems());
+    }
+
+    @Test
+    void testDelayPolicyShrinksBatchesBelowTheEffectiveLimit() throws InterruptedException {
+        // The sliding window admits 10 per millisecond, half of the capacity
+        setUserRateParams(businessUser.getId(), new RateParams(20, new RateRequest(TimeUnit.MILLISECONDS, 10)));
+        RateLimiter slidingWindow = new BucketRateLimiter(Algorithm.SLIDING_WINDOW_COUNTER.forEverySubscription());
+        RateLimitedProcessor<Integer> processor = new RateLimitedProcessor<>(slidingWindow, businessUser, 20,
+                                                                             OverflowPolicy.DELAY, timerWheel);
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+
+        processor.subscribe(subscriber);
+        new RangePublisher(200).subscribe(processor);
+
+        assertTrue(subscriber.terminated.await(5, TimeUnit.SECONDS));
+        assertTrue(subscriber.completed);
+        assertEquals(200, subscriber.items.size());
+        assertEquals(0, processor.droppedItems());
+    }
+
+    @Test
+    void testBufferStaysBoundedWithoutDownstreamDemand() throws InterruptedException {
+        RateLimitedProcessor<Integer> processor = new RateLimitedProcessor<>(rateLimiter, businessUser, 8,
+                                                                             OverflowPolicy.DELAY, 32, timerWheel,
+                                                                             SystemTickSource.INSTANCE);
+        CollectingSubscriber subscriber = new CollectingSubscriber(0);
+        RangePublisher publisher = new RangePublisher(10_000);
+
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+        Thread.sleep(200);
+
+        assertEquals(List.of(32L), publisher.requests);
+        assertTrue(subscriber.items.isEmpty());
+
+        subscriber.subscription.request(5);
+        assertEquals(5, subscriber.items.size());
+    }
+
+    @Test
+    void testSecondSubscriberAndInvalidRequestAreRejected() throws InterruptedException {
+        RateLimitedProcessor<Integer> processor = new RateLimitedProcessor<>(rateLimiter, businessUser, 10,
+                                                                             OverflowPolicy.DROP, timerWheel);
+        CollectingSubscriber first = new CollectingSubscriber(0);
+        CollectingSubscriber second = new CollectingSubscriber(1);
+        processor.subscribe(first);
+        processor.subscribe(second);
+
+        assertTrue(second.terminated.await(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, second.error);
+
+        RangePublisher publisher = new RangePublisher(1_000);
+        publisher.subscribe(processor);
+        first.subscription.request(0);
+
+        assertTrue(first.terminated.await(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, first.error);
+        assertTrue(publisher.cancelled);
+    }
+
+    @Test
+    void testInvalidBatchSizeShouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> new RateLimitedProcessor<>(rateLimiter, businessUser, 0, OverflowPolicy.DROP, timerWheel));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new RateLimitedProcessor<>(rateLimiter, businessUser, 16, OverflowPolicy.DROP, 8,
+                                                      timerWheel, SystemTickSource.INSTANCE));
+    }
+
+    /**
+     * Emits {@code 0..count-1} on the requesting thread and records every request.
+     */
+    private static final class RangePublisher implements Flow.Publisher<Integer> {
+        private final int count;
+        private final List<Long> requests = new CopyOnWriteArrayList<>();
+        private volatile boolean cancelled;
+        private long demand;
+        private int next;
+        private boolean emitting;
+
+        private RangePublisher(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super Integer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public synchronized void request(long n) {
+                    requests.add(n);
+                    demand += n;
+                    if (emitting) {
+                        return;
+                    }
+                    emitting = true;
+                    while (demand > 0 && next < count && !cancelled) {
+                        demand--;
+                        subscriber.onNext(next++);
+                    }
+                    emitting = false;
+                    if (next == count && !cancelled) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    private static final class CollectingSubscriber implements Flow.Subscriber<Integer> {
+        private final long initialRequest;
+        private final List<Integer> items = new CopyOnWriteArrayList<>();
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        private CollectingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            terminated.countDown();
+        }
+    }
+}
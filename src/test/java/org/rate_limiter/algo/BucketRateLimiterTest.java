@@ -0,0 +1,120 @@
+package org.rate_limiter.algo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.User;
+import org.rate_limiter.clock.ManualTickSource;
+import org.rate_limiter.clock.TickSource;
+import org.rate_limiter.store.EvictionPolicy;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.SubscriptionType.*;
+
+class BucketRateLimiterTest {
+    private ManualTickSource tickSource;
+
+    @BeforeEach
+    public void setUp() {
+        tickSource = new ManualTickSource();
+    }
+
+    @Test
+    void testAlgorithmIsSelectedPerSubscriptionType() {
+        BucketRateLimiter rateLimiter = new BucketRateLimiter(Map.of(PREMIUM_USER, Algorithm.SLIDING_WINDOW_LOG,
+                                                                     BUSINESS_USER,
+                                                                     Algorithm.SLIDING_WINDOW_COUNTER), tickSource);
+
+        assertEquals(Algorithm.TOKEN_BUCKET, rateLimiter.algorithmFor(FREE_USER));
+        assertEquals(Algorithm.SLIDING_WINDOW_LOG, rateLimiter.algorithmFor(PREMIUM_USER));
+        assertEquals(Algorithm.SLIDING_WINDOW_COUNTER, rateLimiter.algorithmFor(BUSINESS_USER));
+
+        User businessUser = new User(1, BUSINESS_USER, tickSource);
+        User basicUser = new User(2, BASIC_USER, tickSource);
+        assertEquals(100, admitAll(rateLimiter, businessUser));
+        assertEquals(5, admitAll(rateLimiter, basicUser));
+
+        tickSource.advance(10, TimeUnit.SECONDS);
+        // the token bucket saved up to its capacity while the sliding window stays at the rate
+        assertEquals(100, admitAll(rateLimiter, businessUser));
+        assertEquals(15, admitAll(rateLimiter, basicUser));
+    }
+
+    @Test
+    void testEveryAlgorithmAgreesOnASteadyRate() {
+        for (Algorithm algorithm : Algorithm.values()) {
+            ManualTickSource clock = new ManualTickSource();
+            RateLimiter rateLimiter = new BucketRateLimiter(algorithm.forEverySubscription(), clock);
+            User premiumUser = new User(1, PREMIUM_USER, clock);
+
+            long admitted = admitAll(rateLimiter, premiumUser);
+            for (int step = 0; step < 100; step++) {
+                clock.advance(50, TimeUnit.MILLISECONDS);
+                admitted += admitAll(rateLimiter, premiumUser);
+            }
+            // 20 initial tokens plus 20 per second for five seconds, give or take one window
+            assertTrue(admitted >= 80 && admitted <= 140, algorithm + " admitted " + admitted);
+        }
+    }
+
+    @Test
+    void testSlidingWindowRateLimitersUseTheirAlgorithm() {
+        assertEquals(Algorithm.SLIDING_WINDOW_COUNTER, new SlidingWindowCounterRateLimiter().algorithmFor(FREE_USER));
+        assertEquals(Algorithm.SLIDING_WINDOW_LOG, new SlidingWindowLogRateLimiter().algorithmFor(CUSTOM_USER));
+        assertEquals(Algorithm.TOKEN_BUCKET, new TokenBucketRateLimiter().algorithmFor(BUSINESS_USER));
+    }
+
+    @Test
+    void testCreditFundedAdmissionRacingEvictionIsNotChargedTwice() {
+        BucketRateLimiter rateLimiter = new BucketRateLimiter(Map.of(), 1, new EvictionPolicy(Duration.ofMinutes(10),
+                                                                                              1, 64, 0), tickSource);
+        User newcomer = new User(2, FREE_USER, tickSource);
+        AtomicBoolean evictOnCreditSpend = new AtomicBoolean();
+        // the ledger reads the wall clock while it spends, which is where the user's entry gets evicted
+        User user = new User(1, FREE_USER, new TickSource() {
+            @Override
+            public long nanoTime() {
+                return tickSource.nanoTime();
+            }
+
+            @Override
+            public long epochNanos() {
+                if (evictOnCreditSpend.compareAndSet(true, false)) {
+                    assertTrue(rateLimiter.allowRequest(newcomer));
+                }
+                return tickSource.epochNanos();
+            }
+        });
+        user.addCredits(1);
+        assertEquals(2, admitAll(rateLimiter, user, 2));
+
+        evictOnCreditSpend.set(true);
+        assertTrue(rateLimiter.allowRequest(user));
+
+        assertFalse(evictOnCreditSpend.get());
+        assertEquals(0, user.getCreditLedger()
+                            .availableTokens());
+        // the request was paid for with credits, so the user's next bucket starts untouched
+        assertEquals(2, admitAll(rateLimiter, user));
+    }
+
+    private static long admitAll(RateLimiter rateLimiter, User user, long limit) {
+        long admitted = 0;
+        while (admitted < limit && rateLimiter.allowRequest(user)) {
+            admitted++;
+        }
+        return admitted;
+    }
+
+    private static long admitAll(RateLimiter rateLimiter, User user) {
+        long admitted = 0;
+        while (rateLimiter.allowRequest(user)) {
+            admitted++;
+        }
+        return admitted;
+    }
+}
@@ -0,0 +1,146 @@
+package org.rate_limiter.algo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.RateRequest;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.clock.ManualTickSource;
+import org.rate_limiter.exceptions.InvalidRateParams;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.SubscriptionType.*;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.getSubscriptionTypeRateParamsMap;
+
+class GcraRateLimiterTest {
+    private ManualTickSource tickSource;
+    private RateLimiter tokenBucketRateLimiter;
+    private RateLimiter gcraRateLimiter;
+
+    @BeforeEach
+    public void setUp() {
+        tickSource = new ManualTickSource();
+        tokenBucketRateLimiter = new TokenBucketRateLimiter(tickSource);
+        gcraRateLimiter = new GcraRateLimiter(tickSource);
+    }
+
+    @Test
+    void testAdmissionsMatchTokenBucketForEveryTier() {
+        SplittableRandom random = new SplittableRandom(42);
+        SubscriptionType[] subscriptionTypes = SubscriptionType.values();
+        User[] tokenBucketUsers = new User[subscriptionTypes.length];
+        User[] gcraUsers = new User[subscriptionTypes.length];
+        for (int index = 0; index < subscriptionTypes.length; index++) {
+            tokenBucketUsers[index] = new User(index, subscriptionTypes[index], tickSource);
+            gcraUsers[index] = new User(index, subscriptionTypes[index], tickSource);
+        }
+
+        for (int step = 0; step < 20_000; step++) {
+            int index = random.nextInt(subscriptionTypes.length);
+            long capacity = getSubscriptionTypeRateParamsMap().get(subscriptionTypes[index])
+                                                              .capacity();
+            long permits = 1 + random.nextLong(capacity + 2);
+            switch (random.nextInt(4)) {
+                case 0 -> tickSource.advance(random.nextLong(200_000), TimeUnit.MICROSECONDS);
+                case 1 -> assertEquals(tokenBucketRateLimiter.tryAcquire(tokenBucketUsers[index], permits),
+                                       gcraRateLimiter.tryAcquire(gcraUsers[index], permits), "step " + step);
+                case 2 -> {
+                    if (random.nextInt(50) == 0) {
+                        tokenBucketUsers[index].addCredits(permits);
+                        gcraUsers[index].addCredits(permits);
+                    }
+                }
+                default -> assertEquals(tokenBucketRateLimiter.allowRequests(tokenBucketUsers[index], permits),
+                                        gcraRateLimiter.allowRequests(gcraUsers[index], permits), "step " + step);
+            }
+        }
+    }
+
+    @Test
+    void testBurstAndRefillMatchTokenBucket() {
+        User tokenBucketUser = new User(1, BUSINESS_USER, tickSource);
+        User gcraUser = new User(1, BUSINESS_USER, tickSource);
+
+        assertEquals(admitAll(tokenBucketRateLimiter, tokenBucketUser), admitAll(gcraRateLimiter, gcraUser));
+        tickSource.advance(5, TimeUnit.SECONDS);
+        assertEquals(200, admitAll(gcraRateLimiter, gcraUser));
+        assertEquals(200, admitAll(tokenBucketRateLimiter, tokenBucketUser));
+        tickSource.advance(250, TimeUnit.MILLISECONDS);
+        assertEquals(25, admitAll(gcraRateLimiter, gcraUser));
+    }
+
+    @Test
+    void testTryAcquireReturnsTheEmissionWait() {
+        User freeUser = new User(1, FREE_USER, tickSource);
+
+        assertEquals(0, gcraRateLimiter.tryAcquire(freeUser, 2));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), gcraRateLimiter.tryAcquire(freeUser, 1));
+        tickSource.advance(200, TimeUnit.MILLISECONDS);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(300), gcraRateLimiter.tryAcquire(freeUser, 1));
+        assertEquals(Long.MAX_VALUE, gcraRateLimiter.tryAcquire(freeUser, 11));
+    }
+
+    @Test
+    void testPaidCreditsCoverWhatTheBucketCannot() {
+        User freeUser = new User(1, FREE_USER, tickSource);
+        freeUser.addCredits(3);
+
+        assertTrue(gcraRateLimiter.allowRequests(freeUser, 5));
+        assertFalse(gcraRateLimiter.allowRequest(freeUser));
+        assertEquals(0, freeUser.getCreditLedger()
+                                .availableTokens());
+    }
+
+    @Test
+    void testDeniedRequestReturnsTakenTokens() {
+        GcraBucket bucket = new GcraBucket(new RateParams(10, new RateRequest(TimeUnit.SECONDS, 2)),
+                                           new CreditLedger(tickSource), tickSource);
+        assertFalse(bucket.allowRequests(3, tickSource.nanoTime()));
+        assertEquals(2, bucket.availableTokens());
+    }
+
+    @Test
+    void testEvictableOnceFullAndIdle() {
+        GcraBucket bucket = new GcraBucket(new RateParams(10, new RateRequest(TimeUnit.SECONDS, 2)),
+                                           new CreditLedger(tickSource), tickSource);
+        assertFalse(bucket.isEvictable(tickSource.nanoTime(), 0));
+
+        // 8 missing tokens at 2 per second
+        tickSource.advance(4, TimeUnit.SECONDS);
+        assertTrue(bucket.isEvictable(tickSource.nanoTime(), 0));
+        assertFalse(bucket.isEvictable(tickSource.nanoTime(), TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    void testReconfigureRescalesOnlyWhenTheLimitsChange() {
+        GcraBucket bucket = new GcraBucket(new RateParams(10, new RateRequest(TimeUnit.SECONDS, 2)),
+                                           new CreditLedger(tickSource), tickSource);
+        tickSource.advance(3, TimeUnit.SECONDS);
+        assertEquals(8, bucket.availableTokens());
+
+        bucket.reconfigure(new RateParams(10, new RateRequest(TimeUnit.SECONDS, 2)), 1);
+        assertEquals(8, bucket.availableTokens());
+        bucket.reconfigure(new RateParams(20, new RateRequest(TimeUnit.SECONDS, 4)), 2);
+        assertEquals(16, bucket.availableTokens());
+        assertEquals(2, bucket.configVersion());
+    }
+
+    @Test
+    void testBurstToleranceOverflowIsRejected() {
+        RateParams rateParams = new RateParams(Long.MAX_VALUE, new RateRequest(TimeUnit.SECONDS, 1));
+        assertThrows(InvalidRateParams.class, () -> new GcraBucket(rateParams, new CreditLedger()));
+    }
+
+    private static long admitAll(RateLimiter rateLimiter, User user) {
+        long admitted = 0;
+        while (rateLimiter.allowRequest(user)) {
+            admitted++;
+        }
+        return admitted;
+    }
+}
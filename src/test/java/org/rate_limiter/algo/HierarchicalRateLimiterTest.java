@@ -0,0 +1,153 @@
+package org.rate_limiter.algo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.RateRequest;
+import org.rate_limiter.User;
+import org.rate_limiter.clock.ManualTickSource;
+import org.rate_limiter.exceptions.InvalidRateParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.SubscriptionType.*;
+
+class HierarchicalRateLimiterTest {
+    private static final int USERS_PER_TENANT = 10;
+
+    private ManualTickSource tickSource;
+
+    @BeforeEach
+    public void setUp() {
+        tickSource = new ManualTickSource();
+    }
+
+    @Test
+    void testUsersOfATenantShareItsQuota() {
+        HierarchicalRateLimiter rateLimiter = new HierarchicalRateLimiter(
+                new TokenBucketRateLimiter(tickSource), List.of(tenantLevel(5)), tickSource);
+        User first = new User(1, BUSINESS_USER, tickSource);
+        User second = new User(2, BUSINESS_USER, tickSource);
+        User otherTenant = new User(USERS_PER_TENANT + 1, BUSINESS_USER, tickSource);
+
+        assertTrue(rateLimiter.allowRequests(first, 3));
+        assertTrue(rateLimiter.allowRequests(second, 2));
+        assertFalse(rateLimiter.allowRequest(second));
+        assertTrue(rateLimiter.allowRequests(otherTenant, 5));
+
+        tickSource.advance(200, TimeUnit.MILLISECONDS);
+        assertTrue(rateLimiter.allowRequest(second));
+        assertFalse(rateLimiter.allowRequest(first));
+    }
+
+    @Test
+    void testUserRefusalGivesTheParentTokensBack() {
+        HierarchicalRateLimiter rateLimiter = new HierarchicalRateLimiter(
+                new TokenBucketRateLimiter(tickSource), List.of(globalLevel(100), tenantLevel(50)), tickSource);
+        User freeUser = new User(1, FREE_USER, tickSource);
+
+        assertTrue(rateLimiter.allowRequests(freeUser, 2));
+        assertFalse(rateLimiter.allowRequest(freeUser));
+
+        assertEquals(98, rateLimiter.availableTokens(freeUser, "global"));
+        assertEquals(48, rateLimiter.availableTokens(freeUser, "tenant"));
+    }
+
+    @Test
+    void testParentRefusalLeavesUserAndOuterLevelsUntouched() {
+        HierarchicalRateLimiter rateLimiter = new HierarchicalRateLimiter(
+                new TokenBucketRateLimiter(tickSource), List.of(globalLevel(100), tenantLevel(3)), tickSource);
+        User businessUser = new User(1, BUSINESS_USER, tickSource);
+        businessUser.addCredits(10);
+
+        assertTrue(rateLimiter.allowRequests(businessUser, 3));
+        assertFalse(rateLimiter.allowRequest(businessUser));
+
+        assertEquals(97, rateLimiter.availableTokens(businessUser, "global"));
+        assertEquals(10, businessUser.getCreditLedger()
+                                     .availableTokens());
+    }
+
+    @Test
+    void testTryAcquireReportsTheWaitOfTheRefusingLevel() {
+        HierarchicalRateLimiter rateLimiter = new HierarchicalRateLimiter(
+                new TokenBucketRateLimiter(tickSource), List.of(tenantLevel(5)), tickSource);
+        User premiumUser = new User(1, PREMIUM_USER, tickSource);
+
+        assertEquals(0, rateLimiter.tryAcquire(premiumUser, 5));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(400), rateLimiter.tryAcquire(premiumUser, 2));
+        assertEquals(Long.MAX_VALUE, rateLimiter.tryAcquire(premiumUser, 6));
+
+        User freeUser = new User(2, FREE_USER, tickSource);
+        tickSource.advance(5, TimeUnit.SECONDS);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), rateLimiter.tryAcquire(freeUser, 3));
+        assertEquals(5, rateLimiter.availableTokens(freeUser, "tenant"));
+    }
+
+    @Test
+    void testConcurrentRequestsNeverExceedAnyLevel() throws Exception {
+        HierarchicalRateLimiter rateLimiter = new HierarchicalRateLimiter(
+                new TokenBucketRateLimiter(tickSource), List.of(globalLevel(1_000), tenantLevel(200)), tickSource);
+        List<User> users = new ArrayList<>();
+        for (int id = 0; id < 4 * USERS_PER_TENANT; id++) {
+            users.add(new User(id, BUSINESS_USER, tickSource));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            futures.add(executor.submit(() -> admitAll(rateLimiter, users)));
+        }
+        long admitted = 0;
+        for (Future<Long> future : futures) {
+            admitted += future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        admitted += admitAll(rateLimiter, users);
+
+        assertEquals(4 * 200, admitted);
+        assertEquals(200, rateLimiter.availableTokens(users.getFirst(), "global"));
+    }
+
+    @Test
+    void testInvalidLevelShouldThrowException() {
+        RateLimiter userRateLimiter = new TokenBucketRateLimiter(tickSource);
+        RateLimitLevel invalid = new RateLimitLevel("tenant", new RateParams(5, new RateRequest(TimeUnit.NANOSECONDS,
+                                                                                                 1)), user -> 0);
+
+        assertThrows(InvalidRateParams.class, () -> new HierarchicalRateLimiter(userRateLimiter, List.of(invalid)));
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalRateLimiter(
+                userRateLimiter, List.of(new RateLimitLevel("tenant", null, user -> 0))));
+    }
+
+    private static RateLimitLevel tenantLevel(long capacity) {
+        return new RateLimitLevel("tenant", new RateParams(capacity, new RateRequest(TimeUnit.SECONDS, capacity)),
+                                  user -> user.getId() / USERS_PER_TENANT);
+    }
+
+    private static RateLimitLevel globalLevel(long capacity) {
+        return new RateLimitLevel("global", new RateParams(capacity, new RateRequest(TimeUnit.SECONDS, capacity)),
+                                  user -> 0);
+    }
+
+    private static long admitAll(RateLimiter rateLimiter, List<User> users) {
+        long admitted = 0;
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (User user : users) {
+                if (rateLimiter.allowRequest(user)) {
+                    admitted++;
+                    progress = true;
+                }
+            }
+        }
+        return admitted;
+    }
+}
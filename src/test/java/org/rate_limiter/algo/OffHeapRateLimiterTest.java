@@ -0,0 +1,91 @@
+package org.rate_limiter.algo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rate_limiter.User;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.SubscriptionType.BASIC_USER;
+import static org.rate_limiter.SubscriptionType.FREE_USER;
+
+class OffHeapRateLimiterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRequestRateLimitingExceeded() {
+        try (OffHeapRateLimiter rateLimiter = new OffHeapRateLimiter(tempDir.resolve("arena"), 16)) {
+            User freeUser = new User(1, FREE_USER);
+            assertTrue(rateLimiter.allowRequest(freeUser));
+            assertTrue(rateLimiter.allowRequest(freeUser));
+            assertFalse(rateLimiter.allowRequest(freeUser));
+
+            User otherFreeUser = new User(2, FREE_USER);
+            assertTrue(rateLimiter.allowRequest(otherFreeUser));
+        }
+    }
+
+    @Test
+    void testRequestRateLimitingExceededButSavedByExtraCredit() {
+        try (OffHeapRateLimiter rateLimiter = new OffHeapRateLimiter(tempDir.resolve("arena"), 16)) {
+            User freeUser = new User(0, FREE_USER);
+            assertTrue(rateLimiter.allowRequest(freeUser));
+            assertTrue(rateLimiter.allowRequest(freeUser));
+            freeUser.addCredits(1L);
+
+            assertTrue(rateLimiter.allowRequest(freeUser));
+            assertFalse(rateLimiter.allowRequest(freeUser));
+        }
+    }
+
+    @Test
+    void testWeightedAndBulkRequests() {
+        try (OffHeapRateLimiter rateLimiter = new OffHeapRateLimiter(tempDir.resolve("arena"), 16)) {
+            User basicUser = new User(3, BASIC_USER);
+            assertFalse(rateLimiter.allowRequests(basicUser, 6));
+            assertTrue(rateLimiter.allowRequests(basicUser, 4));
+            basicUser.addCredits(1L);
+
+            User[] users = {basicUser, basicUser, basicUser};
+            long[] allowed = AdmissionBitmap.forRequests(users.length);
+            rateLimiter.allowRequests(users, allowed);
+
+            assertTrue(AdmissionBitmap.isAllowed(allowed, 0));
+            assertTrue(AdmissionBitmap.isAllowed(allowed, 1));
+            assertFalse(AdmissionBitmap.isAllowed(allowed, 2));
+        }
+    }
+
+    @Test
+    void testStateSurvivesReopeningTheArena() {
+        Path arena = tempDir.resolve("arena");
+        User basicUser = new User(15, BASIC_USER);
+        try (OffHeapRateLimiter rateLimiter = new OffHeapRateLimiter(arena, 16)) {
+            for (int request = 0; request < 5; request++) {
+                assertTrue(rateLimiter.allowRequest(basicUser));
+            }
+        }
+
+        try (OffHeapRateLimiter rateLimiter = new OffHeapRateLimiter(arena, 16)) {
+            // Fewer than 5 tokens per second of downtime can have been refilled since the first arena was closed
+            assertTrue(rateLimiter.availableTokens(basicUser) < 5);
+        }
+    }
+
+    @Test
+    void testUserOutsideArenaShouldThrowException() {
+        try (OffHeapRateLimiter rateLimiter = new OffHeapRateLimiter(tempDir.resolve("arena"), 16)) {
+            assertThrows(IllegalArgumentException.class, () -> rateLimiter.allowRequest(new User(16, FREE_USER)));
+            assertThrows(IllegalArgumentException.class, () -> rateLimiter.allowRequest(new User(-1, FREE_USER)));
+        }
+    }
+
+    @Test
+    void testReopeningWithDifferentLayoutShouldThrowException() {
+        Path arena = tempDir.resolve("arena");
+        new OffHeapRateLimiter(arena, 16).close();
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapRateLimiter(arena, 32));
+    }
+}
@@ -0,0 +1,196 @@
+package org.rate_limiter.algo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.RateRequest;
+import org.rate_limiter.clock.ManualTickSource;
+import org.rate_limiter.exceptions.InvalidRateParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterTest {
+    private static final RateParams HUNDRED_PER_SECOND = new RateParams(200, new RateRequest(TimeUnit.SECONDS, 100));
+
+    private ManualTickSource tickSource;
+    private CreditLedger creditLedger;
+    private SlidingWindowCounter counter;
+
+    @BeforeEach
+    public void setUp() {
+        tickSource = new ManualTickSource();
+        creditLedger = new CreditLedger(tickSource);
+        counter = new SlidingWindowCounter(HUNDRED_PER_SECOND, creditLedger, tickSource);
+    }
+
+    @Test
+    void testWindowAdmitsUpToTheRate() {
+        assertEquals(100, admitAll());
+        assertEquals(0, counter.availableTokens());
+    }
+
+    @Test
+    void testPreviousWindowIsWeightedByItsOverlap() {
+        assertEquals(100, admitAll());
+
+        tickSource.advance(1_250, TimeUnit.MILLISECONDS);
+        // 75% of the previous window still overlaps the sliding window
+        assertEquals(25, counter.availableTokens());
+        assertEquals(25, admitAll());
+
+        tickSource.advance(500, TimeUnit.MILLISECONDS);
+        // 25% of the previous 100 plus the 25 admitted in this window
+        assertEquals(50, counter.availableTokens());
+    }
+
+    @Test
+    void testIdleWindowsRestoreTheFullRate() {
+        assertEquals(100, admitAll());
+        tickSource.advance(2, TimeUnit.SECONDS);
+        assertEquals(100, counter.availableTokens());
+        // unlike a token bucket, idling never builds up a burst above the rate
+        tickSource.advance(10, TimeUnit.SECONDS);
+        assertEquals(100, admitAll());
+    }
+
+    @Test
+    void testDrainedWindowRecoversAfterIdlingPastHalfTheWindowRange() {
+        SlidingWindowCounter perMillisecond = new SlidingWindowCounter(
+                new RateParams(10, new RateRequest(TimeUnit.MILLISECONDS, 10)), creditLedger, tickSource);
+        assertEquals(10, admitAll(perMillisecond));
+        assertEquals(100, admitAll());
+
+        // More than 2^23 windows of either length
+        tickSource.advance(100, TimeUnit.DAYS);
+
+        assertTrue(perMillisecond.isEvictable(tickSource.nanoTime(), 0));
+        assertTrue(counter.isEvictable(tickSource.nanoTime(), 0));
+        assertEquals(10, perMillisecond.availableTokens());
+        assertEquals(10, admitAll(perMillisecond));
+        assertEquals(100, admitAll());
+    }
+
+    @Test
+    void testTryAcquireWaitsUntilTheWindowHasRoom() {
+        assertEquals(100, admitAll());
+
+        long waitNanos = counter.tryAcquire(1, tickSource.nanoTime());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1_010), waitNanos);
+
+        tickSource.advance(waitNanos - 1_000);
+        assertFalse(counter.allowRequests(1, tickSource.nanoTime()));
+        tickSource.advance(1_000);
+        assertTrue(counter.allowRequests(1, tickSource.nanoTime()));
+    }
+
+    @Test
+    void testTryAcquireWaitsForThePreviousWindowToFade() {
+        assertEquals(100, admitAll());
+        tickSource.advance(1_500, TimeUnit.MILLISECONDS);
+        assertEquals(50, admitAll());
+
+        long waitNanos = counter.tryAcquire(10, tickSource.nanoTime());
+        // the previous window has to fade to 40 requests, i.e. 60% of the window in
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), waitNanos);
+        tickSource.advance(waitNanos);
+        assertTrue(counter.allowRequests(10, tickSource.nanoTime()));
+    }
+
+    @Test
+    void testPermitsAboveTheRateNeverSucceed() {
+        assertEquals(Long.MAX_VALUE, counter.tryAcquire(101, tickSource.nanoTime()));
+    }
+
+    @Test
+    void testPaidCreditsCoverWhatTheWindowCannot() {
+        assertEquals(95, admit(95));
+        creditLedger.addCredits(10);
+
+        assertTrue(counter.allowRequests(15, tickSource.nanoTime()));
+        assertEquals(0, creditLedger.availableTokens());
+        assertFalse(counter.allowRequests(1, tickSource.nanoTime()));
+    }
+
+    @Test
+    void testDeniedRequestReturnsTakenTokens() {
+        assertEquals(95, admit(95));
+        assertFalse(counter.allowRequests(10, tickSource.nanoTime()));
+        assertEquals(5, counter.availableTokens());
+    }
+
+    @Test
+    void testEvictableOnlyAfterTheWindowsFadedAndIdled() {
+        assertTrue(counter.allowRequests(1, tickSource.nanoTime()));
+        assertFalse(counter.isEvictable(tickSource.nanoTime(), 0));
+
+        tickSource.advance(2, TimeUnit.SECONDS);
+        assertTrue(counter.isEvictable(tickSource.nanoTime(), 0));
+        assertFalse(counter.isEvictable(tickSource.nanoTime(), TimeUnit.MINUTES.toNanos(1)));
+    }
+
+    @Test
+    void testConcurrentRequestsNeverOverAdmit() throws Exception {
+        SlidingWindowCounter daily = new SlidingWindowCounter(new RateParams(10_000, new RateRequest(TimeUnit.DAYS,
+                                                                                                    1_000)),
+                                                              new CreditLedger());
+        int threads = 32;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int thread = 0; thread < threads; thread++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int allowed = 0;
+                    for (int request = 0; request < 1_000; request++) {
+                        if (daily.allowRequests(1, System.nanoTime())) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            start.countDown();
+            int allowed = 0;
+            for (Future<Integer> result : results) {
+                allowed += result.get();
+            }
+            assertEquals(1_000, allowed);
+        }
+    }
+
+    @Test
+    void testLimitAbovePackedCountIsRejected() {
+        RateParams rateParams = new RateParams(SlidingWindow.MAX_LIMIT + 1,
+                                               new RateRequest(TimeUnit.SECONDS, SlidingWindow.MAX_LIMIT + 1));
+        assertThrows(InvalidRateParams.class, () -> new SlidingWindowCounter(rateParams, new CreditLedger()));
+    }
+
+    private long admitAll() {
+        return admitAll(counter);
+    }
+
+    private long admitAll(SlidingWindowCounter window) {
+        return admit(window, Long.MAX_VALUE);
+    }
+
+    private long admit(long maxRequests) {
+        return admit(counter, maxRequests);
+    }
+
+    private long admit(SlidingWindowCounter window, long maxRequests) {
+        long admitted = 0;
+        while (admitted < maxRequests && window.allowRequests(1, tickSource.nanoTime())) {
+            admitted++;
+        }
+        return admitted;
+    }
+}
@@ -0,0 +1,106 @@
+package org.rate_limiter.algo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.RateRequest;
+import org.rate_limiter.clock.ManualTickSource;
+import org.rate_limiter.exceptions.InvalidRateParams;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowLogTest {
+    private static final RateParams HUNDRED_PER_SECOND = new RateParams(200, new RateRequest(TimeUnit.SECONDS, 100));
+
+    private ManualTickSource tickSource;
+    private CreditLedger creditLedger;
+    private SlidingWindowLog log;
+
+    @BeforeEach
+    public void setUp() {
+        tickSource = new ManualTickSource();
+        creditLedger = new CreditLedger(tickSource);
+        log = new SlidingWindowLog(HUNDRED_PER_SECOND, creditLedger, tickSource);
+    }
+
+    @Test
+    void testRequestsLeaveTheWindowExactlyOneWindowLater() {
+        assertTrue(log.allowRequests(100, tickSource.nanoTime()));
+
+        tickSource.advance(999_999, TimeUnit.MICROSECONDS);
+        assertFalse(log.allowRequests(1, tickSource.nanoTime()));
+        tickSource.advance(1, TimeUnit.MICROSECONDS);
+        assertTrue(log.allowRequests(100, tickSource.nanoTime()));
+    }
+
+    @Test
+    void testEveryRequestExpiresOnItsOwn() {
+        for (int step = 0; step < 100; step++) {
+            assertTrue(log.allowRequests(1, tickSource.nanoTime()));
+            tickSource.advance(10, TimeUnit.MILLISECONDS);
+        }
+        // only the request admitted at zero has left the window
+        assertEquals(1, log.availableTokens());
+        assertTrue(log.allowRequests(1, tickSource.nanoTime()));
+        assertFalse(log.allowRequests(1, tickSource.nanoTime()));
+    }
+
+    @Test
+    void testTryAcquireWaitsForTheOldestRequestsToExpire() {
+        assertTrue(log.allowRequests(60, tickSource.nanoTime()));
+        tickSource.advance(300, TimeUnit.MILLISECONDS);
+        assertTrue(log.allowRequests(40, tickSource.nanoTime()));
+        tickSource.advance(200, TimeUnit.MILLISECONDS);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), log.tryAcquire(50, tickSource.nanoTime()));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(800), log.tryAcquire(70, tickSource.nanoTime()));
+        assertEquals(Long.MAX_VALUE, log.tryAcquire(101, tickSource.nanoTime()));
+    }
+
+    @Test
+    void testPaidCreditsCoverWhatTheWindowCannot() {
+        assertTrue(log.allowRequests(95, tickSource.nanoTime()));
+        creditLedger.addCredits(10);
+
+        assertFalse(log.allowRequests(16, tickSource.nanoTime()));
+        assertEquals(10, creditLedger.availableTokens());
+        assertTrue(log.allowRequests(15, tickSource.nanoTime()));
+        assertEquals(0, creditLedger.availableTokens());
+        assertEquals(0, log.availableTokens());
+    }
+
+    @Test
+    void testEvictableOnceEmptyAndIdle() {
+        assertTrue(log.allowRequests(1, tickSource.nanoTime()));
+        assertFalse(log.isEvictable(tickSource.nanoTime(), 0));
+
+        tickSource.advance(1, TimeUnit.SECONDS);
+        assertTrue(log.isEvictable(tickSource.nanoTime(), 0));
+        assertFalse(log.isEvictable(tickSource.nanoTime(), TimeUnit.MINUTES.toNanos(1)));
+    }
+
+    @Test
+    void testRingGrowsLazilyAndKeepsTheOrderAcrossTheWrap() {
+        SlidingWindowLog large = new SlidingWindowLog(new RateParams(1_000, new RateRequest(TimeUnit.SECONDS, 1_000)),
+                                                      creditLedger, tickSource);
+        assertTrue(large.allowRequests(SlidingWindowLog.INITIAL_RING_SIZE - 2, tickSource.nanoTime()));
+        tickSource.advance(500, TimeUnit.MILLISECONDS);
+        assertTrue(large.allowRequests(10, tickSource.nanoTime()));
+        tickSource.advance(600, TimeUnit.MILLISECONDS);
+        assertEquals(990, large.availableTokens());
+
+        assertTrue(large.allowRequests(990, tickSource.nanoTime()));
+        assertFalse(large.allowRequests(1, tickSource.nanoTime()));
+        tickSource.advance(400, TimeUnit.MILLISECONDS);
+        assertEquals(10, large.availableTokens());
+    }
+
+    @Test
+    void testSubMicrosecondWindowIsRejected() {
+        RateParams rateParams = new RateParams(10, new RateRequest(TimeUnit.NANOSECONDS, 1));
+        assertThrows(InvalidRateParams.class, () -> new SlidingWindowLog(rateParams, new CreditLedger()));
+    }
+}
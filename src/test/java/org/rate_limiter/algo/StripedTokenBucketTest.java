@@ -0,0 +1,252 @@
+package org.rate_limiter.algo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.RateRequest;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.clock.ManualTickSource;
+import org.rate_limiter.clock.SystemTickSource;
+import org.rate_limiter.clock.TickSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.SubscriptionType.CUSTOM_USER;
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_BUCKET_STORE_SHARDS;
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_EVICTION_POLICY;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.currentSnapshot;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.reloadSubscriptionConfiguration;
+
+class StripedTokenBucketTest {
+    private static final RateParams RATE_PARAMS = new RateParams(100, new RateRequest(TimeUnit.SECONDS, 100));
+
+    private Map<SubscriptionType, RateParams> originalRateParams;
+    private ManualTickSource tickSource;
+
+    @BeforeEach
+    public void setUp() {
+        originalRateParams = currentSnapshot().rateParams();
+        reloadSubscriptionConfiguration(Map.of(CUSTOM_USER, new RateParams(10, new RateRequest(TimeUnit.SECONDS,
+                                                                                               10))));
+        tickSource = new ManualTickSource();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        reloadSubscriptionConfiguration(originalRateParams);
+    }
+
+    @Test
+    void testOneThreadBorrowsTheWholeCapacityAndNoMore() {
+        StripedTokenBucket bucket = new StripedTokenBucket(RATE_PARAMS, new CreditLedger(tickSource), tickSource, 8,
+                                                           100);
+
+        assertEquals(8, bucket.stripeCount());
+        assertEquals(100, bucket.availableTokens());
+        assertEquals(100, allowed(bucket, tickSource, 200));
+
+        // each of the 8 stripes refills 12.5 tokens per second on its own
+        tickSource.advance(800, TimeUnit.MILLISECONDS);
+        assertEquals(80, allowed(bucket, tickSource, 200));
+        tickSource.advance(10, TimeUnit.SECONDS);
+        assertEquals(100, allowed(bucket, tickSource, 200));
+    }
+
+    @Test
+    void testMultiPermitRequestsSpanStripes() {
+        StripedTokenBucket bucket = new StripedTokenBucket(RATE_PARAMS, new CreditLedger(tickSource), tickSource, 4,
+                                                           60);
+
+        assertEquals(Admission.TOKENS, bucket.admit(45, tickSource.nanoTime()));
+        assertEquals(Admission.DENIED, bucket.admit(16, tickSource.nanoTime()));
+        assertEquals(15, bucket.availableTokens());
+        assertEquals(40_000_000, bucket.nanosUntilAvailable(16, tickSource.nanoTime()));
+        assertEquals(Long.MAX_VALUE, bucket.nanosUntilAvailable(101, tickSource.nanoTime()));
+    }
+
+    @Test
+    void testCreditsCoverWhatTheStripesCannot() {
+        CreditLedger creditLedger = new CreditLedger(tickSource);
+        creditLedger.addCredits(5);
+        StripedTokenBucket bucket = new StripedTokenBucket(RATE_PARAMS, creditLedger, tickSource, 4, 10);
+
+        assertEquals(Admission.CREDITS, bucket.admit(12, tickSource.nanoTime()));
+        assertEquals(3, creditLedger.availableTokens());
+        assertEquals(Admission.DENIED, bucket.admit(4, tickSource.nanoTime()));
+        assertEquals(3, creditLedger.availableTokens());
+        assertEquals(0, bucket.availableTokens());
+    }
+
+    @Test
+    void testSmallCapacityUsesFewerStripes() {
+        RateParams rateParams = new RateParams(3, new RateRequest(TimeUnit.SECONDS, 3));
+        StripedTokenBucket bucket = new StripedTokenBucket(rateParams, new CreditLedger(tickSource), tickSource, 16, 3);
+
+        assertEquals(2, bucket.stripeCount());
+        assertEquals(3, allowed(bucket, tickSource, 10));
+
+        bucket.reconfigure(RATE_PARAMS, 1);
+        assertEquals(16, bucket.stripeCount());
+        tickSource.advance(2, TimeUnit.SECONDS);
+        assertEquals(100, allowed(bucket, tickSource, 200));
+    }
+
+    @Test
+    void testConcurrentRequestsNeverOverAdmit() throws Exception {
+        // One token per 86 seconds, so nothing is refilled while the test runs
+        RateParams rateParams = new RateParams(10_000, new RateRequest(TimeUnit.DAYS, 1_000));
+        StripedTokenBucket bucket = new StripedTokenBucket(rateParams, new CreditLedger(), SystemTickSource.INSTANCE, 8,
+                                                           1_000);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 16; thread++) {
+                futures.add(executor.submit(() -> allowed(bucket, SystemTickSource.INSTANCE, 500)));
+            }
+            int allowed = 0;
+            for (Future<Integer> future : futures) {
+                allowed += future.get();
+            }
+            assertEquals(1_000, allowed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testContendedBucketIsPromotedAndKeepsItsTokens() {
+        BucketRateLimiter rateLimiter = new BucketRateLimiter(Algorithm.TOKEN_BUCKET.forEverySubscription(),
+                                                              DEFAULT_BUCKET_STORE_SHARDS, DEFAULT_EVICTION_POLICY,
+                                                              tickSource, null, new StripingPolicy(4, 64));
+        InterferingLedger creditLedger = new InterferingLedger(tickSource);
+        User user = new User(1, CUSTOM_USER, tickSource) {
+            @Override
+            public CreditLedger getCreditLedger() {
+                return creditLedger;
+            }
+        };
+        assertEquals(10, allowed(rateLimiter, user, 10));
+
+        contend(rateLimiter, user, creditLedger, 5);
+        assertEquals(0, rateLimiter.stripedPromotions());
+        tickSource.advance(500, TimeUnit.MILLISECONDS);
+        assertEquals(5, allowed(rateLimiter, user, 20));
+        assertEquals(1, rateLimiter.stripedPromotions());
+
+        tickSource.advance(2, TimeUnit.SECONDS);
+        assertEquals(10, allowed(rateLimiter, user, 20));
+        assertEquals(1, rateLimiter.stripedPromotions());
+    }
+
+    @Test
+    void testRequestRacingAPromotionMovesToTheStripedBucket() {
+        StripingPolicy promoteOnFirstFailedCas = new StripingPolicy(4, TokenBucket.CONTENTION_PER_FAILED_CAS);
+        BucketRateLimiter rateLimiter = new BucketRateLimiter(Algorithm.TOKEN_BUCKET.forEverySubscription(),
+                                                              DEFAULT_BUCKET_STORE_SHARDS, DEFAULT_EVICTION_POLICY,
+                                                              tickSource, null, promoteOnFirstFailedCas);
+        InterferingLedger creditLedger = new InterferingLedger(tickSource);
+        User user = new User(1, CUSTOM_USER, tickSource) {
+            @Override
+            public CreditLedger getCreditLedger() {
+                return creditLedger;
+            }
+        };
+        assertEquals(10, allowed(rateLimiter, user, 10));
+        tickSource.advance(100, TimeUnit.MILLISECONDS);
+
+        creditLedger.interference = () -> {
+            // Takes the only token, so the outer request fails its CAS and the bucket turns hot
+            assertTrue(rateLimiter.allowRequest(user));
+            creditLedger.interference = () -> {
+                tickSource.advance(1, TimeUnit.SECONDS);
+                // Promotes the refilled bucket while the outer request still holds the old one
+                assertTrue(rateLimiter.allowRequest(user));
+            };
+        };
+        assertTrue(rateLimiter.allowRequests(user, 2));
+
+        assertEquals(1, rateLimiter.stripedPromotions());
+        assertEquals(7, allowed(rateLimiter, user, 20));
+    }
+
+    @Test
+    void testBucketsStayUnstripedWithoutPolicy() {
+        BucketRateLimiter rateLimiter = new BucketRateLimiter(Algorithm.TOKEN_BUCKET.forEverySubscription(),
+                                                              tickSource);
+        InterferingLedger creditLedger = new InterferingLedger(tickSource);
+        User user = new User(1, CUSTOM_USER, tickSource) {
+            @Override
+            public CreditLedger getCreditLedger() {
+                return creditLedger;
+            }
+        };
+        allowed(rateLimiter, user, 10);
+
+        contend(rateLimiter, user, creditLedger, 10);
+        tickSource.advance(1, TimeUnit.SECONDS);
+        assertEquals(10, allowed(rateLimiter, user, 20));
+        assertEquals(0, rateLimiter.stripedPromotions());
+    }
+
+    /**
+     * Makes each of {@code rounds} two-permit requests fail its CAS once: a nested request takes the only token
+     * between the outer request's read and its CAS.
+     */
+    private void contend(BucketRateLimiter rateLimiter, User user, InterferingLedger creditLedger, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            tickSource.advance(100, TimeUnit.MILLISECONDS);
+            creditLedger.interference = () -> assertTrue(rateLimiter.allowRequest(user));
+            assertFalse(rateLimiter.allowRequests(user, 2));
+        }
+    }
+
+    private static int allowed(AdmissionBucket bucket, TickSource tickSource, int requests) {
+        int allowed = 0;
+        for (int request = 0; request < requests; request++) {
+            if (bucket.allowRequests(1, tickSource.nanoTime())) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    private static int allowed(RateLimiter rateLimiter, User user, int requests) {
+        int allowed = 0;
+        for (int request = 0; request < requests; request++) {
+            if (rateLimiter.allowRequest(user)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    private static final class InterferingLedger extends CreditLedger {
+        private Runnable interference;
+
+        private InterferingLedger(ManualTickSource tickSource) {
+            super(tickSource);
+        }
+
+        @Override
+        public boolean mayCover(long tokens) {
+            Runnable pending = interference;
+            interference = null;
+            if (pending != null) {
+                // Claims to cover the rest so the outer request goes on to its CAS
+                pending.run();
+                return true;
+            }
+            return super.mayCover(tokens);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.rate_limiter.algo;
+
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.RateRequest;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.exceptions.InvalidRateParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketConcurrencyTest {
+    private static final int THREADS = 64;
+    private static final int REQUESTS_PER_THREAD = 2_000;
+
+    @Test
+    void testConcurrentRequestsNeverOverAdmit() throws Exception {
+        // One token per 86 seconds, so nothing is refilled while the test runs
+        RateParams rateParams = new RateParams(10_000, new RateRequest(TimeUnit.DAYS, 1_000));
+        TokenBucket bucket = new TokenBucket(rateParams, new CreditLedger());
+
+        assertEquals(1_000, countAllowed(() -> bucket.allowRequest()));
+        assertFalse(bucket.allowRequest());
+    }
+
+    @Test
+    void testConcurrentRequestsThroughRateLimiterNeverOverAdmit() throws Exception {
+        RateLimiter rateLimiter = new TokenBucketRateLimiter();
+        User businessUser = new User(1, SubscriptionType.BUSINESS_USER);
+
+        long startNanos = System.nanoTime();
+        long allowed = countAllowed(() -> rateLimiter.allowRequest(businessUser));
+        long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos) + 1;
+
+        // 100 initial tokens plus at most 100 refilled per second of test runtime
+        assertTrue(allowed >= 100, "allowed " + allowed);
+        assertTrue(allowed <= 100 + 100 * elapsedSeconds, "allowed " + allowed);
+    }
+
+    @Test
+    void testCapacityAbovePackedLimitIsRejected() {
+        RateParams rateParams = new RateParams(PackedTokenState.MAX_TOKENS + 1, new RateRequest(TimeUnit.SECONDS, 1));
+        assertThrows(InvalidRateParams.class, () -> new TokenBucket(rateParams, new CreditLedger()));
+    }
+
+    @Test
+    void testSubMicrosecondTimeUnitIsRejected() {
+        RateParams rateParams = new RateParams(10, new RateRequest(TimeUnit.NANOSECONDS, 1));
+        assertThrows(InvalidRateParams.class, () -> new TokenBucket(rateParams, new CreditLedger()));
+    }
+
+    @Test
+    void testPackedStateRoundTrip() {
+        long state = PackedTokenState.pack(PackedTokenState.MAX_TOKENS, PackedTokenState.TICK_MASK);
+        assertEquals(PackedTokenState.MAX_TOKENS, PackedTokenState.tokens(state));
+        assertEquals(PackedTokenState.TICK_MASK, PackedTokenState.ticks(state));
+    }
+
+    @Test
+    void testRefillKeepsPartialProgress() {
+        // 2 tokens per second -> one token every 500_000 micros
+        long state = PackedTokenState.pack(0, 0);
+        state = PackedTokenState.refill(state, 700_000, 10, 2, 1_000_000);
+        assertEquals(1, PackedTokenState.tokens(state));
+        assertEquals(500_000, PackedTokenState.ticks(state));
+
+        state = PackedTokenState.refill(state, 1_000_000, 10, 2, 1_000_000);
+        assertEquals(2, PackedTokenState.tokens(state));
+        assertEquals(1_000_000, PackedTokenState.ticks(state));
+    }
+
+    @Test
+    void testRefillStopsAtCapacity() {
+        long state = PackedTokenState.pack(1, 0);
+        state = PackedTokenState.refill(state, 60_000_000, 10, 2, 1_000_000);
+        assertEquals(10, PackedTokenState.tokens(state));
+        assertEquals(60_000_000, PackedTokenState.ticks(state));
+    }
+
+    @Test
+    void testStaleSampleIsNotRefilledButLongIdleGapIs() {
+        long state = PackedTokenState.pack(0, 60_000_000);
+        // A racing caller a few microseconds behind the stored refill time
+        assertEquals(state, PackedTokenState.refill(state, 59_999_990, 10, 2, 1_000_000));
+
+        long idleTicks = TimeUnit.DAYS.toMicros(30);
+        long refilled = PackedTokenState.refill(state, 60_000_000 + idleTicks, 10, 2, 1_000_000);
+        assertEquals(10, PackedTokenState.tokens(refilled));
+    }
+
+    private long countAllowed(Request request) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long allowed = 0;
+                    for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                        if (request.allow()) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            start.countDown();
+            long allowed = 0;
+            for (Future<Long> result : results) {
+                allowed += result.get();
+            }
+            return allowed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        boolean allow();
+    }
+}
@@ -3,10 +3,12 @@ package org.rate_limiter.algo;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.rate_limiter.CreditLedger;
 import org.rate_limiter.RateParams;
 import org.rate_limiter.RateRequest;
 import org.rate_limiter.SubscriptionType;
 import org.rate_limiter.User;
+import org.rate_limiter.clock.ManualTickSource;
 import org.rate_limiter.exceptions.InvalidRateParams;
 import org.rate_limiter.exceptions.RateParamsUpdateNotAllowedException;
 
@@ -19,6 +21,7 @@ import static org.rate_limiter.configurations.SubscriptionConfiguration.getSubsc
 import static org.rate_limiter.configurations.SubscriptionConfiguration.updateSubscriptionConfiguration;
 
 class TokenBucketRateLimiterTest {
+    private ManualTickSource tickSource;
     private RateLimiter rateLimiter;
     private User freeUser1;
     private User freeUser2;
@@ -28,12 +31,13 @@ class TokenBucketRateLimiterTest {
 
     @BeforeEach
     public void setUp() {
-        rateLimiter = new TokenBucketRateLimiter();
-        freeUser1 = new User(1, FREE_USER);
-        freeUser2 = new User(2, FREE_USER);
-        basicUser = new User(3, BASIC_USER);
-        premiumUser = new User(4, PREMIUM_USER);
-        businessUser = new User(5, BUSINESS_USER);
+        tickSource = new ManualTickSource();
+        rateLimiter = new TokenBucketRateLimiter(tickSource);
+        freeUser1 = new User(1, FREE_USER, tickSource);
+        freeUser2 = new User(2, FREE_USER, tickSource);
+        basicUser = new User(3, BASIC_USER, tickSource);
+        premiumUser = new User(4, PREMIUM_USER, tickSource);
+        businessUser = new User(5, BUSINESS_USER, tickSource);
     }
 
     @Test
@@ -80,6 +84,30 @@ class TokenBucketRateLimiterTest {
         testUserTypeRateLimiting(FREE_USER, freeUser1);
     }
 
+    @Test
+    void testDrainedUserIsRefilledAfterLongIdleGap() {
+        testUserTypeRateLimiting(FREE_USER, freeUser1);
+
+        tickSource.advance(30, TimeUnit.DAYS);
+
+        assertEquals(10, IntStream.range(0, 20)
+                                  .filter(request -> rateLimiter.allowRequest(freeUser1))
+                                  .count());
+    }
+
+    @Test
+    void testDrainedBucketIsRefilledToCapacityAfterLongIdleGap() {
+        TokenBucket bucket = new TokenBucket(getSubscriptionTypeRateParamsMap().get(FREE_USER), new CreditLedger(),
+                                             tickSource);
+        assertEquals(2, IntStream.range(0, 20)
+                                 .filter(request -> bucket.allowRequest())
+                                 .count());
+
+        tickSource.advance(30, TimeUnit.DAYS);
+
+        assertEquals(10, bucket.availableTokens());
+    }
+
     private void testUserTypeRateLimiting(SubscriptionType subscriptionType, User user) {
         boolean allRequestAllowed = IntStream.iterate(0, i -> i + 1)
                                              .limit(getSubscriptionTypeRateParamsMap()
@@ -140,13 +168,13 @@ class TokenBucketRateLimiterTest {
     }
 
     @Test
-    void testRequestDeniedDueToRateLimiting() throws InterruptedException {
+    void testRequestDeniedDueToRateLimiting() {
         assertTrue(rateLimiter.allowRequest(freeUser1));
         assertTrue(rateLimiter.allowRequest(freeUser1));
         assertFalse(rateLimiter.allowRequest(freeUser1));
 
-        // Wait for token replenishment (1 second) and then attempt a request
-        TimeUnit.SECONDS.sleep(1);
+        // Advance past one token replenishment (1 second) and then attempt a request
+        tickSource.advance(1, TimeUnit.SECONDS);
 
         assertTrue(rateLimiter.allowRequest(freeUser1));
         assertTrue(rateLimiter.allowRequest(freeUser1));
@@ -154,9 +182,9 @@ class TokenBucketRateLimiterTest {
     }
 
     @Test
-    void testWaitAndTestIfTokenIncreasingOnNotUsing() throws InterruptedException {
+    void testWaitAndTestIfTokenIncreasingOnNotUsing() {
         assertTrue(rateLimiter.allowRequest(freeUser1));
-        TimeUnit.SECONDS.sleep(2);
+        tickSource.advance(2, TimeUnit.SECONDS);
         assertTrue(rateLimiter.allowRequest(freeUser1));
         assertTrue(rateLimiter.allowRequest(freeUser1));
         assertTrue(rateLimiter.allowRequest(freeUser1));
@@ -167,21 +195,21 @@ class TokenBucketRateLimiterTest {
     }
 
     @Test
-    void testTimeDoesNotCountUntilFirstRequestIsReceivedOfUser() throws InterruptedException {
-        TimeUnit.SECONDS.sleep(1);
+    void testTimeDoesNotCountUntilFirstRequestIsReceivedOfUser() {
+        tickSource.advance(1, TimeUnit.SECONDS);
         // No replenishment until the first request is received, so even after one waiting time tokens will be 2 only
 
         testUserTypeRateLimiting(FREE_USER, freeUser1);
     }
 
     @Test
-    void testReplenishmentOfRequestMoreThanThanRefillRateButBelowCapacity() throws InterruptedException {
+    void testReplenishmentOfRequestMoreThanThanRefillRateButBelowCapacity() {
         //Initially 2
 
         //Used 1 token -> tokens = 2 - 1 = 1
         assertTrue(rateLimiter.allowRequest(freeUser1));
 
-        TimeUnit.SECONDS.sleep(2);
+        tickSource.advance(2, TimeUnit.SECONDS);
         //Tokens added per second for free user is 2, so Total tokens  after two seconds delay -> 1 + 4 = 5 tokens
 
         assertTrue(rateLimiter.allowRequest(freeUser1));
@@ -231,6 +259,66 @@ class TokenBucketRateLimiterTest {
         testUserTypeRateLimiting(BUSINESS_USER, businessUser);
     }
 
+    @Test
+    void testWeightedRequestTakesAllPermitsOrNothing() {
+        assertFalse(rateLimiter.allowRequests(freeUser1, 3));
+        assertTrue(rateLimiter.allowRequests(freeUser1, 2));
+        assertFalse(rateLimiter.allowRequest(freeUser1));
+    }
+
+    @Test
+    void testWeightedRequestCombinesTokensAndExtraCredits() {
+        assertTrue(rateLimiter.allowRequest(freeUser1));
+        freeUser1.addCredits(2L);
+
+        assertFalse(rateLimiter.allowRequests(freeUser1, 4));
+        assertTrue(rateLimiter.allowRequests(freeUser1, 3));
+        assertFalse(rateLimiter.allowRequest(freeUser1));
+    }
+
+    @Test
+    void testWeightedRequestWithNonPositivePermitsShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> rateLimiter.allowRequests(freeUser1, 0));
+    }
+
+    @Test
+    void testBulkRequestsFillResultBitmap() {
+        User[] users = {freeUser1, freeUser1, freeUser1, freeUser2, basicUser};
+        long[] allowed = AdmissionBitmap.forRequests(users.length);
+
+        rateLimiter.allowRequests(users, allowed);
+
+        assertTrue(AdmissionBitmap.isAllowed(allowed, 0));
+        assertTrue(AdmissionBitmap.isAllowed(allowed, 1));
+        assertFalse(AdmissionBitmap.isAllowed(allowed, 2));
+        assertTrue(AdmissionBitmap.isAllowed(allowed, 3));
+        assertTrue(AdmissionBitmap.isAllowed(allowed, 4));
+    }
+
+    @Test
+    void testBulkRequestsAcrossManyWords() {
+        User[] users = IntStream.range(0, 200)
+                                .mapToObj(index -> premiumUser)
+                                .toArray(User[]::new);
+        long[] allowed = AdmissionBitmap.forRequests(users.length);
+
+        rateLimiter.allowRequests(users, allowed);
+
+        assertEquals(20, IntStream.range(0, users.length)
+                                  .filter(index -> AdmissionBitmap.isAllowed(allowed, index))
+                                  .count());
+        assertTrue(IntStream.range(0, 20)
+                            .allMatch(index -> AdmissionBitmap.isAllowed(allowed, index)));
+    }
+
+    @Test
+    void testBulkRequestsWithTooSmallBitmapShouldThrowException() {
+        User[] users = IntStream.range(0, 65)
+                                .mapToObj(index -> freeUser1)
+                                .toArray(User[]::new);
+        assertThrows(IllegalArgumentException.class, () -> rateLimiter.allowRequests(users, new long[1]));
+    }
+
     @Test
     void testTryingUpdatingPredefinedSubscriptionTypeShouldThrowException() {
         RateRequest rateRequest = new RateRequest(TimeUnit.SECONDS, 4);
@@ -0,0 +1,59 @@
+package org.rate_limiter.clock;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickSourceTest {
+
+    @Test
+    void testManualTickSourceOnlyMovesWhenAdvanced() {
+        ManualTickSource tickSource = new ManualTickSource(1_000L);
+        assertEquals(0, tickSource.nanoTime());
+        assertEquals(1_000L, tickSource.epochNanos());
+
+        tickSource.advance(2, TimeUnit.SECONDS);
+        tickSource.advance(Duration.ofMillis(5));
+
+        assertEquals(2_005_000_000L, tickSource.nanoTime());
+        assertEquals(2_005_001_000L, tickSource.epochNanos());
+    }
+
+    @Test
+    void testManualTickSourceCannotMoveBackwards() {
+        ManualTickSource tickSource = new ManualTickSource();
+        assertThrows(IllegalArgumentException.class, () -> tickSource.advance(-1));
+    }
+
+    @Test
+    void testCachedTickSourceFollowsDelegate() throws InterruptedException {
+        ManualTickSource delegate = new ManualTickSource(0L);
+        try (CachedTickSource tickSource = new CachedTickSource(delegate, Duration.ofMillis(1))) {
+            assertEquals(0, tickSource.nanoTime());
+            delegate.advance(1, TimeUnit.SECONDS);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (tickSource.nanoTime() == 0 && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+
+            assertEquals(TimeUnit.SECONDS.toNanos(1), tickSource.nanoTime());
+            assertEquals(TimeUnit.SECONDS.toNanos(1), tickSource.epochNanos());
+        }
+    }
+
+    @Test
+    void testCachedTickSourceRejectsNonPositiveResolution() {
+        assertThrows(IllegalArgumentException.class, () -> new CachedTickSource(Duration.ZERO));
+    }
+
+    @Test
+    void testSystemTickSourceIsMonotonic() {
+        long first = SystemTickSource.INSTANCE.nanoTime();
+        assertTrue(SystemTickSource.INSTANCE.nanoTime() >= first);
+        assertTrue(SystemTickSource.INSTANCE.epochNanos() > 0);
+    }
+}
@@ -0,0 +1,286 @@
+package org.rate_limiter.cluster;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.clock.ManualTickSource;
+import org.rate_limiter.exceptions.TokenAuthorityUnavailableException;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.SubscriptionType.*;
+
+class LeasedRateLimiterTest {
+    private static final Duration LEASE_TTL = Duration.ofMillis(100);
+
+    private ManualTickSource tickSource;
+    private InProcessTokenAuthority authority;
+
+    @BeforeEach
+    public void setUp() {
+        tickSource = new ManualTickSource();
+        authority = new InProcessTokenAuthority(tickSource);
+    }
+
+    @Test
+    void testClusterNeverAdmitsMoreThanTheGlobalBucket() {
+        List<LeasedRateLimiter> nodes = nodes(12, 0.12);
+        User businessUser = new User(1, BUSINESS_USER, tickSource);
+
+        assertEquals(100, admitRoundRobin(nodes, businessUser));
+    }
+
+    @Test
+    void testClusterStaysWithinErrorBoundWhileRefilling() {
+        double maxOverAdmission = 0.1;
+        List<LeasedRateLimiter> nodes = nodes(4, maxOverAdmission);
+        User businessUser = new User(1, BUSINESS_USER, tickSource);
+
+        long admitted = admitRoundRobin(nodes, businessUser);
+        for (int step = 0; step < 50; step++) {
+            tickSource.advance(20, TimeUnit.MILLISECONDS);
+            admitted += admitRoundRobin(nodes, businessUser);
+        }
+
+        // 100 initial tokens plus 100 per second for one second
+        long globalBudget = 200;
+        assertTrue(admitted <= globalBudget + (long) (200 * maxOverAdmission), "admitted " + admitted);
+        assertTrue(admitted >= globalBudget - 4 * nodes.get(0)
+                                                       .maxLeaseTokens(BUSINESS_USER), "admitted " + admitted);
+    }
+
+    @Test
+    void testLeasesGrowSoAuthorityIsNotHitPerRequest() {
+        LeasedRateLimiter node = new LeasedRateLimiter(authority, new LeasePolicy(1, 0.5, LEASE_TTL), tickSource);
+        User businessUser = new User(1, BUSINESS_USER, tickSource);
+
+        for (int request = 0; request < 100; request++) {
+            assertTrue(node.allowRequest(businessUser));
+        }
+        assertEquals(100, node.maxLeaseTokens(BUSINESS_USER));
+        assertTrue(node.authorityLeases() <= 10, "authority leases " + node.authorityLeases());
+    }
+
+    @Test
+    void testLeaseSizeIsCappedByErrorBound() {
+        LeasedRateLimiter node = new LeasedRateLimiter(authority, new LeasePolicy(10, 0.05, LEASE_TTL), tickSource);
+        assertEquals(1, node.maxLeaseTokens(BUSINESS_USER));
+        assertEquals(1, node.maxLeaseTokens(FREE_USER));
+
+        User businessUser = new User(1, BUSINESS_USER, tickSource);
+        for (int request = 0; request < 50; request++) {
+            assertTrue(node.allowRequest(businessUser));
+        }
+        assertEquals(50, node.authorityLeases());
+    }
+
+    @Test
+    void testExpiredLeaseIsGivenBackToOtherNodes() {
+        List<LeasedRateLimiter> nodes = nodes(2, 1.0);
+        User businessUser = new User(1, BUSINESS_USER, tickSource);
+        LeasedRateLimiter first = nodes.get(0);
+        LeasedRateLimiter second = nodes.get(1);
+
+        long admittedByFirst = 0;
+        while (admittedByFirst < 40 && first.allowRequest(businessUser)) {
+            admittedByFirst++;
+        }
+        long leftover = first.leasedTokens(businessUser);
+        assertTrue(leftover > 0);
+
+        tickSource.advance(LEASE_TTL);
+        // the first node gives its leftovers back on its next request and takes a smaller lease
+        assertTrue(first.allowRequest(businessUser));
+        assertTrue(first.leasedTokens(businessUser) < leftover);
+        long admittedBySecond = 0;
+        while (second.allowRequest(businessUser)) {
+            admittedBySecond++;
+        }
+        // 100 initial tokens plus 10 refilled during the lease ttl
+        assertEquals(110, admittedByFirst + 1 + admittedBySecond + first.leasedTokens(businessUser));
+    }
+
+    @Test
+    void testPaidCreditsCoverWhatTheAuthorityCannot() {
+        LeasedRateLimiter node = new LeasedRateLimiter(authority, new LeasePolicy(1, 0.5, LEASE_TTL), tickSource);
+        User freeUser = new User(1, FREE_USER, tickSource);
+        freeUser.addCredits(3);
+
+        assertTrue(node.allowRequests(freeUser, 2));
+        assertTrue(node.allowRequests(freeUser, 3));
+        assertFalse(node.allowRequest(freeUser));
+        assertEquals(0, freeUser.getCreditLedger()
+                                .availableTokens());
+    }
+
+    @Test
+    void testTryAcquireReportsTheAuthorityWait() {
+        LeasedRateLimiter node = new LeasedRateLimiter(authority, new LeasePolicy(1, 0.5, LEASE_TTL), tickSource);
+        User freeUser = new User(1, FREE_USER, tickSource);
+
+        assertEquals(0, node.tryAcquire(freeUser, 2));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), node.tryAcquire(freeUser, 1));
+        assertEquals(Long.MAX_VALUE, node.tryAcquire(freeUser, 11));
+    }
+
+    @Test
+    void testInvalidLeasePolicyShouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> new LeasedRateLimiter(authority, new LeasePolicy(0, 0.1, LEASE_TTL)));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new LeasedRateLimiter(authority, new LeasePolicy(3, Double.NaN, LEASE_TTL)));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new LeasedRateLimiter(authority, new LeasePolicy(3, 0.1, Duration.ZERO)));
+    }
+
+    @Test
+    void testNodesOverTcpShareTheGlobalBucket() throws Exception {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (TokenAuthorityServer server = new TokenAuthorityServer(authority, loopback);
+             RemoteTokenAuthority firstClient = new RemoteTokenAuthority(server.address());
+             RemoteTokenAuthority secondClient = new RemoteTokenAuthority(server.address());
+             ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            LeasePolicy leasePolicy = new LeasePolicy(2, 0.2, LEASE_TTL);
+            List<LeasedRateLimiter> nodes = List.of(new LeasedRateLimiter(firstClient, leasePolicy, tickSource),
+                                                    new LeasedRateLimiter(secondClient, leasePolicy, tickSource));
+            User businessUser = new User(1, BUSINESS_USER, tickSource);
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> admitted = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                LeasedRateLimiter node = nodes.get(thread % 2);
+                admitted.add(executor.submit(() -> {
+                    start.await();
+                    long count = 0;
+                    for (int request = 0; request < 100; request++) {
+                        if (node.allowRequest(businessUser)) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            start.countDown();
+            long total = 0;
+            for (Future<Long> future : admitted) {
+                total += future.get(10, TimeUnit.SECONDS);
+            }
+            assertTrue(total <= 100, "admitted " + total);
+            assertTrue(total >= 100 - 2 * nodes.get(0)
+                                               .maxLeaseTokens(BUSINESS_USER), "admitted " + total);
+        }
+    }
+
+    @Test
+    void testUnreachableAuthorityShouldThrowException() {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        TokenAuthorityServer server = new TokenAuthorityServer(authority, loopback);
+        InetSocketAddress address = server.address();
+        server.close();
+
+        try (RemoteTokenAuthority client = new RemoteTokenAuthority(address)) {
+            LeasedRateLimiter node = new LeasedRateLimiter(client, new LeasePolicy(1, 0.1, LEASE_TTL), tickSource);
+            assertThrows(TokenAuthorityUnavailableException.class,
+                         () -> node.allowRequest(new User(1, FREE_USER, tickSource)));
+        }
+    }
+
+    @Test
+    void testStalledAuthorityCallTimesOut() throws IOException {
+        try (ServerSocket silentServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             RemoteTokenAuthority client = new RemoteTokenAuthority(
+                     (InetSocketAddress) silentServer.getLocalSocketAddress(), Duration.ofMillis(100))) {
+            TokenAuthorityUnavailableException exception = assertThrows(
+                    TokenAuthorityUnavailableException.class, () -> client.lease(1, FREE_USER, 1, 1));
+            assertInstanceOf(SocketTimeoutException.class, exception.getCause());
+        }
+    }
+
+    @Test
+    void testCloseFailsACallBlockedOnAStalledAuthority() throws Exception {
+        try (ServerSocket silentServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            RemoteTokenAuthority client = new RemoteTokenAuthority(
+                    (InetSocketAddress) silentServer.getLocalSocketAddress(), Duration.ofMinutes(1));
+            CompletableFuture<Long> blocked = CompletableFuture.supplyAsync(() -> client.lease(1, FREE_USER, 1, 1));
+            Thread.sleep(200);
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), client::close);
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                                                         () -> blocked.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(TokenAuthorityUnavailableException.class, exception.getCause());
+        }
+    }
+
+    @Test
+    void testMalformedFramesDropTheConnectionWithoutEscapingIt() throws Exception {
+        List<Throwable> uncaught = new CopyOnWriteArrayList<>();
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, throwable) -> uncaught.add(throwable));
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (TokenAuthorityServer server = new TokenAuthorityServer(authority, loopback)) {
+            for (long[] frame : new long[][]{{SubscriptionType.values().length, 1, 1}, {FREE_USER.ordinal(), 5, 1},
+                    {FREE_USER.ordinal(), 0, 0}}) {
+                try (Socket socket = new Socket(server.address()
+                                                      .getAddress(), server.address()
+                                                                           .getPort())) {
+                    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    out.writeByte(TokenAuthorityProtocol.LEASE);
+                    out.writeLong(1);
+                    out.writeByte((int) frame[0]);
+                    out.writeLong(frame[1]);
+                    out.writeLong(frame[2]);
+                    out.flush();
+
+                    assertEquals(-1, socket.getInputStream()
+                                           .read());
+                }
+            }
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+        assertEquals(List.of(), uncaught);
+    }
+
+    private List<LeasedRateLimiter> nodes(int count, double maxOverAdmission) {
+        LeasePolicy leasePolicy = new LeasePolicy(count, maxOverAdmission, LEASE_TTL);
+        List<LeasedRateLimiter> nodes = new ArrayList<>();
+        for (int node = 0; node < count; node++) {
+            nodes.add(new LeasedRateLimiter(authority, leasePolicy, tickSource));
+        }
+        return nodes;
+    }
+
+    private static long admitRoundRobin(List<LeasedRateLimiter> nodes, User user) {
+        long admitted = 0;
+        boolean anyAdmitted = true;
+        while (anyAdmitted) {
+            anyAdmitted = false;
+            for (LeasedRateLimiter node : nodes) {
+                if (node.allowRequest(user)) {
+                    admitted++;
+                    anyAdmitted = true;
+                }
+            }
+        }
+        return admitted;
+    }
+}
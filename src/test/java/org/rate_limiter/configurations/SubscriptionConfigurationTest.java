@@ -0,0 +1,229 @@
+package org.rate_limiter.configurations;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.RateRequest;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.Admission;
+import org.rate_limiter.algo.AdmissionBucket;
+import org.rate_limiter.algo.Algorithm;
+import org.rate_limiter.algo.BucketRateLimiter;
+import org.rate_limiter.algo.RateLimiter;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+import org.rate_limiter.clock.ManualTickSource;
+import org.rate_limiter.exceptions.InvalidRateParams;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.SubscriptionType.*;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.*;
+
+class SubscriptionConfigurationTest {
+    private static final RateParams CUSTOM_PARAMS = new RateParams(10, new RateRequest(TimeUnit.SECONDS, 2));
+
+    private Map<SubscriptionType, RateParams> originalRateParams;
+    private ManualTickSource tickSource;
+
+    @BeforeEach
+    public void setUp() {
+        originalRateParams = currentSnapshot().rateParams();
+        reloadSubscriptionConfiguration(Map.of(CUSTOM_USER, CUSTOM_PARAMS));
+        tickSource = new ManualTickSource();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        reloadSubscriptionConfiguration(originalRateParams);
+        removeUserRateParams(1);
+        removeUserRateParams(2);
+    }
+
+    @Test
+    void testUpdatesPublishNewSnapshotVersions() {
+        SubscriptionSnapshot before = currentSnapshot();
+
+        updateSubscriptionConfiguration(CUSTOM_USER, CUSTOM_PARAMS);
+        assertSame(before, currentSnapshot());
+
+        RateParams rateParams = new RateParams(20, new RateRequest(TimeUnit.SECONDS, 4));
+        updateSubscriptionConfiguration(CUSTOM_USER, rateParams);
+        SubscriptionSnapshot after = currentSnapshot();
+
+        assertTrue(after.version() > before.version());
+        assertEquals(rateParams, after.rateParams(CUSTOM_USER));
+        assertEquals(CUSTOM_PARAMS, before.rateParams(CUSTOM_USER));
+        assertThrows(UnsupportedOperationException.class, () -> after.rateParams()
+                                                                     .put(FREE_USER, rateParams));
+    }
+
+    @Test
+    void testReloadIsAllOrNothing() {
+        SubscriptionSnapshot before = currentSnapshot();
+        RateParams valid = new RateParams(50, new RateRequest(TimeUnit.SECONDS, 10));
+        RateParams invalid = new RateParams(0, new RateRequest(TimeUnit.SECONDS, 10));
+
+        assertThrows(InvalidRateParams.class, () -> reloadSubscriptionConfiguration(Map.of(FREE_USER, valid,
+                                                                                            BASIC_USER, invalid)));
+        assertSame(before, currentSnapshot());
+
+        reloadSubscriptionConfiguration(Map.of(FREE_USER, valid));
+        assertEquals(valid, currentSnapshot().rateParams(FREE_USER));
+    }
+
+    @Test
+    void testExistingBucketsPickUpReloadedParams() {
+        for (Algorithm algorithm : Algorithm.values()) {
+            reloadSubscriptionConfiguration(Map.of(CUSTOM_USER, CUSTOM_PARAMS));
+            ManualTickSource clock = new ManualTickSource();
+            RateLimiter rateLimiter = new BucketRateLimiter(algorithm.forEverySubscription(), clock);
+            User customUser = new User(1, CUSTOM_USER, clock);
+            assertEquals(2, admitAll(rateLimiter, customUser), algorithm.name());
+
+            reloadSubscriptionConfiguration(Map.of(CUSTOM_USER, new RateParams(40, new RateRequest(TimeUnit.SECONDS,
+                                                                                                   8))));
+            clock.advance(10, TimeUnit.SECONDS);
+
+            long expected = algorithm == Algorithm.TOKEN_BUCKET || algorithm == Algorithm.GCRA ? 40 : 8;
+            assertEquals(expected, admitAll(rateLimiter, customUser), algorithm.name());
+        }
+    }
+
+    @Test
+    void testRemainingTokensAreRescaledToTheNewCapacity() {
+        RateLimiter rateLimiter = new TokenBucketRateLimiter(tickSource);
+        User customUser = new User(1, CUSTOM_USER, tickSource);
+        assertTrue(rateLimiter.allowRequest(customUser));
+        tickSource.advance(10, TimeUnit.SECONDS);
+        assertTrue(rateLimiter.allowRequests(customUser, 5));
+
+        updateSubscriptionConfiguration(CUSTOM_USER, new RateParams(20, new RateRequest(TimeUnit.SECONDS, 2)));
+
+        assertEquals(10, admitAll(rateLimiter, customUser));
+    }
+
+    @Test
+    void testUserOverrideReachesOnlyThatUser() {
+        RateLimiter rateLimiter = new TokenBucketRateLimiter(tickSource);
+        User overridden = new User(1, FREE_USER, tickSource);
+        User regular = new User(2, FREE_USER, tickSource);
+        assertEquals(2, admitAll(rateLimiter, overridden));
+        assertEquals(2, admitAll(rateLimiter, regular));
+
+        long version = currentSnapshot().version();
+        RateParams rateParams = new RateParams(50, new RateRequest(TimeUnit.SECONDS, 25));
+        setUserRateParams(1, rateParams);
+        long overrideVersion = configVersionFor(overridden, currentSnapshot());
+        setUserRateParams(1, rateParams);
+        assertEquals(version, currentSnapshot().version());
+        assertTrue(overrideVersion > version);
+        assertEquals(overrideVersion, configVersionFor(overridden, currentSnapshot()));
+        assertEquals(version, configVersionFor(regular, currentSnapshot()));
+        assertEquals(rateParams, rateParamsFor(overridden, currentSnapshot()));
+        assertEquals(originalRateParams.get(FREE_USER), rateParamsFor(regular, currentSnapshot()));
+
+        tickSource.advance(10, TimeUnit.SECONDS);
+        assertEquals(50, admitAll(rateLimiter, overridden));
+        assertEquals(10, admitAll(rateLimiter, regular));
+
+        removeUserRateParams(1);
+        assertNull(getUserRateParams(1));
+        tickSource.advance(10, TimeUnit.SECONDS);
+        assertEquals(10, admitAll(rateLimiter, overridden));
+    }
+
+    @Test
+    void testInvalidUserOverrideShouldThrowException() {
+        assertThrows(InvalidRateParams.class, () -> setUserRateParams(1, new RateParams(10, null)));
+        assertThrows(InvalidRateParams.class, () -> setUserRateParams(1, new RateParams(
+                CommonConfiguration.MAX_BUCKET_CAPACITY + 1, new RateRequest(TimeUnit.SECONDS, 2))));
+        assertNull(getUserRateParams(1));
+    }
+
+    @Test
+    void testParamsBeyondEngineLimitsAreRejectedBeforePublishing() {
+        RateLimiter rateLimiter = new BucketRateLimiter(Map.of(CUSTOM_USER, Algorithm.SLIDING_WINDOW_COUNTER),
+                                                        tickSource);
+        User customUser = new User(1, CUSTOM_USER, tickSource);
+        assertTrue(rateLimiter.allowRequest(customUser));
+        SubscriptionSnapshot before = currentSnapshot();
+
+        for (RateParams unsupported : new RateParams[]{
+                new RateParams(5_000_000, new RateRequest(TimeUnit.SECONDS, 2)),
+                new RateParams(2_000_000, new RateRequest(TimeUnit.SECONDS, 2_000_000)),
+                new RateParams(10, new RateRequest(TimeUnit.NANOSECONDS, 2)),
+                new RateParams(4_000_000, new RateRequest(TimeUnit.DAYS, 1))}) {
+            assertFalse(isSupported(unsupported), unsupported.toString());
+            assertThrows(InvalidRateParams.class, () -> updateSubscriptionConfiguration(CUSTOM_USER, unsupported));
+            assertThrows(InvalidRateParams.class, () -> reloadSubscriptionConfiguration(Map.of(FREE_USER,
+                                                                                               unsupported)));
+        }
+        assertSame(before, currentSnapshot());
+        assertTrue(rateLimiter.allowRequest(customUser));
+        for (Algorithm algorithm : Algorithm.values()) {
+            AdmissionBucket bucket = algorithm.newBucket(CUSTOM_PARAMS, customUser.getCreditLedger(), tickSource);
+            bucket.reconfigure(new RateParams(5_000_000, new RateRequest(TimeUnit.NANOSECONDS, 2)), 1);
+            assertEquals(1, bucket.configVersion(), algorithm.name());
+            assertEquals(Admission.TOKENS, bucket.admit(1, tickSource.nanoTime()), algorithm.name());
+        }
+        assertTrue(isSupported(new RateParams(CommonConfiguration.MAX_BUCKET_CAPACITY,
+                                              new RateRequest(TimeUnit.SECONDS,
+                                                              CommonConfiguration.MAX_WINDOW_LIMIT))));
+    }
+
+    @Test
+    void testWatcherReloadsTheFileWhenItChanges(@TempDir Path directory) throws IOException, InterruptedException {
+        Path file = directory.resolve("subscriptions.properties");
+        Files.writeString(file, "CUSTOM_USER.capacity=30\nFREE_USER.rate=3\n");
+
+        try (SubscriptionConfigurationWatcher watcher = new SubscriptionConfigurationWatcher(file)) {
+            assertEquals(30, currentSnapshot().rateParams(CUSTOM_USER)
+                                              .capacity());
+            assertEquals(new RateParams(originalRateParams.get(FREE_USER)
+                                                          .capacity(), new RateRequest(TimeUnit.SECONDS, 3)),
+                         currentSnapshot().rateParams(FREE_USER));
+
+            Files.writeString(file, "CUSTOM_USER.capacity=50\nCUSTOM_USER.timeUnit=MINUTES\n");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (currentSnapshot().rateParams(CUSTOM_USER)
+                                    .capacity() != 50 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(new RateParams(50, new RateRequest(TimeUnit.MINUTES, 2)),
+                         currentSnapshot().rateParams(CUSTOM_USER));
+        }
+    }
+
+    @Test
+    void testInvalidFileKeepsTheCurrentSnapshot(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("subscriptions.properties");
+        Files.writeString(file, "PREMIUM_USER.capacity=60\n");
+
+        try (SubscriptionConfigurationWatcher watcher = new SubscriptionConfigurationWatcher(file)) {
+            watcher.close();
+            SubscriptionSnapshot before = currentSnapshot();
+            for (String content : new String[]{"PREMIUM_USER.capacity=-1\n", "GOLD_USER.capacity=5\n",
+                                               "PREMIUM_USER.rate=fast\n", "PREMIUM_USER.burst=5\n"}) {
+                Files.writeString(file, content);
+                assertThrows(InvalidRateParams.class, watcher::reload, content);
+                assertSame(before, currentSnapshot());
+            }
+        }
+    }
+
+    private static long admitAll(RateLimiter rateLimiter, User user) {
+        long admitted = 0;
+        while (rateLimiter.allowRequest(user)) {
+            admitted++;
+        }
+        return admitted;
+    }
+}
@@ -0,0 +1,49 @@
+package org.rate_limiter.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesAreWithinOneBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        LongStream.rangeClosed(1, 10_000)
+                  .forEach(histogram::record);
+
+        assertEquals(10_000, histogram.count());
+        assertBetween(5_000, 6_250, histogram.percentile(0.5));
+        assertBetween(9_900, 12_375, histogram.percentile(0.99));
+        assertEquals(1, histogram.percentile(0));
+    }
+
+    @Test
+    void testSmallAndExtremeValuesHaveBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(3);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.percentile(0.3));
+        assertEquals(3, histogram.percentile(0.6));
+        assertEquals(Long.MAX_VALUE, histogram.percentile(1));
+    }
+
+    @Test
+    void testEmptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.reset();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(0.99));
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(1.5));
+    }
+
+    private static void assertBetween(long low, long high, long actual) {
+        assertTrue(actual >= low && actual <= high, actual + " is not in [" + low + ", " + high + "]");
+    }
+}
@@ -0,0 +1,112 @@
+package org.rate_limiter.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+import org.rate_limiter.clock.ManualTickSource;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.SubscriptionType.*;
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_BUCKET_STORE_SHARDS;
+import static org.rate_limiter.configurations.CommonConfiguration.DEFAULT_EVICTION_POLICY;
+
+class RateLimiterMetricsTest {
+    private ManualTickSource tickSource;
+    private RateLimiterMetrics metrics;
+    private TokenBucketRateLimiter rateLimiter;
+
+    @BeforeEach
+    public void setUp() {
+        tickSource = new ManualTickSource();
+        metrics = new RateLimiterMetrics(2, 1);
+        rateLimiter = new TokenBucketRateLimiter(DEFAULT_BUCKET_STORE_SHARDS, DEFAULT_EVICTION_POLICY, tickSource,
+                                                 metrics);
+    }
+
+    @Test
+    void testDecisionsAreCountedPerSubscriptionType() {
+        User freeUser = new User(1, FREE_USER, tickSource);
+        User premiumUser = new User(2, PREMIUM_USER, tickSource);
+        freeUser.addCredits(1);
+
+        for (int request = 0; request < 5; request++) {
+            rateLimiter.allowRequest(freeUser);
+        }
+        rateLimiter.allowRequests(premiumUser, 3);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), rateLimiter.tryAcquire(freeUser, 1));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(new MetricsSnapshot.SubscriptionMetrics(3, 3, 1, 1, 1), snapshot.subscriptions()
+                                                                                     .get(FREE_USER));
+        assertEquals(new MetricsSnapshot.SubscriptionMetrics(1, 0, 0, 1, 1), snapshot.subscriptions()
+                                                                                     .get(PREMIUM_USER));
+        assertEquals(new MetricsSnapshot.SubscriptionMetrics(0, 0, 0, 0, 0), snapshot.subscriptions()
+                                                                                     .get(BASIC_USER));
+        assertEquals(7, snapshot.decisions());
+        assertTrue(snapshot.decisionLatencyP50Nanos() <= snapshot.decisionLatencyP999Nanos());
+    }
+
+    @Test
+    void testMostThrottledUsersAreReported() {
+        for (long id = 0; id < 10; id++) {
+            User user = new User(id, FREE_USER, tickSource);
+            for (long request = 0; request < 2 + id; request++) {
+                rateLimiter.allowRequest(user);
+            }
+        }
+
+        List<SpaceSavingSketch.HeavyHitter> top = metrics.snapshot()
+                                                         .topThrottledUsers();
+        assertEquals(List.of(9L, 8L), top.stream()
+                                         .map(SpaceSavingSketch.HeavyHitter::id)
+                                         .toList());
+        // user 9 was denied 9 times; the sketch only ever overestimates
+        assertTrue(top.getFirst()
+                      .count() >= 9 && top.getFirst()
+                                          .count() - top.getFirst()
+                                                        .error() <= 9);
+        assertEquals(top.getFirst()
+                        .count(), metrics.getTopThrottledUsers()
+                                         .get(9L));
+    }
+
+    @Test
+    void testMetricsAreExposedOverJmx() throws Exception {
+        User basicUser = new User(1, BASIC_USER, tickSource);
+        for (int request = 0; request < 6; request++) {
+            rateLimiter.allowRequest(basicUser);
+        }
+
+        ObjectName objectName = metrics.register("metrics-test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(5L, server.getAttribute(objectName, "AllowedRequests"));
+            assertEquals(1L, server.getAttribute(objectName, "DeniedRequests"));
+            TabularData activeBuckets = (TabularData) server.getAttribute(objectName,
+                                                                          "ActiveBucketsBySubscription");
+            assertEquals(1L, activeBuckets.get(new Object[]{BASIC_USER.name()})
+                                          .get("value"));
+
+            server.invoke(objectName, "reset", null, null);
+            assertEquals(0L, server.getAttribute(objectName, "AllowedRequests"));
+        } finally {
+            metrics.unregister(objectName);
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer()
+                                     .isRegistered(objectName));
+    }
+
+    @Test
+    void testInvalidSamplingShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiterMetrics(5, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiterMetrics(-1, 1));
+    }
+}
@@ -0,0 +1,48 @@
+package org.rate_limiter.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void testHeavyHittersSurviveANoisyStream() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(100);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int event = 0; event < 100_000; event++) {
+            long id = random.nextInt(10) == 0 ? random.nextInt(3) : 1_000 + random.nextInt(100_000);
+            sketch.add(id, 1);
+        }
+
+        List<SpaceSavingSketch.HeavyHitter> top = sketch.top(3);
+        assertEquals(3, top.size());
+        assertEquals(List.of(0L, 1L, 2L), top.stream()
+                                             .map(SpaceSavingSketch.HeavyHitter::id)
+                                             .sorted()
+                                             .toList());
+        for (SpaceSavingSketch.HeavyHitter heavyHitter : top) {
+            // each hitter occurs about 3 333 times and is never underestimated
+            assertTrue(heavyHitter.count() >= 3_000, heavyHitter.toString());
+            assertTrue(heavyHitter.count() - heavyHitter.error() <= 3_700, heavyHitter.toString());
+        }
+    }
+
+    @Test
+    void testExactCountsWhileUnderCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        sketch.add(1, 5);
+        sketch.add(2, 1);
+        sketch.add(1, 2);
+
+        assertEquals(List.of(new SpaceSavingSketch.HeavyHitter(1, 7, 0), new SpaceSavingSketch.HeavyHitter(2, 1, 0)),
+                     sketch.top(10));
+
+        sketch.reset();
+        assertTrue(sketch.top(10)
+                         .isEmpty());
+    }
+}
@@ -0,0 +1,171 @@
+package org.rate_limiter.persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.RateRequest;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.Algorithm;
+import org.rate_limiter.algo.BucketRateLimiter;
+import org.rate_limiter.clock.ManualTickSource;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.SubscriptionType.CUSTOM_USER;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.currentSnapshot;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.reloadSubscriptionConfiguration;
+
+class LimiterStateSnapshotterTest {
+    private static final RateParams CUSTOM_PARAMS = new RateParams(10, new RateRequest(TimeUnit.SECONDS, 10));
+
+    @TempDir
+    Path directory;
+
+    private Map<SubscriptionType, RateParams> originalRateParams;
+    private ManualTickSource tickSource;
+    private Path file;
+
+    @BeforeEach
+    public void setUp() {
+        originalRateParams = currentSnapshot().rateParams();
+        reloadSubscriptionConfiguration(Map.of(CUSTOM_USER, CUSTOM_PARAMS));
+        tickSource = new ManualTickSource();
+        file = directory.resolve("limiter.state");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        reloadSubscriptionConfiguration(originalRateParams);
+    }
+
+    @Test
+    void testWarmRestartKeepsTokensAndCredits() {
+        BucketRateLimiter rateLimiter = newRateLimiter(Algorithm.TOKEN_BUCKET, tickSource);
+        User user = new User(1, CUSTOM_USER, tickSource);
+        User payingUser = new User(2, CUSTOM_USER, tickSource);
+        payingUser.addCredits(5);
+        assertEquals(8, allowed(rateLimiter, user, 8));
+        assertTrue(rateLimiter.allowRequest(payingUser));
+
+        assertEquals(2, new LimiterStateSnapshotter(rateLimiter, file, 4, tickSource).writeFull());
+
+        ManualTickSource restarted = new ManualTickSource(tickSource.epochNanos() + TimeUnit.MILLISECONDS.toNanos(300));
+        BucketRateLimiter restartedLimiter = newRateLimiter(Algorithm.TOKEN_BUCKET, restarted);
+        restartedLimiter.restoreFrom(RestoredLimiterState.load(file, restarted));
+
+        // 2 tokens left plus 3 refilled during the 300 ms of downtime
+        assertEquals(5, allowed(restartedLimiter, new User(1, CUSTOM_USER, restarted), 10));
+        User restartedPayingUser = new User(2, CUSTOM_USER, restarted);
+        assertTrue(restartedLimiter.allowRequest(restartedPayingUser));
+        assertEquals(5, restartedPayingUser.getCreditLedger()
+                                           .availableTokens());
+        assertEquals(0, restartedLimiter.restoredState()
+                                        .pendingRecords());
+    }
+
+    @Test
+    void testEveryAlgorithmRestoresItsTokens() {
+        for (Algorithm algorithm : Algorithm.values()) {
+            BucketRateLimiter rateLimiter = newRateLimiter(algorithm, tickSource);
+            assertEquals(7, allowed(rateLimiter, new User(1, CUSTOM_USER, tickSource), 7));
+            new LimiterStateSnapshotter(rateLimiter, file, 4, tickSource).writeFull();
+
+            BucketRateLimiter restartedLimiter = newRateLimiter(algorithm, tickSource);
+            restartedLimiter.restoreFrom(RestoredLimiterState.load(file, tickSource));
+            assertEquals(3, allowed(restartedLimiter, new User(1, CUSTOM_USER, tickSource), 10), algorithm.name());
+        }
+    }
+
+    @Test
+    void testIncrementalSnapshotsOnlyWriteTouchedBuckets() {
+        BucketRateLimiter rateLimiter = newRateLimiter(Algorithm.TOKEN_BUCKET, tickSource);
+        User user = new User(1, CUSTOM_USER, tickSource);
+        allowed(rateLimiter, user, 1);
+        allowed(rateLimiter, new User(2, CUSTOM_USER, tickSource), 1);
+        LimiterStateSnapshotter snapshotter = new LimiterStateSnapshotter(rateLimiter, file, 4, tickSource);
+
+        assertEquals(2, snapshotter.snapshot());
+        assertEquals(0, snapshotter.snapshot());
+        allowed(rateLimiter, user, 8);
+        assertEquals(1, snapshotter.snapshot());
+        assertEquals(0, snapshotter.snapshot());
+        assertEquals(2, snapshotter.snapshot());
+
+        BucketRateLimiter restartedLimiter = newRateLimiter(Algorithm.TOKEN_BUCKET, tickSource);
+        restartedLimiter.restoreFrom(RestoredLimiterState.load(file, tickSource));
+        assertEquals(1, allowed(restartedLimiter, new User(1, CUSTOM_USER, tickSource), 10));
+        assertEquals(9, allowed(restartedLimiter, new User(2, CUSTOM_USER, tickSource), 10));
+    }
+
+    @Test
+    void testTornFrameIsIgnored() throws IOException {
+        BucketRateLimiter rateLimiter = newRateLimiter(Algorithm.TOKEN_BUCKET, tickSource);
+        User user = new User(1, CUSTOM_USER, tickSource);
+        allowed(rateLimiter, user, 4);
+        LimiterStateSnapshotter snapshotter = new LimiterStateSnapshotter(rateLimiter, file, 4, tickSource);
+        snapshotter.writeFull();
+        allowed(rateLimiter, user, 4);
+        snapshotter.writeIncremental();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        BucketRateLimiter restartedLimiter = newRateLimiter(Algorithm.TOKEN_BUCKET, tickSource);
+        restartedLimiter.restoreFrom(RestoredLimiterState.load(file, tickSource));
+        assertEquals(6, allowed(restartedLimiter, new User(1, CUSTOM_USER, tickSource), 10));
+    }
+
+    @Test
+    void testFullSnapshotCarriesOverRecordsNotRestoredYet() {
+        BucketRateLimiter rateLimiter = newRateLimiter(Algorithm.TOKEN_BUCKET, tickSource);
+        allowed(rateLimiter, new User(1, CUSTOM_USER, tickSource), 6);
+        allowed(rateLimiter, new User(2, CUSTOM_USER, tickSource), 2);
+        new LimiterStateSnapshotter(rateLimiter, file, 4, tickSource).writeFull();
+
+        BucketRateLimiter restartedLimiter = newRateLimiter(Algorithm.TOKEN_BUCKET, tickSource);
+        restartedLimiter.restoreFrom(RestoredLimiterState.load(file, tickSource));
+        assertEquals(8, allowed(restartedLimiter, new User(2, CUSTOM_USER, tickSource), 10));
+        assertEquals(2, new LimiterStateSnapshotter(restartedLimiter, file, 4, tickSource).writeFull());
+
+        BucketRateLimiter secondRestart = newRateLimiter(Algorithm.TOKEN_BUCKET, tickSource);
+        secondRestart.restoreFrom(RestoredLimiterState.load(file, tickSource));
+        assertEquals(2, secondRestart.restoredState()
+                                     .pendingRecords());
+        assertEquals(4, allowed(secondRestart, new User(1, CUSTOM_USER, tickSource), 10));
+        assertEquals(0, allowed(secondRestart, new User(2, CUSTOM_USER, tickSource), 10));
+    }
+
+    @Test
+    void testMissingFileRestoresNothing() {
+        RestoredLimiterState restoredState = RestoredLimiterState.load(directory.resolve("missing"), tickSource);
+        BucketRateLimiter rateLimiter = newRateLimiter(Algorithm.TOKEN_BUCKET, tickSource);
+        rateLimiter.restoreFrom(restoredState);
+
+        assertEquals(0, restoredState.pendingRecords());
+        assertEquals(10, allowed(rateLimiter, new User(1, CUSTOM_USER, tickSource), 20));
+    }
+
+    private static BucketRateLimiter newRateLimiter(Algorithm algorithm, ManualTickSource tickSource) {
+        return new BucketRateLimiter(Map.of(CUSTOM_USER, algorithm), tickSource);
+    }
+
+    private static int allowed(BucketRateLimiter rateLimiter, User user, int requests) {
+        int allowed = 0;
+        for (int request = 0; request < requests; request++) {
+            if (rateLimiter.allowRequest(user)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+}
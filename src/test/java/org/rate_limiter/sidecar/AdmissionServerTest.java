@@ -0,0 +1,190 @@
+package org.rate_limiter.sidecar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.algo.AdmissionBitmap;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+import org.rate_limiter.clock.ManualTickSource;
+import org.rate_limiter.exceptions.AdmissionServerUnavailableException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.SubscriptionType.*;
+
+class AdmissionServerTest {
+    private ManualTickSource tickSource;
+    private AdmissionServer server;
+    private AdmissionClient client;
+
+    @BeforeEach
+    public void setUp() {
+        tickSource = new ManualTickSource();
+        server = new AdmissionServer(new TokenBucketRateLimiter(tickSource),
+                                     new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = new AdmissionClient(server.address(), 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void testRemoteDecisionsFollowTheUsersBucket() {
+        int allowed = 0;
+        for (int request = 0; request < 150; request++) {
+            if (client.allowRequest(1, BUSINESS_USER, 1)) {
+                allowed++;
+            }
+        }
+        assertEquals(100, allowed);
+
+        tickSource.advance(100, TimeUnit.MILLISECONDS);
+        assertTrue(client.allowRequest(1, BUSINESS_USER, 10));
+        assertFalse(client.allowRequest(1, BUSINESS_USER, 1));
+    }
+
+    @Test
+    void testBatchDecidesEveryRequestInOneFrame() {
+        long[] userIds = {1, 1, 2, 3, 3};
+        SubscriptionType[] subscriptionTypes = {BUSINESS_USER, BUSINESS_USER, FREE_USER, FREE_USER, FREE_USER};
+        long[] permits = {60, 60, 1, 2, 1};
+        long[] allowedBitmap = AdmissionBitmap.forRequests(userIds.length);
+
+        client.allowRequests(userIds, subscriptionTypes, permits, allowedBitmap);
+
+        assertTrue(AdmissionBitmap.isAllowed(allowedBitmap, 0));
+        assertFalse(AdmissionBitmap.isAllowed(allowedBitmap, 1));
+        assertTrue(AdmissionBitmap.isAllowed(allowedBitmap, 2));
+        assertTrue(AdmissionBitmap.isAllowed(allowedBitmap, 3));
+        assertFalse(AdmissionBitmap.isAllowed(allowedBitmap, 4));
+    }
+
+    @Test
+    void testPipelinedCallsAreAnsweredInOrder() {
+        try (AdmissionClient singleConnection = new AdmissionClient(server.address(), 1)) {
+            List<CompletableFuture<Boolean>> decisions = new ArrayList<>();
+            for (int request = 0; request < 1_000; request++) {
+                decisions.add(singleConnection.allowRequestAsync(1, BUSINESS_USER, 1));
+            }
+            for (int request = 0; request < decisions.size(); request++) {
+                assertEquals(request < 100, decisions.get(request)
+                                                     .join(), "request " + request);
+            }
+        }
+    }
+
+    @Test
+    void testConcurrentCallersShareThePool() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int firstUser = thread * 100;
+                futures.add(executor.submit(() -> {
+                    int allowed = 0;
+                    for (int request = 0; request < 1_000; request++) {
+                        if (client.allowRequest(firstUser + request % 100, BUSINESS_USER, 1)) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(1_000, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testInvalidPermitsShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> client.allowRequest(1, FREE_USER, 0));
+        assertThrows(IllegalArgumentException.class,
+                     () -> client.allowRequests(new long[0], new SubscriptionType[0], new long[0], new long[1]));
+    }
+
+    @Test
+    void testMalformedFrameDropsTheConnection() throws IOException {
+        try (Socket socket = new Socket(server.address()
+                                              .getAddress(), server.address()
+                                                                   .getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(Integer.BYTES);
+            out.writeInt(AdmissionProtocol.MAX_BATCH_REQUESTS + 1);
+            out.flush();
+
+            assertEquals(-1, new DataInputStream(socket.getInputStream()).read());
+        }
+        assertTrue(client.allowRequest(1, FREE_USER, 1));
+    }
+
+    @Test
+    void testUnavailableServerShouldThrowException() {
+        assertTrue(client.allowRequest(1, FREE_USER, 1));
+        server.close();
+
+        assertThrows(AdmissionServerUnavailableException.class, () -> client.allowRequest(1, FREE_USER, 1));
+        assertThrows(AdmissionServerUnavailableException.class, () -> client.allowRequest(1, FREE_USER, 1));
+        assertThrows(AdmissionServerUnavailableException.class, () -> client.allowRequest(1, FREE_USER, 1));
+    }
+
+    @Test
+    void testUnansweredCallTimesOut() throws IOException {
+        try (ServerSocket silentServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             AdmissionClient impatient = new AdmissionClient(
+                     (InetSocketAddress) silentServer.getLocalSocketAddress(), 1, Duration.ofMillis(50))) {
+            AdmissionServerUnavailableException exception = assertThrows(
+                    AdmissionServerUnavailableException.class, () -> impatient.allowRequest(1, FREE_USER, 1));
+            assertInstanceOf(TimeoutException.class, exception.getCause());
+        }
+    }
+
+    @Test
+    void testCloseDoesNotWaitForAWriterBlockedOnAFullSocket() throws Exception {
+        try (ServerSocket silentServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            AdmissionClient stalled = new AdmissionClient((InetSocketAddress) silentServer.getLocalSocketAddress(), 1,
+                                                          Duration.ofMinutes(1));
+            long[] userIds = new long[AdmissionProtocol.MAX_BATCH_REQUESTS];
+            SubscriptionType[] subscriptionTypes = new SubscriptionType[userIds.length];
+            long[] permits = new long[userIds.length];
+            Arrays.fill(subscriptionTypes, FREE_USER);
+            Arrays.fill(permits, 1);
+            // Nobody reads, so the writer ends up blocked in flush holding the connection's write lock
+            CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+                while (true) {
+                    stalled.allowRequestsAsync(userIds, subscriptionTypes, permits);
+                }
+            });
+            Thread.sleep(500);
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), stalled::close);
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                                                         () -> writer.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(AdmissionServerUnavailableException.class, exception.getCause());
+        }
+    }
+}
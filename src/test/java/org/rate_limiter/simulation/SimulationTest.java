@@ -0,0 +1,171 @@
+package org.rate_limiter.simulation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.SubscriptionType.*;
+
+class SimulationTest {
+    private static final TrafficModel MIXED_TRAFFIC = new TrafficModel(2_000, List.of(FREE_USER, BASIC_USER,
+                                                                                      PREMIUM_USER, BUSINESS_USER),
+                                                                       5_000, 1.1, Duration.ofSeconds(5), 200, 0.001,
+                                                                       20);
+
+    @Test
+    void testSameSeedReplaysIdenticallyOnAnyShardCount() {
+        List<TrafficEvent> events = MIXED_TRAFFIC.generate(Duration.ofMinutes(1), 42);
+        assertEquals(events, MIXED_TRAFFIC.generate(Duration.ofMinutes(1), 42));
+        assertNotEquals(events, MIXED_TRAFFIC.generate(Duration.ofMinutes(1), 43));
+
+        SimulationReport single = new Simulation(TokenBucketRateLimiter::new, 1).run(events);
+        SimulationReport sharded = new Simulation(TokenBucketRateLimiter::new, 4).run(events);
+
+        assertEquals(single.tiers()
+                           .keySet(), sharded.tiers()
+                                             .keySet());
+        single.tiers()
+              .forEach((subscriptionType, tier) -> {
+                  SimulationReport.TierReport other = sharded.tiers()
+                                                             .get(subscriptionType);
+                  assertEquals(tier.users(), other.users());
+                  assertEquals(tier.requests(), other.requests());
+                  assertEquals(tier.admitted(), other.admitted());
+                  assertEquals(tier.creditPurchases(), other.creditPurchases());
+                  assertEquals(tier.fairness(), other.fairness(), 1e-9);
+              });
+        assertTrue(single.tiers()
+                         .get(FREE_USER)
+                         .admitRate() < single.tiers()
+                                              .get(BUSINESS_USER)
+                                              .admitRate());
+    }
+
+    @Test
+    void testSyntheticTrafficFollowsTheModel() {
+        TrafficModel model = new TrafficModel(100, List.of(FREE_USER), 1_000, 1.2, Duration.ofSeconds(10), 50, 0.01,
+                                              5);
+        List<TrafficEvent> events = model.generate(Duration.ofMinutes(1), 7);
+
+        long[] requestsPerUser = new long[100];
+        long requests = 0;
+        long purchases = 0;
+        long previousOffset = 0;
+        for (TrafficEvent event : events) {
+            assertTrue(event.offsetNanos() >= previousOffset);
+            previousOffset = event.offsetNanos();
+            if (event.kind() == TrafficEvent.Kind.REQUEST) {
+                requests++;
+                requestsPerUser[(int) event.userId()]++;
+            } else {
+                purchases++;
+            }
+        }
+        // 60,000 Poisson arrivals plus five bursts of 50
+        assertEquals(60_250, requests, 1_000);
+        assertEquals(requests / 100.0, purchases, 250);
+        for (int user = 1; user < requestsPerUser.length; user++) {
+            assertTrue(requestsPerUser[0] > requestsPerUser[user], "user " + user);
+        }
+    }
+
+    @Test
+    void testCreditPurchasesAdmitWhatTheBucketDenies() {
+        List<TrafficEvent> steady = steadyTraffic(1, FREE_USER, 100, 100);
+        List<TrafficEvent> withCredits = new ArrayList<>();
+        withCredits.add(TrafficEvent.creditPurchase(0, 1, FREE_USER, 30));
+        withCredits.addAll(steady);
+        Simulation simulation = new Simulation(TokenBucketRateLimiter::new, 1);
+
+        SimulationReport.TierReport withoutCredits = simulation.run(steady)
+                                                               .tiers()
+                                                               .get(FREE_USER);
+        SimulationReport.TierReport withPurchase = simulation.run(withCredits)
+                                                             .tiers()
+                                                             .get(FREE_USER);
+
+        // Ten seconds at 2 per second on top of the initial tokens
+        assertTrue(withoutCredits.admitted() >= 20 && withoutCredits.admitted() <= 32,
+                   "admitted " + withoutCredits.admitted());
+        assertEquals(withoutCredits.admitted() + 30, withPurchase.admitted());
+        assertEquals(1, withPurchase.creditPurchases());
+        assertEquals(100, withPurchase.requests());
+    }
+
+    @Test
+    void testFairnessDropsWhenOneUserIsThrottled() {
+        List<TrafficEvent> even = merge(steadyTraffic(1, FREE_USER, 10, 1_000), steadyTraffic(2, FREE_USER, 10,
+                                                                                              1_000));
+        List<TrafficEvent> skewed = merge(steadyTraffic(1, FREE_USER, 10, 1_000), steadyTraffic(2, FREE_USER, 100,
+                                                                                                10));
+        Simulation simulation = new Simulation(TokenBucketRateLimiter::new, 2);
+
+        assertEquals(1.0, simulation.run(even)
+                                    .tiers()
+                                    .get(FREE_USER)
+                                    .fairness(), 1e-9);
+        double fairness = simulation.run(skewed)
+                                    .tiers()
+                                    .get(FREE_USER)
+                                    .fairness();
+        assertTrue(fairness < 0.8 && fairness >= 0.5, "fairness " + fairness);
+    }
+
+    @Test
+    void testReportCoversEngineCostAndRunsFasterThanRealTime() {
+        List<TrafficEvent> events = TrafficModel.poisson(1_000, 100)
+                                                .generate(Duration.ofHours(1), 1);
+
+        SimulationReport report = new Simulation(TokenBucketRateLimiter::new, 2).run(events);
+
+        assertEquals(events.size(), report.events());
+        assertTrue(report.simulatedNanos() > TimeUnit.MINUTES.toNanos(59));
+        assertTrue(report.speedup() > 10, "speedup " + report.speedup());
+        assertTrue(report.engineCpuNanos() > 0);
+        assertTrue(report.engineAllocatedBytes() >= 0);
+        assertTrue(report.format()
+                         .contains("BUSINESS_USER"));
+    }
+
+    @Test
+    void testTrafficLogRoundTrip(@TempDir Path directory) throws IOException {
+        List<TrafficEvent> events = MIXED_TRAFFIC.generate(Duration.ofSeconds(10), 3);
+        Path log = directory.resolve("traffic.csv");
+
+        TrafficLog.write(log, events);
+
+        assertEquals(events, TrafficLog.read(log));
+
+        Files.writeString(log, TrafficLog.HEADER + "\n5,1,FREE_USER,REQUEST,1\n4,1,FREE_USER,REQUEST,1\n");
+        assertThrows(IllegalArgumentException.class, () -> TrafficLog.read(log));
+        Files.writeString(log, TrafficLog.HEADER + "\n5,1,GOLD_USER,REQUEST,1\n");
+        assertThrows(IllegalArgumentException.class, () -> TrafficLog.read(log));
+    }
+
+    private static List<TrafficEvent> steadyTraffic(long userId, SubscriptionType subscriptionType, int requests,
+                                                    long intervalMillis) {
+        List<TrafficEvent> events = new ArrayList<>();
+        for (int request = 0; request < requests; request++) {
+            events.add(TrafficEvent.request(TimeUnit.MILLISECONDS.toNanos(request * intervalMillis), userId,
+                                            subscriptionType, 1));
+        }
+        return events;
+    }
+
+    private static List<TrafficEvent> merge(List<TrafficEvent> first, List<TrafficEvent> second) {
+        List<TrafficEvent> events = new ArrayList<>(first);
+        events.addAll(second);
+        events.sort((left, right) -> Long.compare(left.offsetNanos(), right.offsetNanos()));
+        return events;
+    }
+}
@@ -0,0 +1,112 @@
+package org.rate_limiter.store;
+
+import org.junit.jupiter.api.Test;
+import org.rate_limiter.CreditLedger;
+import org.rate_limiter.RateParams;
+import org.rate_limiter.RateRequest;
+import org.rate_limiter.SubscriptionType;
+import org.rate_limiter.User;
+import org.rate_limiter.algo.TokenBucket;
+import org.rate_limiter.algo.TokenBucketRateLimiter;
+import org.rate_limiter.clock.ManualTickSource;
+import org.rate_limiter.clock.SystemTickSource;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.removeUserRateParams;
+import static org.rate_limiter.configurations.SubscriptionConfiguration.setUserRateParams;
+
+class BucketEvictorTest {
+    private static final RateParams FULL_ON_CREATION = new RateParams(2, new RateRequest(TimeUnit.HOURS, 2));
+
+    @Test
+    void testFullIdleBucketsAreEvicted() {
+        ShardedBucketStore<TokenBucket> store = new ShardedBucketStore<>(1, 0);
+        BucketEvictor<TokenBucket> evictor = new BucketEvictor<>(store, new EvictionPolicy(Duration.ZERO,
+                                                                                           Long.MAX_VALUE, 64, 0),
+                                                                 SystemTickSource.INSTANCE);
+        TokenBucket idle = store.computeIfAbsent(1L, id -> new TokenBucket(FULL_ON_CREATION, new CreditLedger()));
+        TokenBucket used = store.computeIfAbsent(2L, id -> new TokenBucket(FULL_ON_CREATION, new CreditLedger()));
+        assertTrue(used.allowRequest());
+
+        assertEquals(1, evictor.sweep());
+
+        assertNull(store.get(1L));
+        assertSame(used, store.get(2L));
+        assertEquals(new EvictionMetrics(1, 0, 1), evictor.metrics());
+        assertTrue(idle.isEvictable(System.nanoTime(), 0));
+    }
+
+    @Test
+    void testBucketIsNotEvictableBeforeIdleTtl() {
+        TokenBucket bucket = new TokenBucket(FULL_ON_CREATION, new CreditLedger());
+        assertFalse(bucket.isEvictable(System.nanoTime(), TimeUnit.MINUTES.toNanos(1)));
+    }
+
+    @Test
+    void testRateLimiterEnforcesMaxResidentBuckets() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1, new EvictionPolicy(Duration.ofMinutes(10),
+                                                                                              4, 64, 0));
+        LongStream.range(0, 10)
+                  .forEach(id -> assertTrue(rateLimiter.allowRequest(new User(id, SubscriptionType.FREE_USER))));
+
+        EvictionMetrics metrics = rateLimiter.evictionMetrics();
+        assertEquals(4, metrics.residentBuckets());
+        assertEquals(6, metrics.capacityEvictions());
+        assertEquals(0, metrics.idleEvictions());
+    }
+
+    @Test
+    void testMaxResidentBucketsIsSharedBySubscriptionTypes() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1, new EvictionPolicy(Duration.ofMinutes(10),
+                                                                                              4, 64, 0));
+        SubscriptionType[] subscriptionTypes = SubscriptionType.values();
+        LongStream.range(0, 10)
+                  .forEach(id -> assertTrue(rateLimiter.allowRequest(
+                          new User(id, subscriptionTypes[(int) id % subscriptionTypes.length]))));
+
+        assertEquals(4, rateLimiter.evictionMetrics()
+                                   .residentBuckets());
+        long residentByType = 0;
+        for (SubscriptionType subscriptionType : subscriptionTypes) {
+            residentByType += rateLimiter.residentBuckets(subscriptionType);
+        }
+        assertEquals(4, residentByType);
+    }
+
+    @Test
+    void testCapacityEvictionPrefersFullBucketsOverDrainedOnes() {
+        ManualTickSource tickSource = new ManualTickSource();
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1, new EvictionPolicy(Duration.ofMinutes(10),
+                                                                                              2, 64, 0), tickSource);
+        User drained = new User(9_000_002L, SubscriptionType.FREE_USER);
+        User refilled = new User(9_000_001L, SubscriptionType.FREE_USER);
+        setUserRateParams(drained.getId(), new RateParams(1, new RateRequest(TimeUnit.HOURS, 1)));
+        setUserRateParams(refilled.getId(), new RateParams(1, new RateRequest(TimeUnit.MILLISECONDS, 1)));
+        try {
+            assertTrue(rateLimiter.allowRequest(drained));
+            assertTrue(rateLimiter.allowRequest(refilled));
+            tickSource.advance(1, TimeUnit.MILLISECONDS);
+
+            assertTrue(rateLimiter.allowRequest(new User(9_000_003L, SubscriptionType.FREE_USER)));
+
+            assertFalse(rateLimiter.allowRequest(drained));
+            assertEquals(2, rateLimiter.evictionMetrics()
+                                       .residentBuckets());
+        } finally {
+            removeUserRateParams(drained.getId());
+            removeUserRateParams(refilled.getId());
+        }
+    }
+
+    @Test
+    void testInvalidEvictionPolicyShouldThrowException() {
+        ShardedBucketStore<TokenBucket> store = new ShardedBucketStore<>(1, 0);
+        assertThrows(IllegalArgumentException.class,
+                     () -> new BucketEvictor<>(store, new EvictionPolicy(Duration.ZERO, 1, 0, 0),
+                                               SystemTickSource.INSTANCE));
+    }
+}
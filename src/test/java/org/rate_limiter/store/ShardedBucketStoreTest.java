@@ -0,0 +1,229 @@
+package org.rate_limiter.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedBucketStoreTest {
+    private ShardedBucketStore<AtomicLong> store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new ShardedBucketStore<>(8, 16);
+    }
+
+    @Test
+    void testComputeIfAbsentCreatesOnce() {
+        AtomicLong first = store.computeIfAbsent(42L, AtomicLong::new);
+        AtomicLong second = store.computeIfAbsent(42L, id -> new AtomicLong(-1));
+
+        assertSame(first, second);
+        assertEquals(42L, first.get());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testPutReplacesTheValueInPlace() {
+        AtomicLong first = new AtomicLong(1);
+        AtomicLong second = new AtomicLong(2);
+
+        assertNull(store.put(7L, first));
+        assertSame(first, store.put(7L, second));
+        assertSame(second, store.get(7L));
+        assertEquals(1, store.size());
+
+        assertTrue(store.remove(7L, second));
+        assertNull(store.put(7L, first));
+        assertSame(first, store.get(7L));
+    }
+
+    @Test
+    void testForEachVisitsDirtyEntriesOnce() {
+        LongStream.range(0, 100)
+                  .forEach(id -> store.computeIfAbsent(id, AtomicLong::new));
+        List<Long> visited = new ArrayList<>();
+
+        store.forEach(true, (id, value) -> visited.add(id));
+        assertEquals(100, visited.size());
+
+        visited.clear();
+        store.forEach(true, (id, value) -> visited.add(id));
+        assertTrue(visited.isEmpty());
+
+        store.get(7L);
+        store.put(8L, new AtomicLong(8));
+        store.forEach(true, (id, value) -> visited.add(id));
+        assertEquals(List.of(7L, 8L), visited.stream()
+                                             .sorted()
+                                             .toList());
+
+        visited.clear();
+        store.forEach(false, (id, value) -> visited.add(id));
+        assertEquals(100, visited.size());
+    }
+
+    @Test
+    void testMissingKeyReturnsNull() {
+        store.computeIfAbsent(1L, AtomicLong::new);
+        assertNull(store.get(2L));
+    }
+
+    @Test
+    void testTablesGrowAndKeepAllEntries() {
+        LongStream.range(-5_000, 5_000)
+                  .forEach(id -> store.computeIfAbsent(id, AtomicLong::new));
+
+        assertEquals(10_000, store.size());
+        assertTrue(LongStream.range(-5_000, 5_000)
+                             .allMatch(id -> store.get(id)
+                                                  .get() == id));
+    }
+
+    @Test
+    void testShardCountIsRoundedToPowerOfTwo() {
+        assertEquals(8, new ShardedBucketStore<AtomicLong>(5, 0).shardCount());
+        assertEquals(1, new ShardedBucketStore<AtomicLong>(1, 0).shardCount());
+    }
+
+    @Test
+    void testInvalidShardCountShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedBucketStore<AtomicLong>(0, 0));
+    }
+
+    @Test
+    void testMemoryFootprintIsReportedPerShard() {
+        LongStream.range(0, 1_000)
+                  .forEach(id -> store.computeIfAbsent(id, AtomicLong::new));
+
+        List<ShardFootprint> footprints = store.memoryFootprint();
+
+        assertEquals(8, footprints.size());
+        assertEquals(1_000, footprints.stream()
+                                      .mapToInt(ShardFootprint::entries)
+                                      .sum());
+        assertTrue(footprints.stream()
+                             .allMatch(footprint -> footprint.slots() >= 2 * footprint.entries()
+                                     && footprint.tableBytes() > (long) footprint.slots() * Long.BYTES));
+    }
+
+    @Test
+    void testLookupOfExistingBucketDoesNotAllocate() {
+        LongStream.range(0, 1_000)
+                  .forEach(id -> store.computeIfAbsent(id, AtomicLong::new));
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread()
+                              .threadId();
+        long sum = lookupAll();
+
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        sum += lookupAll();
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(2 * 999 * 1_000 / 2, sum);
+        // A boxing lookup would allocate at least 16 bytes for each of the 1000 keys
+        assertTrue(allocated < 1_000, "allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void testRemoveOnlyRemovesExpectedBucket() {
+        AtomicLong bucket = store.computeIfAbsent(7L, AtomicLong::new);
+
+        assertFalse(store.remove(7L, new AtomicLong(7L)));
+        assertTrue(store.remove(7L, bucket));
+        assertNull(store.get(7L));
+        assertEquals(0, store.size());
+        assertNotSame(bucket, store.computeIfAbsent(7L, AtomicLong::new));
+    }
+
+    @Test
+    void testRemovedSlotsArePurgedOnRebuild() {
+        for (int round = 0; round < 100; round++) {
+            LongStream.range(0, 100)
+                      .forEach(id -> store.computeIfAbsent(id, AtomicLong::new));
+            LongStream.range(0, 100)
+                      .forEach(id -> assertTrue(store.remove(id, store.get(id))));
+        }
+
+        assertEquals(0, store.size());
+        assertTrue(store.memoryFootprint()
+                        .stream()
+                        .allMatch(footprint -> footprint.slots() <= 64));
+    }
+
+    @Test
+    void testSweepRemovesMatchingBucketsIncrementally() {
+        ShardedBucketStore<AtomicLong> singleShard = new ShardedBucketStore<>(1, 0);
+        LongStream.range(0, 8)
+                  .forEach(id -> singleShard.computeIfAbsent(id, AtomicLong::new));
+
+        int evicted = 0;
+        for (int sweep = 0; sweep < 4; sweep++) {
+            evicted += singleShard.sweep(4, bucket -> bucket.get() % 2 == 0);
+        }
+
+        assertEquals(4, evicted);
+        assertEquals(4, singleShard.size());
+        assertTrue(LongStream.range(0, 8)
+                             .allMatch(id -> (singleShard.get(id) == null) == (id % 2 == 0)));
+    }
+
+    @Test
+    void testMaxEntriesIsEnforcedWithClockEviction() {
+        ShardedBucketStore<AtomicLong> bounded = new ShardedBucketStore<>(1, 0, 4);
+        LongStream.range(0, 4)
+                  .forEach(id -> bounded.computeIfAbsent(id, AtomicLong::new));
+        // Recently used buckets survive the clock sweep
+        bounded.get(0L);
+        bounded.get(1L);
+        bounded.get(2L);
+
+        bounded.computeIfAbsent(4L, AtomicLong::new);
+
+        assertEquals(4, bounded.size());
+        assertEquals(1, bounded.capacityEvictions());
+        assertNull(bounded.get(3L));
+        assertNotNull(bounded.get(0L));
+        assertNotNull(bounded.get(4L));
+    }
+
+    @Test
+    void testClockEvictionPrefersEntriesTheListenerRetires() {
+        List<Long> removed = new ArrayList<>();
+        ShardedBucketStore<AtomicLong> bounded = new ShardedBucketStore<>(1, 0, 4, new RemovalListener<>() {
+            @Override
+            public void onRemoval(long id, AtomicLong value) {
+                removed.add(id);
+            }
+
+            @Override
+            public boolean tryRetire(AtomicLong value) {
+                return value.get() == 2;
+            }
+        });
+        LongStream.range(0, 4)
+                  .forEach(id -> bounded.computeIfAbsent(id, AtomicLong::new));
+
+        bounded.computeIfAbsent(4L, AtomicLong::new);
+
+        assertEquals(List.of(2L), removed);
+        assertEquals(4, bounded.size());
+        assertNull(bounded.get(2L));
+    }
+
+    private long lookupAll() {
+        long sum = 0;
+        for (long id = 0; id < 1_000; id++) {
+            sum += store.get(id)
+                        .get();
+        }
+        return sum;
+    }
+}